@@ -14,7 +14,9 @@ import me.refracdevelopment.simplegems.managers.configuration.*;
 import me.refracdevelopment.simplegems.managers.configuration.cache.*;
 import me.refracdevelopment.simplegems.managers.data.*;
 import me.refracdevelopment.simplegems.managers.leaderboards.*;
+import me.refracdevelopment.simplegems.managers.ledger.*;
 import me.refracdevelopment.simplegems.menu.*;
+import me.refracdevelopment.simplegems.player.stats.GemAmount;
 import me.refracdevelopment.simplegems.utilities.*;
 import me.refracdevelopment.simplegems.utilities.chat.*;
 import me.refracdevelopment.simplegems.utilities.command.*;
@@ -31,6 +33,9 @@ import java.io.File;
 import java.io.InputStreamReader;
 import java.net.HttpURLConnection;
 import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 @Getter
 @Setter
@@ -41,9 +46,16 @@ public final class SimpleGems extends JavaPlugin {
 
     // Managers
     private DataType dataType;
+    private StorageExecutor storageExecutor;
+    private WriteBehindBuffer writeBehindBuffer;
+    private LedgerManager ledgerManager;
     private MySQLManager mySQLManager;
     private SQLiteManager sqLiteManager;
+    private MappedManager mappedManager;
+    private DataMigration dataMigration;
+    private WriteJournal writeJournal;
     private ProfileManager profileManager;
+    private AutosaveManager autosaveManager;
     private ActionManager actionManager;
     private LeaderboardManager leaderboardManager;
 
@@ -103,21 +115,70 @@ public final class SimpleGems extends JavaPlugin {
     public void onDisable() {
         // Plugin shutdown logic
         try {
+            // No timer may queue new work while the queues are being drained
+            getFoliaLib().getScheduler().cancelAllTasks();
+
+            if (autosaveManager != null)
+                autosaveManager.shutdown();
+
+            if (writeBehindBuffer != null)
+                writeBehindBuffer.flush();
+
+            if (ledgerManager != null)
+                ledgerManager.flush();
+
+            if (storageExecutor != null)
+                drainStorage();
+
+            if (dataMigration != null)
+                dataMigration.shutdown();
+
             if (dataType == DataType.MYSQL)
                 mySQLManager.shutdown();
             else if (dataType == DataType.SQLITE)
                 sqLiteManager.shutdown();
+            else if (dataType == DataType.MAPPED)
+                mappedManager.shutdown();
 
             if (this.adventure != null) {
                 this.adventure.close();
                 this.adventure = null;
             }
-
-            getFoliaLib().getScheduler().cancelAllTasks();
         } catch (Exception ignored) {
         }
     }
 
+    /**
+     * Wait for the queued writes, keeping the ones that didn't get to run in the journal.
+     */
+    private void drainStorage() {
+        List<WriteJournal.Entry> abandoned = new ArrayList<>();
+        long start = System.currentTimeMillis();
+        int inFlight = storageExecutor.shutdown(getSettings().STORAGE_SHUTDOWN_TIMEOUT, TimeUnit.SECONDS, abandoned);
+
+        // Failed saves are put back in their queues, those are kept as well
+        WriteJournal.Entry balances = writeBehindBuffer == null ? null : writeBehindBuffer.drain();
+        WriteJournal.Entry ledger = ledgerManager == null ? null : ledgerManager.drain();
+
+        if (balances != null)
+            abandoned.add(balances);
+
+        if (ledger != null)
+            abandoned.add(ledger);
+
+        int spilled = 0;
+
+        if (!abandoned.isEmpty()) {
+            if (writeJournal != null && getSettings().STORAGE_SPILL_JOURNAL)
+                spilled = writeJournal.spill(abandoned);
+            else
+                inFlight += abandoned.size();
+        }
+
+        RyMessageUtils.sendConsole(true, "&aStorage drained in &e" + (System.currentTimeMillis() - start) + "ms&a, "
+                + "&e" + spilled + " &awrites kept for the next start, &e" + inFlight + " &awrites still in flight.");
+    }
+
     private void loadFiles() {
         // Files
         configFile = new ConfigFile(this, "config.yml");
@@ -134,19 +195,61 @@ public final class SimpleGems extends JavaPlugin {
     }
 
     private void loadManagers() {
-        // Setup database
+        int writeThreads = getSettings().STORAGE_WRITE_THREADS;
+
+        // Balances are kept in units of this scale, so it can't change until the next restart
+        GemAmount.setScale(getSettings().GEM_DECIMALS);
+
         switch (getSettings().DATA_TYPE.toUpperCase()) {
             case "MARIADB":
             case "MYSQL":
                 dataType = DataType.MYSQL;
-                mySQLManager = new MySQLManager();
+                break;
+            case "MAPPED":
+                dataType = DataType.MAPPED;
+                // Only used when converting from or to SQLite
+                writeThreads = 1;
                 break;
             default:
                 dataType = DataType.SQLITE;
+                // SQLite only allows one writer at a time
+                writeThreads = 1;
+                break;
+        }
+
+        storageExecutor = new StorageExecutor(getSettings().STORAGE_READ_THREADS, writeThreads,
+                getSettings().STORAGE_QUEUE_SIZE, getSettings().STORAGE_SUBMIT_TIMEOUT);
+
+        // Setup database
+        switch (dataType) {
+            case MYSQL:
+                mySQLManager = new MySQLManager();
+                mySQLManager.awaitSchema();
+                break;
+            case MAPPED:
+                mappedManager = new MappedManager(getDataFolder());
+                break;
+            default:
                 sqLiteManager = new SQLiteManager(getDataFolder().getAbsolutePath() + File.separator + "gems.db");
+                sqLiteManager.awaitSchema();
+                dataMigration = new DataMigration(sqLiteManager, getDataFolder());
+                dataMigration.resume();
                 break;
         }
 
+        // A migration is finished once the server starts on MySQL
+        if (dataType == DataType.MYSQL)
+            DataMigration.finish(getDataFolder());
+
+        // Writes left over from the last shutdown go first, before any player is loaded
+        if (dataType != DataType.MAPPED) {
+            writeJournal = new WriteJournal(getDataFolder(), dataType);
+            writeJournal.replay(getSettings().STORAGE_SHUTDOWN_TIMEOUT);
+        }
+
+        writeBehindBuffer = new WriteBehindBuffer();
+        autosaveManager = new AutosaveManager();
+        ledgerManager = new LedgerManager();
         profileManager = new ProfileManager();
         gemsAPI = new SimpleGemsAPI();
         actionManager = new ActionManager(this);
@@ -201,15 +304,22 @@ public final class SimpleGems extends JavaPlugin {
                     HelpCommand.class,
                     BalanceCommand.class,
                     TopCommand.class,
+                    RankCommand.class,
                     ShopCommand.class,
                     WithdrawCommand.class,
                     PayCommand.class,
                     GiveCommand.class,
+                    GiveAllCommand.class,
                     TakeCommand.class,
                     SetCommand.class,
                     ReloadCommand.class,
                     VersionCommand.class,
-                    RandomGiveCommand.class
+                    RandomGiveCommand.class,
+                    StatsCommand.class,
+                    ConvertCommand.class,
+                    ExportCommand.class,
+                    ImportCommand.class,
+                    MigrateCommand.class
             );
         } catch (NoSuchFieldException | IllegalAccessException e) {
             RyMessageUtils.sendPluginError("&cFailed to load commands.", e, true, true);
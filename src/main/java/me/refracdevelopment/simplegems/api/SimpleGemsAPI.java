@@ -2,7 +2,10 @@ package me.refracdevelopment.simplegems.api;
 
 import me.refracdevelopment.simplegems.SimpleGems;
 import me.refracdevelopment.simplegems.api.events.impl.*;
+import me.refracdevelopment.simplegems.managers.ledger.LedgerReason;
 import me.refracdevelopment.simplegems.player.data.ProfileData;
+import me.refracdevelopment.simplegems.player.stats.GemAmount;
+import me.refracdevelopment.simplegems.player.stats.Stat;
 import me.refracdevelopment.simplegems.utilities.Methods;
 import me.refracdevelopment.simplegems.utilities.Tasks;
 import me.refracdevelopment.simplegems.utilities.chat.RyMessageUtils;
@@ -11,6 +14,11 @@ import org.bukkit.OfflinePlayer;
 import org.bukkit.entity.Player;
 import org.bukkit.inventory.ItemStack;
 
+import java.util.Collection;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
 /**
  * The SimpleGemsAPI allows you to hook into SimpleGems to either modify and grab data
  * or to add new features and events.
@@ -52,15 +60,66 @@ public class SimpleGemsAPI {
     }
 
     /**
-     * Used to get offline player gems.
+     * Used to get player gems exactly, in units of 10^-decimals gems.
+     *
+     * @param player online player
+     * @return online player's gems amount in units
+     * @see me.refracdevelopment.simplegems.player.stats.GemAmount
+     */
+    public long getGemUnits(Player player) {
+        if (getProfileData(player) == null)
+            return 0;
+
+        return getProfileData(player).getGems().getUnits();
+    }
+
+    /**
+     * Used to get a player's leaderboard position.
+     *
+     * @param player online or offline player
+     * @return player's position starting at 1, or 0 if the player isn't ranked yet
+     */
+    public int getRank(OfflinePlayer player) {
+        return SimpleGems.getInstance().getLeaderboardManager().getRank(player.getUniqueId());
+    }
+
+    /**
+     * Used to get offline player gems that are already cached.
      *
      * @param player offline player
-     * @return offline player's gems amount
+     * @return offline player's gems amount, or 0 if it isn't cached
+     * @deprecated Only answers from the offline cache, use #getOfflineGemsAsync instead.
      */
+    @Deprecated
     public double getOfflineGems(OfflinePlayer player) {
         return Methods.getOfflineGems(player);
     }
 
+    /**
+     * Used to get offline player gems without blocking,
+     * online players are answered from their cached profile.
+     *
+     * @param player offline player
+     * @return a future completed with the player's gems amount on a storage thread,
+     * use {@link Tasks#mainThread()} to continue on the main thread
+     */
+    public CompletableFuture<Double> getOfflineGemsAsync(OfflinePlayer player) {
+        if (player.getPlayer() != null && getProfileData(player.getPlayer()) != null)
+            return CompletableFuture.completedFuture(getGems(player.getPlayer()));
+
+        return Methods.getOfflineGemsAsync(player);
+    }
+
+    /**
+     * Used to get the gems of many offline players at once.
+     *
+     * @param uuids the players to look up
+     * @return a future completed with the gems amount of every player that has data
+     */
+    public CompletableFuture<Map<UUID, Double>> getOfflineGemsAsync(Collection<UUID> uuids) {
+        return Methods.getOfflineGemsAsync(uuids);
+    }
+
     /**
      * This will give gems in item form
      * to the player who withdrew them or
@@ -107,12 +166,25 @@ public class SimpleGemsAPI {
      *
      * @param player offline player
      * @param amount amount of gems to check
-     * @return true - If the player has enough gems
+     * @return true - If the player has enough gems, false if their gems aren't cached
+     * @deprecated Only answers from the offline cache, use #hasOfflineGemsAsync instead.
      */
+    @Deprecated
     public boolean hasOfflineGems(OfflinePlayer player, double amount) {
         return Methods.hasOfflineGems(player, amount);
     }
 
+    /**
+     * Used to check if the offline player has enough gems without blocking.
+     *
+     * @param player offline player
+     * @param amount amount of gems to check
+     * @return a future completed with true if the player has enough gems
+     */
+    public CompletableFuture<Boolean> hasOfflineGemsAsync(OfflinePlayer player, double amount) {
+        return getOfflineGemsAsync(player).thenApply(gems -> gems >= amount);
+    }
+
     /**
      * Used to give/deposit player gems into their account.
      *
@@ -120,17 +192,7 @@ public class SimpleGemsAPI {
      * @param amount amount of gems to give
      */
     public void giveGems(Player target, double amount) {
-        if (getProfileData(target) == null)
-            return;
-
-        GemsAddEvent event = new GemsAddEvent(null, target, amount);
-        Bukkit.getPluginManager().callEvent(event);
-
-        if (event.isCancelled())
-            return;
-
-        getProfileData(target).getGems().incrementAmount(amount);
-        Tasks.runAsync(() -> getProfileData(target).save());
+        giveGems(null, target, amount, LedgerReason.GIVE);
     }
 
     /**
@@ -141,6 +203,18 @@ public class SimpleGemsAPI {
      * @param amount amount of gems to give
      */
     public void giveGems(Player player, Player target, double amount) {
+        giveGems(player, target, amount, LedgerReason.GIVE);
+    }
+
+    /**
+     * Used to give/deposit player gems into their account.
+     *
+     * @param player the player who gave the gems
+     * @param target the player who received the gems
+     * @param amount amount of gems to give
+     * @param reason reason recorded in the ledger
+     */
+    public void giveGems(Player player, Player target, double amount, LedgerReason reason) {
         if (getProfileData(target) == null)
             return;
 
@@ -151,7 +225,8 @@ public class SimpleGemsAPI {
             return;
 
         getProfileData(target).getGems().incrementAmount(amount);
-        Tasks.runAsync(() -> getProfileData(target).save());
+        getProfileData(target).save();
+        record(player, target, GemAmount.toUnits(amount), reason);
     }
 
     /**
@@ -164,6 +239,55 @@ public class SimpleGemsAPI {
         Methods.giveOfflineGems(player, amount);
     }
 
+    /**
+     * Used to give/deposit offline player gems into their account.
+     *
+     * @param player the target player
+     * @param amount amount of gems to give
+     * @return a future completed with true if the player has data to give to
+     */
+    public CompletableFuture<Boolean> giveOfflineGemsAsync(OfflinePlayer player, double amount) {
+        return Methods.giveOfflineGems(player, amount);
+    }
+
+    /**
+     * Used to give many players the same amount of gems at once,
+     * no events are called and no multiplier is applied.
+     *
+     * @param uuids the target players, online or offline
+     * @param amount amount of gems to give each player
+     * @return a future completed once every balance has been stored
+     */
+    public CompletableFuture<Void> giveGemsBulk(Collection<UUID> uuids, double amount) {
+        return Methods.giveGemsBulk(uuids, amount);
+    }
+
+    /**
+     * Used to give every stored player the same amount of gems in a single update,
+     * no events are called and no multiplier is applied.
+     *
+     * @param amount amount of gems to give each player
+     * @return a future completed with the amount of players given to
+     */
+    public CompletableFuture<Integer> giveAllGems(double amount) {
+        return Methods.giveAllGems(amount);
+    }
+
+    /**
+     * Used to add or remove offline player gems in a single atomic update,
+     * a negative amount is only taken if the player has enough gems.
+     *
+     * @param player the target player
+     * @param amount amount of gems to add, or remove if negative
+     * @return a future completed with true if the balance was changed
+     */
+    public CompletableFuture<Boolean> modifyOfflineAsync(OfflinePlayer player, double amount) {
+        if (amount < 0)
+            return Methods.takeOfflineGems(player, -amount);
+
+        return Methods.giveOfflineGems(player, amount);
+    }
+
     /**
      * Used to take/remove player gems from their account.
      *
@@ -171,38 +295,111 @@ public class SimpleGemsAPI {
      * @param amount amount of gems to take
      */
     public void takeGems(Player target, double amount) {
+        takeGems(null, target, amount, LedgerReason.TAKE);
+    }
+
+    /**
+     * Used to take/remove player gems from their account.
+     *
+     * @param player the player who took the gems
+     * @param target the target player
+     * @param amount amount of gems to take
+     */
+    public void takeGems(Player player, Player target, double amount) {
+        takeGems(player, target, amount, LedgerReason.TAKE);
+    }
+
+    /**
+     * Used to take/remove player gems from their account.
+     *
+     * @param player the player who took the gems
+     * @param target the target player
+     * @param amount amount of gems to take
+     * @param reason reason recorded in the ledger
+     */
+    public void takeGems(Player player, Player target, double amount, LedgerReason reason) {
         if (getProfileData(target) == null)
             return;
 
-        GemsRemoveEvent event = new GemsRemoveEvent(null, target, amount);
+        GemsRemoveEvent event = new GemsRemoveEvent(player, target, amount);
         Bukkit.getPluginManager().callEvent(event);
 
         if (event.isCancelled())
             return;
 
         getProfileData(target).getGems().decrementAmount(amount);
-        Tasks.runAsync(() -> getProfileData(target).save());
+        getProfileData(target).save();
+        record(player, target, -GemAmount.toUnits(amount), reason);
     }
 
     /**
-     * Used to take/remove player gems from their account.
+     * Used to take player gems only if they have enough,
+     * checked and taken in one step so concurrent payments can't overdraw.
+     *
+     * @param target the target player
+     * @param amount amount of gems to take
+     * @return true - If the gems were taken
+     */
+    public boolean tryTakeGems(Player target, double amount) {
+        return tryTakeGems(null, target, amount, LedgerReason.TAKE);
+    }
+
+    /**
+     * Used to take player gems only if they have enough,
+     * checked and taken in one step so concurrent payments can't overdraw.
      *
      * @param player the player who took the gems
      * @param target the target player
      * @param amount amount of gems to take
+     * @param reason reason recorded in the ledger
+     * @return true - If the gems were taken
      */
-    public void takeGems(Player player, Player target, double amount) {
+    public boolean tryTakeGems(Player player, Player target, double amount, LedgerReason reason) {
         if (getProfileData(target) == null)
-            return;
+            return false;
 
         GemsRemoveEvent event = new GemsRemoveEvent(player, target, amount);
         Bukkit.getPluginManager().callEvent(event);
 
-        if (event.isCancelled())
-            return;
+        if (event.isCancelled() || !getProfileData(target).getGems().tryDebit(amount))
+            return false;
 
-        getProfileData(target).getGems().decrementAmount(amount);
-        Tasks.runAsync(() -> getProfileData(target).save());
+        getProfileData(target).save();
+        record(player, target, -GemAmount.toUnits(amount), reason);
+        return true;
+    }
+
+    /**
+     * Used to move gems from one online player to another if the player has enough,
+     * nothing is moved if either side's event is cancelled.
+     *
+     * @param player the player the gems are taken from
+     * @param target the player who received the gems
+     * @param amount amount of gems to move
+     * @param reason reason recorded in the ledger
+     * @return true - If the gems were moved
+     */
+    public boolean transferGems(Player player, Player target, double amount, LedgerReason reason) {
+        if (getProfileData(player) == null || getProfileData(target) == null)
+            return false;
+
+        GemsRemoveEvent removeEvent = new GemsRemoveEvent(player, player, amount);
+        Bukkit.getPluginManager().callEvent(removeEvent);
+
+        if (removeEvent.isCancelled())
+            return false;
+
+        GemsAddEvent addEvent = new GemsAddEvent(player, target, amount);
+        Bukkit.getPluginManager().callEvent(addEvent);
+
+        if (addEvent.isCancelled() || !Stat.transfer(getProfileData(player).getGems(), getProfileData(target).getGems(), amount))
+            return false;
+
+        getProfileData(player).save();
+        getProfileData(target).save();
+        record(player, player, -GemAmount.toUnits(amount), reason);
+        record(player, target, GemAmount.toUnits(amount), reason);
+        return true;
     }
 
     /**
@@ -215,6 +412,17 @@ public class SimpleGemsAPI {
         Methods.takeOfflineGems(target, amount);
     }
 
+    /**
+     * Used to take offline player gems, only if they have enough.
+     *
+     * @param target the target player
+     * @param amount amount of gems to take
+     * @return a future completed with true if the gems were taken
+     */
+    public CompletableFuture<Boolean> takeOfflineGemsAsync(OfflinePlayer target, double amount) {
+        return Methods.takeOfflineGems(target, amount);
+    }
+
     /**
      * Used to set a player gems.
      *
@@ -222,17 +430,7 @@ public class SimpleGemsAPI {
      * @param amount amount of gems to set
      */
     public void setGems(Player target, double amount) {
-        if (getProfileData(target) == null)
-            return;
-
-        GemsSetEvent event = new GemsSetEvent(null, target, amount);
-        Bukkit.getPluginManager().callEvent(event);
-
-        if (event.isCancelled())
-            return;
-
-        getProfileData(target).getGems().setAmount(amount);
-        Tasks.runAsync(() -> getProfileData(target).save());
+        setGems(null, target, amount);
     }
 
     /**
@@ -252,8 +450,11 @@ public class SimpleGemsAPI {
         if (event.isCancelled())
             return;
 
+        long previous = getProfileData(target).getGems().getUnits();
+
         getProfileData(target).getGems().setAmount(amount);
-        Tasks.runAsync(() -> getProfileData(target).save());
+        getProfileData(target).save();
+        record(player, target, getProfileData(target).getGems().getUnits() - previous, LedgerReason.SET);
     }
 
     /**
@@ -266,6 +467,17 @@ public class SimpleGemsAPI {
         Methods.setOfflineGems(player, amount);
     }
 
+    /**
+     * Used to set an offline player gems.
+     *
+     * @param player the player who received the gems
+     * @param amount amount of gems to set
+     * @return a future completed once the gems have been stored
+     */
+    public CompletableFuture<Void> setOfflineGemsAsync(OfflinePlayer player, double amount) {
+        return Methods.setOfflineGems(player, amount);
+    }
+
     /**
      * Used to pay the target player gems
      * from the player's account.
@@ -302,6 +514,22 @@ public class SimpleGemsAPI {
         Methods.payOfflineGems(player, target, amount);
     }
 
+    /**
+     * Used to pay the target offline player gems from the player's account
+     * without sending any messages. The gems are refunded if the target has no data or the write failed.
+     *
+     * @param player the player who paid the gems
+     * @param target the player who received the gems
+     * @param amount amount of gems to pay
+     * @return a future completed with true if the payment went through
+     */
+    public CompletableFuture<Boolean> payOfflineGemsAsync(Player player, OfflinePlayer target, double amount) {
+        if (getProfileData(player) == null || !tryTakeGems(player, player, amount, LedgerReason.PAY))
+            return CompletableFuture.completedFuture(false);
+
+        return Methods.giveOfflinePayment(player, target, amount);
+    }
+
     /**
      * Used to withdraw player gems into an item form.
      * <p>
@@ -344,7 +572,14 @@ public class SimpleGemsAPI {
             return;
 
         getProfileData(player).getGems().incrementAmount(amount);
-        Tasks.runAsync(() -> getProfileData(player).save());
+        getProfileData(player).save();
+        record(player, player, GemAmount.toUnits(amount), LedgerReason.DEPOSIT);
+    }
+
+    // The delta is in units
+    private void record(Player player, Player target, long delta, LedgerReason reason) {
+        SimpleGems.getInstance().getLedgerManager().record(player == null ? null : player.getUniqueId(),
+                target.getUniqueId(), delta, reason, getProfileData(target).getGems().getUnits());
     }
 
 }
\ No newline at end of file
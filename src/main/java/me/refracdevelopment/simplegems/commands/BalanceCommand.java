@@ -3,9 +3,9 @@ package me.refracdevelopment.simplegems.commands;
 import me.refracdevelopment.simplegems.SimpleGems;
 import me.refracdevelopment.simplegems.utilities.Methods;
 import me.refracdevelopment.simplegems.utilities.Permissions;
+import me.refracdevelopment.simplegems.utilities.Tasks;
 import me.refracdevelopment.simplegems.utilities.chat.Placeholders;
 import me.refracdevelopment.simplegems.utilities.chat.RyMessageUtils;
-import me.refracdevelopment.simplegems.utilities.chat.StringPlaceholders;
 import me.refracdevelopment.simplegems.utilities.command.SubCommand;
 import org.bukkit.Bukkit;
 import org.bukkit.OfflinePlayer;
@@ -55,19 +55,18 @@ public class BalanceCommand extends SubCommand {
         if (Bukkit.getPlayer(args[1]) != null) {
             Player target = Bukkit.getPlayer(args[1]);
             RyMessageUtils.sendPluginMessage(commandSender, "gems-balance", Placeholders.setPlaceholders(target));
-        } else if (Bukkit.getOfflinePlayer(args[1]) != null && Bukkit.getOfflinePlayer(args[0]).hasPlayedBefore()) {
+        } else if (Bukkit.getOfflinePlayer(args[1]).hasPlayedBefore()) {
             OfflinePlayer target = Bukkit.getOfflinePlayer(args[1]);
-            double amount = SimpleGems.getInstance().getGemsAPI().getOfflineGems(target);
 
-            StringPlaceholders placeholders = StringPlaceholders.builder()
-                    .addAll(Placeholders.setOfflinePlaceholders(target))
-                    .add("player", target.getName())
-                    .add("gems", String.valueOf(amount))
-                    .add("gems_formatted", Methods.format(amount))
-                    .add("gems_decimal", Methods.formatDecimal(amount))
-                    .build();
+            Methods.getOfflineUnitsAsync(target).whenCompleteAsync((units, throwable) -> {
+                if (throwable != null) {
+                    throwable.printStackTrace();
+                    RyMessageUtils.sendPluginMessage(commandSender, "storage-failed", Placeholders.setOfflinePlaceholders(target));
+                    return;
+                }
 
-            RyMessageUtils.sendPluginMessage(commandSender, "gems-balance", placeholders);
+                RyMessageUtils.sendPluginMessage(commandSender, "gems-balance", Placeholders.setOfflinePlaceholders(target, units));
+            }, Tasks.mainThread());
         } else
             RyMessageUtils.sendPluginMessage(commandSender, "invalid-player");
     }
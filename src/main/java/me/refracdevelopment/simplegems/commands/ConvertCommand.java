@@ -0,0 +1,99 @@
+package me.refracdevelopment.simplegems.commands;
+
+import me.refracdevelopment.simplegems.SimpleGems;
+import me.refracdevelopment.simplegems.managers.data.DataConverter;
+import me.refracdevelopment.simplegems.managers.data.DataType;
+import me.refracdevelopment.simplegems.utilities.Permissions;
+import me.refracdevelopment.simplegems.utilities.Tasks;
+import me.refracdevelopment.simplegems.utilities.chat.RyMessageUtils;
+import me.refracdevelopment.simplegems.utilities.chat.StringPlaceholders;
+import me.refracdevelopment.simplegems.utilities.command.SubCommand;
+import org.bukkit.command.CommandSender;
+import org.bukkit.entity.Player;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+public class ConvertCommand extends SubCommand {
+
+    @Override
+    public String getName() {
+        return SimpleGems.getInstance().getCommands().CONVERT_COMMAND_NAME;
+    }
+
+    @Override
+    public List<String> getAliases() {
+        return SimpleGems.getInstance().getCommands().CONVERT_COMMAND_ALIASES;
+    }
+
+    @Override
+    public String getDescription() {
+        return SimpleGems.getInstance().getLocaleFile().getString("command-convert-description");
+    }
+
+    @Override
+    public String getSyntax() {
+        return "<import|export> <mysql|sqlite>";
+    }
+
+    @Override
+    public void perform(CommandSender commandSender, String[] args) {
+        if (!commandSender.hasPermission(Permissions.GEMS_CONVERT_COMMAND)) {
+            RyMessageUtils.sendPluginMessage(commandSender, "no-permission");
+            return;
+        }
+
+        if (args.length != 3 || !(args[1].equalsIgnoreCase("import") || args[1].equalsIgnoreCase("export"))
+                || !(args[2].equalsIgnoreCase("mysql") || args[2].equalsIgnoreCase("sqlite"))) {
+            String baseColor = SimpleGems.getInstance().getLocaleFile().getString("base-command-color");
+            RyMessageUtils.sendSender(commandSender, baseColor + "/" + SimpleGems.getInstance().getCommands().GEMS_COMMAND_NAME + " " + getName() + " " + getSyntax());
+            return;
+        }
+
+        if (SimpleGems.getInstance().getDataType() != DataType.MAPPED) {
+            RyMessageUtils.sendPluginMessage(commandSender, "convert-unavailable");
+            return;
+        }
+
+        DataConverter converter = new DataConverter(SimpleGems.getInstance().getMappedManager());
+        DataType type = args[2].equalsIgnoreCase("mysql") ? DataType.MYSQL : DataType.SQLITE;
+        CompletableFuture<Integer> future;
+
+        RyMessageUtils.sendPluginMessage(commandSender, "convert-started");
+
+        if (args[1].equalsIgnoreCase("import"))
+            future = converter.importFrom(type);
+        else
+            future = converter.exportTo(type);
+
+        future.whenCompleteAsync((amount, throwable) -> {
+            if (throwable != null) {
+                throwable.printStackTrace();
+                RyMessageUtils.sendPluginMessage(commandSender, "convert-failed");
+                return;
+            }
+
+            // Imported balances may have changed the top
+            if (args[1].equalsIgnoreCase("import")) {
+                SimpleGems.getInstance().getProfileManager().evictAll();
+                SimpleGems.getInstance().getLeaderboardManager().reloadRanks();
+                SimpleGems.getInstance().getLeaderboardManager().update();
+            }
+
+            RyMessageUtils.sendPluginMessage(commandSender, "convert-finished", StringPlaceholders.builder()
+                    .add("amount", String.valueOf(amount))
+                    .build());
+        }, Tasks.mainThread());
+    }
+
+    @Override
+    public List<String> getSubcommandArguments(Player player, String[] args) {
+        if (args.length == 2)
+            return List.of("import", "export");
+
+        if (args.length == 3)
+            return List.of("mysql", "sqlite");
+
+        return null;
+    }
+}
@@ -0,0 +1,91 @@
+package me.refracdevelopment.simplegems.commands;
+
+import me.refracdevelopment.simplegems.SimpleGems;
+import me.refracdevelopment.simplegems.managers.data.DataTransfer;
+import me.refracdevelopment.simplegems.managers.data.DataType;
+import me.refracdevelopment.simplegems.utilities.Permissions;
+import me.refracdevelopment.simplegems.utilities.Tasks;
+import me.refracdevelopment.simplegems.utilities.chat.RyMessageUtils;
+import me.refracdevelopment.simplegems.utilities.chat.StringPlaceholders;
+import me.refracdevelopment.simplegems.utilities.command.SubCommand;
+import org.bukkit.command.CommandSender;
+import org.bukkit.entity.Player;
+
+import java.io.File;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.List;
+
+public class ExportCommand extends SubCommand {
+
+    @Override
+    public String getName() {
+        return SimpleGems.getInstance().getCommands().EXPORT_COMMAND_NAME;
+    }
+
+    @Override
+    public List<String> getAliases() {
+        return SimpleGems.getInstance().getCommands().EXPORT_COMMAND_ALIASES;
+    }
+
+    @Override
+    public String getDescription() {
+        return SimpleGems.getInstance().getLocaleFile().getString("command-export-description");
+    }
+
+    @Override
+    public String getSyntax() {
+        return "<csv|json>";
+    }
+
+    @Override
+    public void perform(CommandSender commandSender, String[] args) {
+        if (!commandSender.hasPermission(Permissions.GEMS_EXPORT_COMMAND)) {
+            RyMessageUtils.sendPluginMessage(commandSender, "no-permission");
+            return;
+        }
+
+        if (args.length != 2 || !(args[1].equalsIgnoreCase("csv") || args[1].equalsIgnoreCase("json"))) {
+            String baseColor = SimpleGems.getInstance().getLocaleFile().getString("base-command-color");
+            RyMessageUtils.sendSender(commandSender, baseColor + "/" + SimpleGems.getInstance().getCommands().GEMS_COMMAND_NAME + " " + getName() + " " + getSyntax());
+            return;
+        }
+
+        if (SimpleGems.getInstance().getDataType() == DataType.MAPPED) {
+            RyMessageUtils.sendPluginMessage(commandSender, "transfer-unavailable");
+            return;
+        }
+
+        DataTransfer.Format format = args[1].equalsIgnoreCase("json") ? DataTransfer.Format.JSON : DataTransfer.Format.CSV;
+        File folder = DataTransfer.getFolder();
+        folder.mkdirs();
+
+        File file = new File(folder, "gems-" + new SimpleDateFormat("yyyy-MM-dd-HHmmss").format(new Date()) + "." + format.getExtension());
+
+        RyMessageUtils.sendPluginMessage(commandSender, "transfer-started");
+
+        // Make sure balances still waiting to be written are part of the export
+        SimpleGems.getInstance().getWriteBehindBuffer().flush()
+                .thenCompose(ignored -> new DataTransfer(SimpleGems.getInstance().getDataType()).exportTo(file, rows -> Tasks.run(() ->
+                        RyMessageUtils.sendPluginMessage(commandSender, "transfer-progress", StringPlaceholders.of("amount", String.valueOf(rows))))))
+                .whenCompleteAsync((rows, throwable) -> {
+                    if (throwable != null) {
+                        RyMessageUtils.sendPluginMessage(commandSender, "transfer-failed");
+                        return;
+                    }
+
+                    RyMessageUtils.sendPluginMessage(commandSender, "export-finished", StringPlaceholders.builder()
+                            .add("amount", String.valueOf(rows))
+                            .add("file", file.getName())
+                            .build());
+                }, Tasks.mainThread());
+    }
+
+    @Override
+    public List<String> getSubcommandArguments(Player player, String[] args) {
+        if (args.length == 2)
+            return List.of("csv", "json");
+
+        return null;
+    }
+}
@@ -0,0 +1,121 @@
+package me.refracdevelopment.simplegems.commands;
+
+import com.google.common.base.Joiner;
+import me.refracdevelopment.simplegems.SimpleGems;
+import me.refracdevelopment.simplegems.utilities.Methods;
+import me.refracdevelopment.simplegems.utilities.Permissions;
+import me.refracdevelopment.simplegems.utilities.Tasks;
+import me.refracdevelopment.simplegems.utilities.chat.Placeholders;
+import me.refracdevelopment.simplegems.utilities.chat.RyMessageUtils;
+import me.refracdevelopment.simplegems.utilities.chat.StringPlaceholders;
+import me.refracdevelopment.simplegems.utilities.command.SubCommand;
+import org.bukkit.Bukkit;
+import org.bukkit.command.CommandSender;
+import org.bukkit.entity.Player;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+public class GiveAllCommand extends SubCommand {
+
+    private static final String PERMISSION_PREFIX = "permission:";
+
+    @Override
+    public String getName() {
+        return SimpleGems.getInstance().getCommands().GIVE_ALL_COMMAND_NAME;
+    }
+
+    @Override
+    public List<String> getAliases() {
+        return SimpleGems.getInstance().getCommands().GIVE_ALL_COMMAND_ALIASES;
+    }
+
+    @Override
+    public String getDescription() {
+        return SimpleGems.getInstance().getLocaleFile().getString("command-giveall-description");
+    }
+
+    @Override
+    public String getSyntax() {
+        return "<online|all|permission:<node>> <amount> [-s]";
+    }
+
+    @Override
+    public void perform(CommandSender commandSender, String[] args) {
+        if (!commandSender.hasPermission(Permissions.GEMS_GIVE_ALL_COMMAND)) {
+            RyMessageUtils.sendPluginMessage(commandSender, "no-permission");
+            return;
+        }
+
+        String target = args.length >= 3 ? args[1].toLowerCase() : "";
+
+        if (!target.equals("online") && !target.equals("all") && !target.startsWith(PERMISSION_PREFIX)) {
+            String baseColor = SimpleGems.getInstance().getLocaleFile().getString("base-command-color");
+            RyMessageUtils.sendSender(commandSender, baseColor + "/" + SimpleGems.getInstance().getCommands().GEMS_COMMAND_NAME + " " + getName() + " " + getSyntax());
+            return;
+        }
+
+        long amount;
+
+        try {
+            amount = Long.parseLong(args[2]);
+        } catch (NumberFormatException exception) {
+            RyMessageUtils.sendPluginMessage(commandSender, "invalid-number", Placeholders.setPlaceholders(commandSender));
+            return;
+        }
+
+        if (amount <= 0) {
+            RyMessageUtils.sendPluginMessage(commandSender, "invalid-number", Placeholders.setPlaceholders(commandSender));
+            return;
+        }
+
+        boolean silent = Joiner.on(" ").join(args).contains("-s");
+        CompletableFuture<Integer> future;
+
+        if (target.equals("all"))
+            future = SimpleGems.getInstance().getGemsAPI().giveAllGems(amount);
+        else {
+            // Permissions can only be checked for players that are online
+            String node = target.startsWith(PERMISSION_PREFIX) ? args[1].substring(PERMISSION_PREFIX.length()) : null;
+            List<UUID> uuids = new ArrayList<>();
+
+            for (Player player : Bukkit.getOnlinePlayers()) {
+                if (node == null || player.hasPermission(node))
+                    uuids.add(player.getUniqueId());
+            }
+
+            future = SimpleGems.getInstance().getGemsAPI().giveGemsBulk(uuids, amount).thenApply(ignored -> uuids.size());
+        }
+
+        future.whenCompleteAsync((players, throwable) -> {
+            if (throwable != null) {
+                RyMessageUtils.sendConsole(true, "An error occurred while giving gems to " + target + ".");
+                throwable.printStackTrace();
+                return;
+            }
+
+            if (silent)
+                return;
+
+            StringPlaceholders placeholders = StringPlaceholders.builder()
+                    .addAll(Placeholders.setPlaceholders(commandSender))
+                    .add("gems", String.valueOf(amount))
+                    .add("gems_formatted", Methods.format(amount))
+                    .add("gems_decimal", Methods.formatDecimal(amount))
+                    .add("amount", String.valueOf(players))
+                    .build();
+
+            RyMessageUtils.sendPluginMessage(commandSender, "gems-given-bulk", placeholders);
+        }, Tasks.mainThread());
+    }
+
+    @Override
+    public List<String> getSubcommandArguments(Player player, String[] args) {
+        if (args.length == 2)
+            return List.of("online", "all", PERMISSION_PREFIX);
+
+        return null;
+    }
+}
@@ -60,7 +60,7 @@ public class GiveCommand extends SubCommand {
 
         String message = Joiner.on(" ").join(args);
 
-        OfflinePlayer target = Bukkit.getOfflinePlayer(args[1]);
+        OfflinePlayer target = Methods.getOfflinePlayer(args[1]);
 
         if (target.isOnline()) {
             Player targetPlayer = target.getPlayer();
@@ -0,0 +1,117 @@
+package me.refracdevelopment.simplegems.commands;
+
+import me.refracdevelopment.simplegems.SimpleGems;
+import me.refracdevelopment.simplegems.managers.data.DataTransfer;
+import me.refracdevelopment.simplegems.managers.data.DataType;
+import me.refracdevelopment.simplegems.player.Profile;
+import me.refracdevelopment.simplegems.utilities.Permissions;
+import me.refracdevelopment.simplegems.utilities.Tasks;
+import me.refracdevelopment.simplegems.utilities.chat.RyMessageUtils;
+import me.refracdevelopment.simplegems.utilities.chat.StringPlaceholders;
+import me.refracdevelopment.simplegems.utilities.command.SubCommand;
+import org.bukkit.Bukkit;
+import org.bukkit.command.CommandSender;
+import org.bukkit.entity.Player;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+public class ImportCommand extends SubCommand {
+
+    @Override
+    public String getName() {
+        return SimpleGems.getInstance().getCommands().IMPORT_COMMAND_NAME;
+    }
+
+    @Override
+    public List<String> getAliases() {
+        return SimpleGems.getInstance().getCommands().IMPORT_COMMAND_ALIASES;
+    }
+
+    @Override
+    public String getDescription() {
+        return SimpleGems.getInstance().getLocaleFile().getString("command-import-description");
+    }
+
+    @Override
+    public String getSyntax() {
+        return "<file>";
+    }
+
+    @Override
+    public void perform(CommandSender commandSender, String[] args) {
+        if (!commandSender.hasPermission(Permissions.GEMS_IMPORT_COMMAND)) {
+            RyMessageUtils.sendPluginMessage(commandSender, "no-permission");
+            return;
+        }
+
+        if (args.length != 2) {
+            String baseColor = SimpleGems.getInstance().getLocaleFile().getString("base-command-color");
+            RyMessageUtils.sendSender(commandSender, baseColor + "/" + SimpleGems.getInstance().getCommands().GEMS_COMMAND_NAME + " " + getName() + " " + getSyntax());
+            return;
+        }
+
+        if (SimpleGems.getInstance().getDataType() == DataType.MAPPED) {
+            RyMessageUtils.sendPluginMessage(commandSender, "transfer-unavailable");
+            return;
+        }
+
+        // Only files directly inside the exports folder can be imported
+        File file = new File(DataTransfer.getFolder(), new File(args[1]).getName());
+
+        if (!file.isFile()) {
+            RyMessageUtils.sendPluginMessage(commandSender, "import-not-found", StringPlaceholders.of("file", args[1]));
+            return;
+        }
+
+        RyMessageUtils.sendPluginMessage(commandSender, "transfer-started");
+
+        // Pending balances are written first so they can't overwrite the imported ones afterwards
+        SimpleGems.getInstance().getWriteBehindBuffer().flush()
+                .thenCompose(ignored -> new DataTransfer(SimpleGems.getInstance().getDataType()).importFrom(file, rows -> Tasks.run(() ->
+                        RyMessageUtils.sendPluginMessage(commandSender, "transfer-progress", StringPlaceholders.of("amount", String.valueOf(rows))))))
+                .whenCompleteAsync((rows, throwable) -> {
+                    if (throwable != null) {
+                        RyMessageUtils.sendPluginMessage(commandSender, "transfer-failed");
+                        return;
+                    }
+
+                    SimpleGems.getInstance().getProfileManager().evictAll();
+                    SimpleGems.getInstance().getProfileManager().getOfflineCache().clear();
+
+                    // Online players are reloaded, their profile would otherwise save the old balance again
+                    for (Player player : Bukkit.getOnlinePlayers()) {
+                        Profile profile = SimpleGems.getInstance().getProfileManager().getProfile(player.getUniqueId());
+
+                        if (profile != null && profile.getData() != null)
+                            SimpleGems.getInstance().getProfileManager().load(player.getUniqueId(), player.getName());
+                    }
+
+                    SimpleGems.getInstance().getLeaderboardManager().reloadRanks();
+                    SimpleGems.getInstance().getLeaderboardManager().update();
+
+                    RyMessageUtils.sendPluginMessage(commandSender, "import-finished", StringPlaceholders.builder()
+                            .add("amount", String.valueOf(rows))
+                            .add("file", file.getName())
+                            .build());
+                }, Tasks.mainThread());
+    }
+
+    @Override
+    public List<String> getSubcommandArguments(Player player, String[] args) {
+        List<String> files = new ArrayList<>();
+
+        if (args.length != 2)
+            return null;
+
+        File[] listed = DataTransfer.getFolder().listFiles(File::isFile);
+
+        if (listed != null) {
+            for (File file : listed)
+                files.add(file.getName());
+        }
+
+        return files;
+    }
+}
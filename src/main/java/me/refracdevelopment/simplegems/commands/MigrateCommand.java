@@ -0,0 +1,94 @@
+package me.refracdevelopment.simplegems.commands;
+
+import me.refracdevelopment.simplegems.SimpleGems;
+import me.refracdevelopment.simplegems.managers.data.DataMigration;
+import me.refracdevelopment.simplegems.managers.data.DataType;
+import me.refracdevelopment.simplegems.utilities.Permissions;
+import me.refracdevelopment.simplegems.utilities.chat.RyMessageUtils;
+import me.refracdevelopment.simplegems.utilities.chat.StringPlaceholders;
+import me.refracdevelopment.simplegems.utilities.command.SubCommand;
+import org.bukkit.command.CommandSender;
+import org.bukkit.entity.Player;
+
+import java.util.List;
+
+public class MigrateCommand extends SubCommand {
+
+    @Override
+    public String getName() {
+        return SimpleGems.getInstance().getCommands().MIGRATE_COMMAND_NAME;
+    }
+
+    @Override
+    public List<String> getAliases() {
+        return SimpleGems.getInstance().getCommands().MIGRATE_COMMAND_ALIASES;
+    }
+
+    @Override
+    public String getDescription() {
+        return SimpleGems.getInstance().getLocaleFile().getString("command-migrate-description");
+    }
+
+    @Override
+    public String getSyntax() {
+        return "<start|status|cancel>";
+    }
+
+    @Override
+    public void perform(CommandSender commandSender, String[] args) {
+        if (!commandSender.hasPermission(Permissions.GEMS_MIGRATE_COMMAND)) {
+            RyMessageUtils.sendPluginMessage(commandSender, "no-permission");
+            return;
+        }
+
+        if (args.length != 2 || !(args[1].equalsIgnoreCase("start") || args[1].equalsIgnoreCase("status") || args[1].equalsIgnoreCase("cancel"))) {
+            String baseColor = SimpleGems.getInstance().getLocaleFile().getString("base-command-color");
+            RyMessageUtils.sendSender(commandSender, baseColor + "/" + SimpleGems.getInstance().getCommands().GEMS_COMMAND_NAME + " " + getName() + " " + getSyntax());
+            return;
+        }
+
+        if (SimpleGems.getInstance().getDataType() != DataType.SQLITE) {
+            RyMessageUtils.sendPluginMessage(commandSender, "migrate-unavailable");
+            return;
+        }
+
+        DataMigration migration = SimpleGems.getInstance().getDataMigration();
+
+        switch (args[1].toLowerCase()) {
+            case "start":
+                if (migration.isRunning()) {
+                    RyMessageUtils.sendPluginMessage(commandSender, "migrate-running");
+                    return;
+                }
+
+                if (!migration.start()) {
+                    RyMessageUtils.sendPluginMessage(commandSender, "migrate-connect-failed");
+                    return;
+                }
+
+                RyMessageUtils.sendPluginMessage(commandSender, "migrate-started");
+                break;
+            case "cancel":
+                migration.cancel();
+                RyMessageUtils.sendPluginMessage(commandSender, "migrate-cancelled");
+                break;
+            default:
+                RyMessageUtils.sendPluginMessage(commandSender, "migrate-status", StringPlaceholders.builder()
+                        .add("state", migration.isFailed() ? "FAILED" : migration.getState().name())
+                        .add("copied", String.valueOf(migration.getCopied()))
+                        .add("verified", String.valueOf(migration.getVerified()))
+                        .add("repaired", String.valueOf(migration.getRepaired()))
+                        .add("mirrored", String.valueOf(migration.getMirrored()))
+                        .build());
+                break;
+        }
+    }
+
+    @Override
+    public List<String> getSubcommandArguments(Player player, String[] args) {
+        if (args.length == 2)
+            return List.of("start", "status", "cancel");
+
+        return null;
+    }
+}
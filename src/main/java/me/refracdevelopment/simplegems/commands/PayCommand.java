@@ -2,6 +2,7 @@ package me.refracdevelopment.simplegems.commands;
 
 import com.google.common.base.Joiner;
 import me.refracdevelopment.simplegems.SimpleGems;
+import me.refracdevelopment.simplegems.utilities.Methods;
 import me.refracdevelopment.simplegems.utilities.Permissions;
 import me.refracdevelopment.simplegems.utilities.chat.Placeholders;
 import me.refracdevelopment.simplegems.utilities.chat.RyMessageUtils;
@@ -58,7 +59,7 @@ public class PayCommand extends SubCommand {
 
         String message = Joiner.on(" ").join(args);
 
-        OfflinePlayer target = Bukkit.getOfflinePlayer(args[1]);
+        OfflinePlayer target = Methods.getOfflinePlayer(args[1]);
 
         if (!player.hasPermission(Permissions.GEMS_PAY_COMMAND)) {
             RyMessageUtils.sendPluginMessage(commandSender, "no-permission");
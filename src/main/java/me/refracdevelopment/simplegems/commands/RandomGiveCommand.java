@@ -47,7 +47,7 @@ public class RandomGiveCommand extends SubCommand {
 
         String message = Joiner.on(" ").join(args);
 
-        OfflinePlayer target = Bukkit.getOfflinePlayer(args[1]);
+        OfflinePlayer target = Methods.getOfflinePlayer(args[1]);
 
         if (!commandSender.hasPermission(Permissions.GEMS_GIVE_COMMAND)) {
             RyMessageUtils.sendSender(commandSender, "no-permission");
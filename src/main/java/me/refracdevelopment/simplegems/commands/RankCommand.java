@@ -0,0 +1,87 @@
+package me.refracdevelopment.simplegems.commands;
+
+import me.refracdevelopment.simplegems.SimpleGems;
+import me.refracdevelopment.simplegems.utilities.Permissions;
+import me.refracdevelopment.simplegems.utilities.chat.RyMessageUtils;
+import me.refracdevelopment.simplegems.utilities.chat.StringPlaceholders;
+import me.refracdevelopment.simplegems.utilities.command.SubCommand;
+import org.bukkit.Bukkit;
+import org.bukkit.OfflinePlayer;
+import org.bukkit.command.CommandSender;
+import org.bukkit.entity.Player;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class RankCommand extends SubCommand {
+
+    @Override
+    public String getName() {
+        return SimpleGems.getInstance().getCommands().RANK_COMMAND_NAME;
+    }
+
+    @Override
+    public List<String> getAliases() {
+        return SimpleGems.getInstance().getCommands().RANK_COMMAND_ALIASES;
+    }
+
+    @Override
+    public String getDescription() {
+        return SimpleGems.getInstance().getLocaleFile().getString("command-rank-description");
+    }
+
+    @Override
+    public String getSyntax() {
+        return "[player]";
+    }
+
+    @Override
+    public void perform(CommandSender commandSender, String[] args) {
+        if (!commandSender.hasPermission(Permissions.GEMS_RANK_COMMAND)) {
+            RyMessageUtils.sendPluginMessage(commandSender, "no-permission");
+            return;
+        }
+
+        OfflinePlayer target;
+
+        if (args.length != 2) {
+            if (!(commandSender instanceof Player player))
+                return;
+
+            target = player;
+        } else if (Bukkit.getPlayer(args[1]) != null) {
+            target = Bukkit.getPlayer(args[1]);
+        } else if (Bukkit.getOfflinePlayer(args[1]).hasPlayedBefore()) {
+            target = Bukkit.getOfflinePlayer(args[1]);
+        } else {
+            RyMessageUtils.sendPluginMessage(commandSender, "invalid-player");
+            return;
+        }
+
+        int rank = SimpleGems.getInstance().getGemsAPI().getRank(target);
+        StringPlaceholders placeholders = StringPlaceholders.builder()
+                .add("player", target.getName())
+                .add("rank", String.valueOf(rank))
+                .add("total", String.valueOf(SimpleGems.getInstance().getLeaderboardManager().getRankIndex().size()))
+                .build();
+
+        if (rank == 0) {
+            RyMessageUtils.sendPluginMessage(commandSender, "no-rank-data", placeholders);
+            return;
+        }
+
+        RyMessageUtils.sendPluginMessage(commandSender, "gems-rank", placeholders);
+    }
+
+    @Override
+    public List<String> getSubcommandArguments(Player player, String[] args) {
+        List<String> names = new ArrayList<>();
+
+        Bukkit.getOnlinePlayers().forEach(p -> names.add(p.getName()));
+
+        if (args.length == 2)
+            return names;
+
+        return null;
+    }
+}
@@ -43,6 +43,17 @@ public class ReloadCommand extends SubCommand {
         reloadFiles();
         SimpleGems.getInstance().getGemShop().setupCustomMenuData();
         SimpleGems.getInstance().getLeaderboardManager().updateTask();
+        SimpleGems.getInstance().getWriteBehindBuffer().flushTask();
+        SimpleGems.getInstance().getLedgerManager().flushTask();
+        SimpleGems.getInstance().getProfileManager().evictionTask();
+        // Runs on its own thread, only the interval has to be picked up
+        SimpleGems.getInstance().getAutosaveManager().autosaveTask();
+
+        if (SimpleGems.getInstance().getMappedManager() != null)
+            SimpleGems.getInstance().getMappedManager().forceTask();
+
+        if (SimpleGems.getInstance().getDataMigration() != null)
+            SimpleGems.getInstance().getDataMigration().mirrorTask();
         RyMessageUtils.sendPluginMessage(commandSender, "command-reload-success");
     }
 
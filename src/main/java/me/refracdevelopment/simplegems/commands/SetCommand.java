@@ -54,7 +54,7 @@ public class SetCommand extends SubCommand {
 
         String message = Joiner.on(" ").join(args);
 
-        OfflinePlayer target = Bukkit.getOfflinePlayer(args[1]);
+        OfflinePlayer target = Methods.getOfflinePlayer(args[1]);
 
         if (!commandSender.hasPermission(Permissions.GEMS_SET_COMMAND)) {
             RyMessageUtils.sendPluginMessage(commandSender, "no-permission");
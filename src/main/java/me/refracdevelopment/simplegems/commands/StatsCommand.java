@@ -0,0 +1,150 @@
+package me.refracdevelopment.simplegems.commands;
+
+import com.zaxxer.hikari.HikariPoolMXBean;
+import me.refracdevelopment.simplegems.SimpleGems;
+import me.refracdevelopment.simplegems.managers.OfflineCache;
+import me.refracdevelopment.simplegems.managers.ProfileManager;
+import me.refracdevelopment.simplegems.managers.data.*;
+import me.refracdevelopment.simplegems.utilities.Permissions;
+import me.refracdevelopment.simplegems.utilities.chat.RyMessageUtils;
+import me.refracdevelopment.simplegems.utilities.command.SubCommand;
+import org.bukkit.command.CommandSender;
+import org.bukkit.entity.Player;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+public class StatsCommand extends SubCommand {
+
+    private static final int MAX_QUERIES = 10;
+    private static final int MAX_QUERY_LENGTH = 60;
+
+    @Override
+    public String getName() {
+        return SimpleGems.getInstance().getCommands().STATS_COMMAND_NAME;
+    }
+
+    @Override
+    public List<String> getAliases() {
+        return SimpleGems.getInstance().getCommands().STATS_COMMAND_ALIASES;
+    }
+
+    @Override
+    public String getDescription() {
+        return SimpleGems.getInstance().getLocaleFile().getString("command-stats-description");
+    }
+
+    @Override
+    public String getSyntax() {
+        return "";
+    }
+
+    @Override
+    public void perform(CommandSender commandSender, String[] args) {
+        if (!commandSender.hasPermission(Permissions.GEMS_STATS_COMMAND)) {
+            RyMessageUtils.sendPluginMessage(commandSender, "no-permission");
+            return;
+        }
+
+        String baseColor = SimpleGems.getInstance().getLocaleFile().getString("base-command-color");
+        StorageExecutor executor = SimpleGems.getInstance().getStorageExecutor();
+
+        RyMessageUtils.sendSender(commandSender, baseColor + "Storage (" + SimpleGems.getInstance().getDataType().name().toLowerCase() + "):");
+
+        for (StorageOperation operation : StorageOperation.values()) {
+            StorageMetrics metrics = executor.getMetrics(operation);
+
+            RyMessageUtils.sendSender(commandSender, "&8 - &d" + operation.name().toLowerCase()
+                    + " &7queued: &f" + executor.getQueueDepth(operation)
+                    + " &7active: &f" + executor.getActiveCount(operation)
+                    + " &7done: &f" + metrics.getCompleted()
+                    + " &7failed: &f" + metrics.getFailed()
+                    + " &7rejected: &f" + metrics.getRejected()
+                    + " &7wait: &f" + String.format("%.2f", metrics.getAverageWaitMillis()) + "ms avg"
+                    + " &7/ &f" + String.format("%.2f", metrics.getMaxWaitMillis()) + "ms max", false);
+        }
+
+        RyMessageUtils.sendSender(commandSender, "&8 - &dunsaved balances&7: &f" + SimpleGems.getInstance().getWriteBehindBuffer().getPendingCount(), false);
+        RyMessageUtils.sendSender(commandSender, "&8 - &dprofiles awaiting autosave&7: &f" + SimpleGems.getInstance().getAutosaveManager().getDirtyCount(), false);
+        OfflineCache offlineCache = SimpleGems.getInstance().getProfileManager().getOfflineCache();
+        RyMessageUtils.sendSender(commandSender, "&8 - &doffline cache &7size: &f" + offlineCache.size()
+                + " &7hits: &f" + offlineCache.getHits()
+                + " &7misses: &f" + offlineCache.getMisses(), false);
+        RyMessageUtils.sendSender(commandSender, "&8 - &dunwritten ledger entries&7: &f" + SimpleGems.getInstance().getLedgerManager().getPendingCount(), false);
+        RyMessageUtils.sendSender(commandSender, "&8 - &ddropped ledger entries&7: &f" + SimpleGems.getInstance().getLedgerManager().getDroppedCount(), false);
+        ProfileManager profileManager = SimpleGems.getInstance().getProfileManager();
+        LatencyRecorder loadLatency = profileManager.getLoadLatency();
+        RyMessageUtils.sendSender(commandSender, "&8 - &dprofile loads &7loading: &f" + profileManager.getLoadingCount()
+                + " &7done: &f" + loadLatency.getCount()
+                + " &7failed: &f" + profileManager.getLoadFailures()
+                + " &7timed out: &f" + profileManager.getLoadTimeouts()
+                + " &7p50: &f" + String.format("%.2f", loadLatency.getDuration(50)) + "ms"
+                + " &7p99: &f" + String.format("%.2f", loadLatency.getDuration(99)) + "ms", false);
+        RyMessageUtils.sendSender(commandSender, "&8 - &dprofiles &7cached: &f" + profileManager.getProfiles().size()
+                + " &7idle: &f" + profileManager.getIdleCount()
+                + " &7reconnects: &f" + profileManager.getGraceHits()
+                + " &7evicted: &f" + profileManager.getEvictions(), false);
+
+        switch (SimpleGems.getInstance().getDataType()) {
+            case MYSQL:
+                HikariPoolMXBean pool = SimpleGems.getInstance().getMySQLManager().getPoolStats();
+
+                if (pool != null)
+                    RyMessageUtils.sendSender(commandSender, "&8 - &dpool &7active: &f" + pool.getActiveConnections()
+                            + " &7idle: &f" + pool.getIdleConnections()
+                            + " &7total: &f" + pool.getTotalConnections()
+                            + " &7waiting: &f" + pool.getThreadsAwaitingConnection(), false);
+
+                HikariPoolMXBean replica = SimpleGems.getInstance().getMySQLManager().getReplicaPoolStats();
+
+                if (replica != null)
+                    RyMessageUtils.sendSender(commandSender, "&8 - &dreplica pool &7active: &f" + replica.getActiveConnections()
+                            + " &7idle: &f" + replica.getIdleConnections()
+                            + " &7total: &f" + replica.getTotalConnections()
+                            + " &7waiting: &f" + replica.getThreadsAwaitingConnection(), false);
+
+                sendQueries(commandSender, baseColor, SimpleGems.getInstance().getMySQLManager().getQueryMetrics());
+                break;
+            case MAPPED:
+                RyMessageUtils.sendSender(commandSender, "&8 - &dmapped records&7: &f" + SimpleGems.getInstance().getMappedManager().getCount()
+                        + " &7/ &f" + SimpleGems.getInstance().getMappedManager().getCapacity() + " slots", false);
+                break;
+            default:
+                if (SimpleGems.getInstance().getSqLiteManager().getReaders() != null)
+                    RyMessageUtils.sendSender(commandSender, "&8 - &dreaders &7idle: &f" + SimpleGems.getInstance().getSqLiteManager().getReaders().size()
+                            + " &7/ &f" + SimpleGems.getInstance().getSqLiteManager().getReadConnections(), false);
+
+                sendQueries(commandSender, baseColor, SimpleGems.getInstance().getSqLiteManager().getQueryMetrics());
+                break;
+        }
+    }
+
+    // The busiest query templates with their latency percentiles and pool wait
+    private void sendQueries(CommandSender commandSender, String baseColor, QueryMetrics queryMetrics) {
+        RyMessageUtils.sendSender(commandSender, baseColor + "Queries:");
+
+        queryMetrics.getRecorders().entrySet().stream()
+                .sorted(Comparator.comparingLong((Map.Entry<String, LatencyRecorder> entry) -> entry.getValue().getCount()).reversed())
+                .limit(MAX_QUERIES)
+                .forEach(entry -> {
+                    String query = entry.getKey();
+                    LatencyRecorder recorder = entry.getValue();
+
+                    if (query.length() > MAX_QUERY_LENGTH)
+                        query = query.substring(0, MAX_QUERY_LENGTH) + "...";
+
+                    RyMessageUtils.sendSender(commandSender, "&8 - &f" + query
+                            + " &7runs: &f" + recorder.getCount()
+                            + " &7p50: &f" + String.format("%.2f", recorder.getDuration(50)) + "ms"
+                            + " &7p95: &f" + String.format("%.2f", recorder.getDuration(95)) + "ms"
+                            + " &7p99: &f" + String.format("%.2f", recorder.getDuration(99)) + "ms"
+                            + " &7pool wait p95: &f" + String.format("%.2f", recorder.getWait(95)) + "ms", false);
+                });
+    }
+
+    @Override
+    public List<String> getSubcommandArguments(Player player, String[] args) {
+        return List.of();
+    }
+}
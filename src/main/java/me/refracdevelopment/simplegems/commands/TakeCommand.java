@@ -2,8 +2,10 @@ package me.refracdevelopment.simplegems.commands;
 
 import com.google.common.base.Joiner;
 import me.refracdevelopment.simplegems.SimpleGems;
+import me.refracdevelopment.simplegems.managers.ledger.LedgerReason;
 import me.refracdevelopment.simplegems.utilities.Methods;
 import me.refracdevelopment.simplegems.utilities.Permissions;
+import me.refracdevelopment.simplegems.utilities.Tasks;
 import me.refracdevelopment.simplegems.utilities.chat.Placeholders;
 import me.refracdevelopment.simplegems.utilities.chat.RyMessageUtils;
 import me.refracdevelopment.simplegems.utilities.chat.StringPlaceholders;
@@ -54,7 +56,7 @@ public class TakeCommand extends SubCommand {
 
         String message = Joiner.on(" ").join(args);
 
-        OfflinePlayer target = Bukkit.getOfflinePlayer(args[1]);
+        OfflinePlayer target = Methods.getOfflinePlayer(args[1]);
 
         if (!commandSender.hasPermission(Permissions.GEMS_TAKE_COMMAND)) {
             RyMessageUtils.sendPluginMessage(commandSender, "no-permission");
@@ -84,16 +86,13 @@ public class TakeCommand extends SubCommand {
                     .add("gems_decimal", Methods.formatDecimal(amount))
                     .build();
 
-            if (!SimpleGems.getInstance().getGemsAPI().hasGems(targetPlayer, amount)) {
+            if (!SimpleGems.getInstance().getGemsAPI().hasGems(targetPlayer, amount)
+                    || !SimpleGems.getInstance().getGemsAPI().tryTakeGems(commandSender instanceof Player ? (Player) commandSender : null,
+                    targetPlayer, (double)amount, LedgerReason.TAKE)) {
                 RyMessageUtils.sendPluginMessage(commandSender, "invalid-gems", placeholders);
                 return;
             }
 
-            if (commandSender instanceof Player player)
-                SimpleGems.getInstance().getGemsAPI().takeGems(player, targetPlayer, (double)amount);
-            else
-                SimpleGems.getInstance().getGemsAPI().takeGems(targetPlayer, (double)amount);
-
             if (message.contains("-s"))
                 return;
 
@@ -121,17 +120,24 @@ public class TakeCommand extends SubCommand {
                     .add("gems_decimal", Methods.formatDecimal(amount))
                     .build();
 
-            if (!SimpleGems.getInstance().getGemsAPI().hasOfflineGems(target, amount)) {
-                RyMessageUtils.sendPluginMessage(commandSender, "invalid-gems", placeholders);
-                return;
-            }
+            // The balance check and the update are a single statement
+            SimpleGems.getInstance().getGemsAPI().takeOfflineGemsAsync(target, (double)amount).whenCompleteAsync((taken, throwable) -> {
+                if (throwable != null) {
+                    throwable.printStackTrace();
+                    RyMessageUtils.sendPluginMessage(commandSender, "storage-failed", placeholders);
+                    return;
+                }
 
-            SimpleGems.getInstance().getGemsAPI().takeOfflineGems(target, (double)amount);
+                if (!taken) {
+                    RyMessageUtils.sendPluginMessage(commandSender, "invalid-gems", placeholders);
+                    return;
+                }
 
-            if (message.contains("-s"))
-                return;
+                if (message.contains("-s"))
+                    return;
 
-            RyMessageUtils.sendPluginMessage(commandSender, "gems-taken", placeholders);
+                RyMessageUtils.sendPluginMessage(commandSender, "gems-taken", placeholders);
+            }, Tasks.mainThread());
         } else
             RyMessageUtils.sendPluginMessage(commandSender, "invalid-player");
     }
@@ -27,7 +27,7 @@ public class GemsCommandInterceptor implements Listener {
         String command = e.getMessage().toLowerCase();
         
         // Only intercept "gems give" commands
-        if (!command.startsWith("/gems give") && !command.startsWith("gems give")) {
+        if (!command.startsWith("/gems give ") && !command.startsWith("gems give ")) {
             return;
         }
         
@@ -42,7 +42,7 @@ public class GemsCommandInterceptor implements Listener {
         String command = e.getCommand().toLowerCase();
         
         // Only intercept "gems give" commands
-        if (!command.startsWith("gems give")) {
+        if (!command.startsWith("gems give ")) {
             return;
         }
         
@@ -5,30 +5,65 @@ import me.refracdevelopment.simplegems.SimpleGems;
 import me.refracdevelopment.simplegems.player.Profile;
 import me.refracdevelopment.simplegems.utilities.Methods;
 import me.refracdevelopment.simplegems.utilities.Permissions;
-import me.refracdevelopment.simplegems.utilities.Tasks;
 import me.refracdevelopment.simplegems.utilities.chat.Placeholders;
 import me.refracdevelopment.simplegems.utilities.chat.RyMessageUtils;
 import me.refracdevelopment.simplegems.utilities.chat.StringPlaceholders;
 import me.refracdevelopment.simplegems.utilities.exceptions.MenuManagerNotSetupException;
 import me.refracdevelopment.simplegems.utilities.menu.MenuManager;
+import org.bukkit.Bukkit;
 import org.bukkit.entity.ItemFrame;
 import org.bukkit.entity.Player;
 import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
 import org.bukkit.event.Listener;
 import org.bukkit.event.block.Action;
 import org.bukkit.event.player.*;
 import org.bukkit.inventory.ItemStack;
 import org.bukkit.inventory.meta.ItemMeta;
 
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
 public class PlayerListener implements Listener {
 
     @EventHandler
     public void onLogin(AsyncPlayerPreLoginEvent event) {
-        SimpleGems.getInstance().getProfileManager().handleProfileCreation(event.getUniqueId(), event.getName());
+        if (event.getLoginResult() != AsyncPlayerPreLoginEvent.Result.ALLOWED)
+            return;
 
-        Profile profile = SimpleGems.getInstance().getProfileManager().getProfile(event.getUniqueId());
+        long timeout = SimpleGems.getInstance().getSettings().STORAGE_LOGIN_TIMEOUT;
 
-        profile.getData().load();
+        // The player only joins once their stored balance is in, so nothing can change it before it arrives
+        try {
+            SimpleGems.getInstance().getProfileManager().load(event.getUniqueId(), event.getName()).get(timeout, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException exception) {
+            SimpleGems.getInstance().getProfileManager().loadTimedOut();
+            event.disallow(AsyncPlayerPreLoginEvent.Result.KICK_OTHER,
+                    RyMessageUtils.translate(SimpleGems.getInstance().getLocaleFile().getString("kick-messages-timeout")));
+            RyMessageUtils.sendConsole(true, "Player " + event.getName() + " (" + event.getUniqueId() + ") was not able to join due to: data took longer than " + timeout + "ms to load.");
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            event.disallow(AsyncPlayerPreLoginEvent.Result.KICK_OTHER,
+                    RyMessageUtils.translate(SimpleGems.getInstance().getLocaleFile().getString("kick-messages-error")));
+        } catch (ExecutionException exception) {
+            event.disallow(AsyncPlayerPreLoginEvent.Result.KICK_OTHER,
+                    RyMessageUtils.translate(SimpleGems.getInstance().getLocaleFile().getString("kick-messages-error")));
+            RyMessageUtils.sendConsole(true, "Player " + event.getName() + " (" + event.getUniqueId() + ") was not able to join due to: data failed to load.");
+        }
+    }
+
+    // Logins refused by us or anyone else never join, so their profile goes idle as if they had left
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onLoginRefused(AsyncPlayerPreLoginEvent event) {
+        if (event.getLoginResult() != AsyncPlayerPreLoginEvent.Result.ALLOWED && Bukkit.getPlayer(event.getUniqueId()) == null)
+            SimpleGems.getInstance().getProfileManager().release(event.getUniqueId());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onLoginRefused(PlayerLoginEvent event) {
+        if (event.getResult() != PlayerLoginEvent.Result.ALLOWED && Bukkit.getPlayer(event.getPlayer().getUniqueId()) == null)
+            SimpleGems.getInstance().getProfileManager().release(event.getPlayer().getUniqueId());
     }
 
     @EventHandler
@@ -37,16 +72,11 @@ public class PlayerListener implements Listener {
 
         Profile profile = SimpleGems.getInstance().getProfileManager().getProfile(player.getUniqueId());
 
-        if (profile == null || profile.getData() == null) {
-            RyMessageUtils.sendConsole(true, "Profile " + player.getName() + " has returned null, attempting to load data again");
-
-            SimpleGems.getInstance().getProfileManager().handleProfileCreation(player.getUniqueId(), player.getName());
-            RyMessageUtils.sendConsole(true, "Profile created for " + player.getName() + " (" + player.getUniqueId() + ")");
-
-            Profile newProfile = SimpleGems.getInstance().getProfileManager().getProfile(player.getUniqueId());
-
-            Tasks.runAsync(() -> newProfile.getData().load());
-            RyMessageUtils.sendConsole(true, "Data loaded for " + player.getName() + " (" + player.getUniqueId() + ")");
+        // Refused here rather than kicked after joining, before anything could touch the balance
+        if (profile == null || profile.getData() == null || !profile.getData().isLoaded()) {
+            event.disallow(PlayerLoginEvent.Result.KICK_OTHER,
+                    RyMessageUtils.translate(SimpleGems.getInstance().getLocaleFile().getString("kick-messages-error")));
+            RyMessageUtils.sendConsole(true, "Player " + player.getName() + " (" + player.getUniqueId() + ") was not able to join due to: profile not loaded.");
         }
     }
 
@@ -56,11 +86,8 @@ public class PlayerListener implements Listener {
 
         Profile profile = SimpleGems.getInstance().getProfileManager().getProfile(player.getUniqueId());
 
-        if (profile == null || profile.getData() == null) {
-            player.kickPlayer(RyMessageUtils.translate(player, SimpleGems.getInstance().getLocaleFile().getString("kick-messages-error")));
-            RyMessageUtils.sendConsole(true, "Player " + player.getName() + " (" + player.getUniqueId() + ") was not able to join due to: profile not found.");
+        if (profile == null || profile.getData() == null)
             return;
-        }
 
         if (!player.hasPlayedBefore() && SimpleGems.getInstance().getSettings().STARTING_GEMS > 0) {
             SimpleGems.getInstance().getGemsAPI().giveGems(player, SimpleGems.getInstance().getSettings().STARTING_GEMS);
@@ -99,7 +126,9 @@ public class PlayerListener implements Listener {
             RyMessageUtils.sendPluginError("THE MENU MANAGER HAS NOT BEEN CONFIGURED. CALL MENUMANAGER.SETUP()");
         }
 
-        Tasks.runAsync(() -> profile.getData().save());
+        // Kept for a quick reconnect once the balance is saved, evicted afterwards
+        SimpleGems.getInstance().getProfileManager().release(player.getUniqueId(), profile.getData().saveNow());
+        SimpleGems.getInstance().getProfileManager().getOfflineCache().put(player.getUniqueId(), profile.getData().getGems().getUnits());
     }
 
     @EventHandler
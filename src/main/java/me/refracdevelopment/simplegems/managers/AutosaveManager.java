@@ -0,0 +1,161 @@
+package me.refracdevelopment.simplegems.managers;
+
+import me.refracdevelopment.simplegems.SimpleGems;
+import me.refracdevelopment.simplegems.player.data.ProfileData;
+import me.refracdevelopment.simplegems.utilities.chat.RyMessageUtils;
+import org.bukkit.Bukkit;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Periodically snapshots every profile changed since its last successful save, as a safety
+ * net for saves that were lost or failed. A profile is only marked clean if it wasn't changed
+ * again while its snapshot was being written, which is tracked with a generation per change.
+ * <p>
+ * Runs on its own thread instead of the server scheduler, so reloading the plugin doesn't stop it.
+ */
+public class AutosaveManager {
+
+    // Batches are spread one tick apart
+    private static final long BATCH_DELAY = 50;
+
+    private final Map<UUID, Dirty> dirty = new ConcurrentHashMap<>();
+    private final AtomicLong generation = new AtomicLong();
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "SimpleGems-Autosave");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private ScheduledFuture<?> task;
+
+    private static final class Dirty {
+
+        private final ProfileData data;
+        private final long generation;
+
+        private Dirty(ProfileData data, long generation) {
+            this.data = data;
+            this.generation = generation;
+        }
+    }
+
+    public AutosaveManager() {
+        autosaveTask();
+    }
+
+    /**
+     * Mark a profile as changed, it will be part of the next snapshot.
+     *
+     * @param data The changed profile.
+     */
+    public void markDirty(ProfileData data) {
+        dirty.put(data.getUuid(), new Dirty(data, generation.incrementAndGet()));
+    }
+
+    /**
+     * Write every dirty profile, a batch per tick.
+     *
+     * @return A future completed once every batch has been written or has failed.
+     */
+    public CompletableFuture<Integer> autosave() {
+        List<Dirty> snapshot = new ArrayList<>(dirty.values());
+
+        if (snapshot.isEmpty())
+            return CompletableFuture.completedFuture(0);
+
+        int batchSize = Math.max(1, SimpleGems.getInstance().getSettings().AUTOSAVE_BATCH_SIZE);
+        long start = System.nanoTime();
+        AtomicInteger saved = new AtomicInteger();
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+
+        for (int from = 0, batch = 0; from < snapshot.size(); from += batchSize, batch++) {
+            List<Dirty> entries = snapshot.subList(from, Math.min(from + batchSize, snapshot.size()));
+            CompletableFuture<Void> future = new CompletableFuture<>();
+
+            scheduler.schedule(() -> save(entries, saved).whenComplete((ignored, throwable) -> future.complete(null)),
+                    batch * BATCH_DELAY, TimeUnit.MILLISECONDS);
+            futures.add(future);
+        }
+
+        return CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).thenApply(ignored -> {
+            long took = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+            if (SimpleGems.getInstance().getSettings().AUTOSAVE_LOG)
+                RyMessageUtils.sendConsole(true, "&aAutosaved &e" + saved.get() + "&a/&e" + snapshot.size() + " &aprofiles in &e" + took + "ms&a.");
+
+            return saved.get();
+        });
+    }
+
+    private CompletableFuture<Void> save(List<Dirty> entries, AtomicInteger saved) {
+        List<UUID> uuids = new ArrayList<>();
+
+        for (Dirty entry : entries) {
+            // Saved on quit, the stored balance may have been changed offline since
+            if (Bukkit.getPlayer(entry.data.getUuid()) == null) {
+                clean(entry);
+                continue;
+            }
+
+            SimpleGems.getInstance().getWriteBehindBuffer().markDirty(entry.data.getUuid(), entry.data.getGems().getUnits());
+            uuids.add(entry.data.getUuid());
+        }
+
+        return SimpleGems.getInstance().getWriteBehindBuffer().flush(uuids).whenComplete((ignored, throwable) -> {
+            if (throwable != null)
+                return;
+
+            // Profiles changed since the snapshot stay dirty for the next one
+            for (Dirty entry : entries) {
+                if (clean(entry))
+                    saved.incrementAndGet();
+            }
+        });
+    }
+
+    private boolean clean(Dirty entry) {
+        AtomicBoolean cleaned = new AtomicBoolean();
+
+        dirty.computeIfPresent(entry.data.getUuid(), (uuid, current) -> {
+            if (current.generation != entry.generation)
+                return current;
+
+            cleaned.set(true);
+            return null;
+        });
+
+        return cleaned.get();
+    }
+
+    public int getDirtyCount() {
+        return dirty.size();
+    }
+
+    public void autosaveTask() {
+        long interval = SimpleGems.getInstance().getSettings().AUTOSAVE_INTERVAL;
+
+        if (task != null)
+            task.cancel(false);
+
+        task = scheduler.scheduleWithFixedDelay(this::autosave, interval, interval, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Stop the timer and queue every dirty profile a last time, the caller flushes them.
+     */
+    public void shutdown() {
+        scheduler.shutdownNow();
+
+        for (Dirty entry : dirty.values()) {
+            if (Bukkit.getPlayer(entry.data.getUuid()) != null)
+                SimpleGems.getInstance().getWriteBehindBuffer().markDirty(entry.data.getUuid(), entry.data.getGems().getUnits());
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package me.refracdevelopment.simplegems.managers;
+
+import me.refracdevelopment.simplegems.SimpleGems;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Remembers the balances of recently looked up offline players, evicting the least
+ * recently used once full and expiring balances that are older than the ttl.
+ */
+public class OfflineCache {
+
+    private final LinkedHashMap<UUID, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final AtomicLong invalidations = new AtomicLong();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    private static final class Entry {
+
+        private final long gems;
+        private final long expiresAt;
+
+        private Entry(long gems, long expiresAt) {
+            this.gems = gems;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    /**
+     * @param uuid The player's uuid.
+     * @return The cached balance in units, or null if it isn't cached or has expired.
+     */
+    public synchronized Long get(UUID uuid) {
+        Entry entry = entries.get(uuid);
+
+        if (entry != null && entry.expiresAt - System.nanoTime() < 0) {
+            entries.remove(uuid);
+            entry = null;
+        }
+
+        if (entry == null) {
+            misses.increment();
+            return null;
+        }
+
+        hits.increment();
+        return entry.gems;
+    }
+
+    /**
+     * Cache a balance we know is current, like one we just wrote.
+     */
+    public synchronized void put(UUID uuid, long gems) {
+        int size = SimpleGems.getInstance().getSettings().OFFLINE_CACHE_SIZE;
+
+        if (size <= 0)
+            return;
+
+        entries.put(uuid, new Entry(gems, System.nanoTime() + TimeUnit.SECONDS.toNanos(SimpleGems.getInstance().getSettings().OFFLINE_CACHE_TTL)));
+
+        while (entries.size() > size)
+            entries.remove(entries.keySet().iterator().next());
+    }
+
+    /**
+     * @return A stamp to pass to {@link #put(UUID, long, long)} once a database read completes.
+     */
+    public long getStamp() {
+        return invalidations.get();
+    }
+
+    /**
+     * Cache a balance read from the database, unless a write invalidated the cache
+     * while the read was running, since the balance may already be outdated.
+     */
+    public synchronized void put(UUID uuid, long gems, long stamp) {
+        if (invalidations.get() == stamp)
+            put(uuid, gems);
+    }
+
+    public synchronized void invalidate(UUID uuid) {
+        invalidations.incrementAndGet();
+        entries.remove(uuid);
+    }
+
+    public synchronized void clear() {
+        invalidations.incrementAndGet();
+        entries.clear();
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+}
@@ -1,43 +1,292 @@
 package me.refracdevelopment.simplegems.managers;
 
-import lombok.Data;
+import lombok.Getter;
+import me.refracdevelopment.simplegems.SimpleGems;
+import me.refracdevelopment.simplegems.managers.data.LatencyRecorder;
+import me.refracdevelopment.simplegems.managers.data.WriteBehindBuffer;
 import me.refracdevelopment.simplegems.player.Profile;
+import me.refracdevelopment.simplegems.player.data.ProfileData;
 import me.refracdevelopment.simplegems.utilities.Tasks;
 import org.bukkit.Bukkit;
-import org.bukkit.entity.Player;
 
-import java.util.HashMap;
-import java.util.Map;
-import java.util.UUID;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
 
-@Data
+/**
+ * Every loaded profile, by uuid and by lowercase name. Profiles are created from the async
+ * pre-login threads and read from the main thread, so lookups never lock and the rare
+ * changes are synchronized to keep both maps consistent.
+ * <p>
+ * Profiles of players who left are kept idle until their balance is saved and a short grace
+ * period has passed, a reconnect in between reuses the profile instead of reading the database.
+ * Afterwards they are evicted, so only online players and the recent leavers stay in memory.
+ */
 public class ProfileManager {
 
-    private Map<UUID, Profile> profiles = new HashMap<>();
+    // Idle profiles whose quit save hasn't finished yet never expire
+    private static final long SAVING = Long.MAX_VALUE;
+    // Idle profiles whose stored balance was changed, evicted once their save has finished and never reused
+    private static final long STALE = Long.MIN_VALUE;
+    private static final long EVICTION_INTERVAL = 5;
 
-    public void handleProfileCreation(UUID uuid, String name) {
-        if (!this.profiles.containsKey(uuid))
+    private final Map<UUID, Profile> profiles = new ConcurrentHashMap<>();
+    private final Map<String, UUID> names = new ConcurrentHashMap<>();
+    private final Map<UUID, CompletableFuture<Void>> loads = new ConcurrentHashMap<>();
+    @Getter
+    private final OfflineCache offlineCache = new OfflineCache();
+    @Getter
+    private final LatencyRecorder loadLatency = new LatencyRecorder();
+    private final LongAdder loadTimeouts = new LongAdder();
+    private final LongAdder loadFailures = new LongAdder();
+    // When the profile of every player who left is evicted, in the order they left
+    private final Map<UUID, Long> idle = new LinkedHashMap<>();
+    private final LongAdder graceHits = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public ProfileManager() {
+        evictionTask();
+    }
+
+    /**
+     * Create the player's profile if they have none yet, or update its name if they changed it.
+     */
+    public synchronized void handleProfileCreation(UUID uuid, String name) {
+        Profile profile = profiles.get(uuid);
+
+        if (profile == null) {
             profiles.put(uuid, new Profile(uuid, name));
+            index(uuid, null, name);
+            return;
+        }
+
+        if (!profile.getPlayerName().equals(name)) {
+            String previous = profile.getPlayerName();
+
+            profile.setPlayerName(name);
+            profile.getData().setName(name);
+            index(uuid, previous, name);
+        }
+    }
+
+    /**
+     * Create the player's profile if needed and load their balance. A player logging in again
+     * while their balance is still loading waits for the same load instead of starting another,
+     * so two reads can't finish out of order.
+     *
+     * @return A future completed once the profile holds the stored balance.
+     */
+    public synchronized CompletableFuture<Void> load(UUID uuid, String name) {
+        handleProfileCreation(uuid, name);
+
+        Long expiry = idle.remove(uuid);
+
+        // Back within the grace period, the profile still holds their newest balance
+        if (expiry != null && expiry != STALE && profiles.get(uuid).getData().isLoaded() && !loads.containsKey(uuid)) {
+            offlineCache.invalidate(uuid);
+            graceHits.increment();
+            return CompletableFuture.completedFuture(null);
+        }
+
+        CompletableFuture<Void> running = loads.get(uuid);
+
+        if (running != null)
+            return running;
+
+        long start = System.nanoTime();
+        ProfileData data = profiles.get(uuid).getData();
+        WriteBehindBuffer buffer = SimpleGems.getInstance().getWriteBehindBuffer();
+        // A save of their last session still being written would otherwise be read back as the old balance
+        CompletableFuture<Void> future = buffer.isPending(uuid) ? buffer.flush(uuid).thenCompose(ignored -> data.load()) : data.load();
+
+        loads.put(uuid, future);
+        future.whenComplete((ignored, throwable) -> {
+            loads.remove(uuid, future);
+
+            if (throwable == null)
+                loadLatency.record(System.nanoTime() - start, 0);
+            else
+                loadFailures.increment();
+        });
+
+        return future;
+    }
+
+    /**
+     * Count a login that was refused because the player's balance didn't load in time.
+     */
+    public void loadTimedOut() {
+        loadTimeouts.increment();
+    }
+
+    public long getLoadTimeouts() {
+        return loadTimeouts.sum();
+    }
+
+    public long getLoadFailures() {
+        return loadFailures.sum();
+    }
+
+    public int getLoadingCount() {
+        return loads.size();
+    }
+
+    /**
+     * Keep the profile of a player who left until their balance is saved and the grace
+     * period has passed, then evict it.
+     *
+     * @param saved The save of the player's balance.
+     */
+    public void release(UUID uuid, CompletableFuture<?> saved) {
+        synchronized (this) {
+            if (!profiles.containsKey(uuid))
+                return;
+
+            idle.put(uuid, SAVING);
+        }
+
+        saved.whenComplete((ignored, throwable) -> expire(uuid));
+    }
+
+    /**
+     * Release the profile created for a login that was refused, once its load has finished.
+     */
+    public void release(UUID uuid) {
+        CompletableFuture<Void> running = loads.get(uuid);
+
+        release(uuid, running == null ? CompletableFuture.completedFuture(null) : running);
     }
 
-    public Profile getProfile(Object object) {
-        if (object instanceof Player target) {
-            if (!this.profiles.containsKey(target.getUniqueId()))
-                return null;
+    private synchronized void expire(UUID uuid) {
+        Long expiry = idle.get(uuid);
 
-            return profiles.get(target.getUniqueId());
+        // Reconnected in the meantime
+        if (expiry == null)
+            return;
+
+        if (expiry != STALE)
+            idle.put(uuid, System.nanoTime() + TimeUnit.SECONDS.toNanos(SimpleGems.getInstance().getSettings().PROFILE_GRACE_PERIOD));
+
+        evictExpired();
+    }
+
+    /**
+     * Evict the idle profiles whose grace period is over, and the oldest ones while
+     * more are kept than the configured grace size.
+     */
+    public synchronized void evictExpired() {
+        long now = System.nanoTime();
+        int excess = idle.size() - Math.max(0, SimpleGems.getInstance().getSettings().PROFILE_GRACE_SIZE);
+        Iterator<Map.Entry<UUID, Long>> iterator = idle.entrySet().iterator();
+
+        while (iterator.hasNext()) {
+            Map.Entry<UUID, Long> entry = iterator.next();
+
+            long expiry = entry.getValue();
+
+            if (expiry == SAVING || (expiry != STALE && now - expiry < 0 && excess <= 0) || !isEvictable(entry.getKey()))
+                continue;
+
+            iterator.remove();
+            removeProfile(entry.getKey());
+            evictions.increment();
+            excess--;
         }
+    }
 
-        if (object instanceof UUID uuid) {
-            if (!this.profiles.containsKey(uuid))
-                return null;
+    // A balance that failed to save is still queued, and a player is still online while they quit
+    private boolean isEvictable(UUID uuid) {
+        return !loads.containsKey(uuid)
+                && !SimpleGems.getInstance().getWriteBehindBuffer().isPending(uuid)
+                && Bukkit.getPlayer(uuid) == null;
+    }
+
+    /**
+     * Evict the profile of a player who left, called before their stored balance is changed
+     * so a reconnect reads the new one. A profile whose save is still queued or being written
+     * is kept until the save has finished, but isn't reused meanwhile.
+     */
+    public synchronized void evict(UUID uuid) {
+        Long expiry = idle.get(uuid);
+
+        if (expiry == null)
+            return;
 
-            return profiles.get(uuid);
+        if (expiry == SAVING || !isEvictable(uuid)) {
+            idle.put(uuid, STALE);
+            return;
         }
 
-        if (object instanceof String)
-            return this.profiles.values().stream().filter(profile -> profile.getPlayerName().equalsIgnoreCase(object.toString())).findFirst().orElse(null);
+        idle.remove(uuid);
+        removeProfile(uuid);
+        evictions.increment();
+    }
+
+    /**
+     * Evict the profile of every player who left, called after stored balances were changed in bulk.
+     */
+    public synchronized void evictAll() {
+        for (UUID uuid : new ArrayList<>(idle.keySet()))
+            evict(uuid);
+    }
+
+    public synchronized int getIdleCount() {
+        return idle.size();
+    }
+
+    public long getGraceHits() {
+        return graceHits.sum();
+    }
+
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    public void evictionTask() {
+        Tasks.runAsyncTimer(this::evictExpired, EVICTION_INTERVAL, EVICTION_INTERVAL, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Forget a player's profile.
+     */
+    public synchronized void removeProfile(UUID uuid) {
+        Profile profile = profiles.remove(uuid);
+
+        if (profile != null)
+            names.remove(key(profile.getPlayerName()), uuid);
+    }
+
+    public Profile getProfile(UUID uuid) {
+        return profiles.get(uuid);
+    }
+
+    /**
+     * @param name The player's name, in any case.
+     */
+    public Profile getProfile(String name) {
+        UUID uuid = names.get(key(name));
+        return uuid == null ? null : profiles.get(uuid);
+    }
+
+    /**
+     * @return A read-only view of every loaded profile.
+     */
+    public Map<UUID, Profile> getProfiles() {
+        return Collections.unmodifiableMap(profiles);
+    }
+
+    private void index(UUID uuid, String previous, String name) {
+        // Only drop the old name if nobody else took it meanwhile
+        if (previous != null)
+            names.remove(key(previous), uuid);
+
+        // A name that changed hands points to its newest owner
+        names.put(key(name), uuid);
+    }
 
-        return null;
+    private String key(String name) {
+        return name.toLowerCase(Locale.ROOT);
     }
-}
\ No newline at end of file
+}
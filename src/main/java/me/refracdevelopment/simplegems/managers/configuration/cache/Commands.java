@@ -18,6 +18,9 @@ public class Commands {
     public String TOP_COMMAND_NAME;
     public List<String> TOP_COMMAND_ALIASES;
 
+    public String RANK_COMMAND_NAME;
+    public List<String> RANK_COMMAND_ALIASES;
+
     public String PAY_COMMAND_NAME;
     public List<String> PAY_COMMAND_ALIASES;
 
@@ -42,6 +45,24 @@ public class Commands {
     public String RANDOM_GIVE_COMMAND_NAME;
     public List<String> RANDOM_GIVE_COMMAND_ALIASES;
 
+    public String GIVE_ALL_COMMAND_NAME;
+    public List<String> GIVE_ALL_COMMAND_ALIASES;
+
+    public String EXPORT_COMMAND_NAME;
+    public List<String> EXPORT_COMMAND_ALIASES;
+
+    public String IMPORT_COMMAND_NAME;
+    public List<String> IMPORT_COMMAND_ALIASES;
+
+    public String MIGRATE_COMMAND_NAME;
+    public List<String> MIGRATE_COMMAND_ALIASES;
+
+    public String CONVERT_COMMAND_NAME;
+    public List<String> CONVERT_COMMAND_ALIASES;
+
+    public String STATS_COMMAND_NAME;
+    public List<String> STATS_COMMAND_ALIASES;
+
     public Commands() {
         loadConfig();
     }
@@ -59,6 +80,9 @@ public class Commands {
         TOP_COMMAND_NAME = SimpleGems.getInstance().getCommandsFile().getString("subcommands.top.name");
         TOP_COMMAND_ALIASES = SimpleGems.getInstance().getCommandsFile().getStringList("subcommands.top.aliases");
 
+        RANK_COMMAND_NAME = SimpleGems.getInstance().getCommandsFile().getString("subcommands.rank.name");
+        RANK_COMMAND_ALIASES = SimpleGems.getInstance().getCommandsFile().getStringList("subcommands.rank.aliases");
+
         PAY_COMMAND_NAME = SimpleGems.getInstance().getCommandsFile().getString("subcommands.pay.name");
         PAY_COMMAND_ALIASES = SimpleGems.getInstance().getCommandsFile().getStringList("subcommands.pay.aliases");
 
@@ -82,5 +106,23 @@ public class Commands {
 
         RANDOM_GIVE_COMMAND_NAME = SimpleGems.getInstance().getCommandsFile().getString("subcommands.random-give.name");
         RANDOM_GIVE_COMMAND_ALIASES = SimpleGems.getInstance().getCommandsFile().getStringList("subcommands.random-give.aliases");
+
+        GIVE_ALL_COMMAND_NAME = SimpleGems.getInstance().getCommandsFile().getString("subcommands.give-all.name");
+        GIVE_ALL_COMMAND_ALIASES = SimpleGems.getInstance().getCommandsFile().getStringList("subcommands.give-all.aliases");
+
+        EXPORT_COMMAND_NAME = SimpleGems.getInstance().getCommandsFile().getString("subcommands.export.name", "export");
+        EXPORT_COMMAND_ALIASES = SimpleGems.getInstance().getCommandsFile().getStringList("subcommands.export.aliases");
+
+        IMPORT_COMMAND_NAME = SimpleGems.getInstance().getCommandsFile().getString("subcommands.import.name", "import");
+        IMPORT_COMMAND_ALIASES = SimpleGems.getInstance().getCommandsFile().getStringList("subcommands.import.aliases");
+
+        MIGRATE_COMMAND_NAME = SimpleGems.getInstance().getCommandsFile().getString("subcommands.migrate.name", "migrate");
+        MIGRATE_COMMAND_ALIASES = SimpleGems.getInstance().getCommandsFile().getStringList("subcommands.migrate.aliases");
+
+        CONVERT_COMMAND_NAME = SimpleGems.getInstance().getCommandsFile().getString("subcommands.convert.name", "convert");
+        CONVERT_COMMAND_ALIASES = SimpleGems.getInstance().getCommandsFile().getStringList("subcommands.convert.aliases");
+
+        STATS_COMMAND_NAME = SimpleGems.getInstance().getCommandsFile().getString("subcommands.stats.name", "stats");
+        STATS_COMMAND_ALIASES = SimpleGems.getInstance().getCommandsFile().getStringList("subcommands.stats.aliases");
     }
 }
\ No newline at end of file
@@ -1,6 +1,7 @@
 package me.refracdevelopment.simplegems.managers.configuration.cache;
 
 import me.refracdevelopment.simplegems.SimpleGems;
+import me.refracdevelopment.simplegems.managers.data.SchemaMigrator;
 
 import java.util.List;
 
@@ -8,10 +9,39 @@ public class Config {
 
     // Settings
     public double STARTING_GEMS;
+    public int GEM_DECIMALS;
     public long LEADERBOARD_UPDATE_INTERVAL;
+    public int LEADERBOARD_CACHE_SIZE;
     public String DATA_TYPE;
     public boolean CHECK_FOR_UPDATES;
 
+    // Storage
+    public int STORAGE_READ_THREADS, STORAGE_WRITE_THREADS, STORAGE_QUEUE_SIZE;
+    public long STORAGE_SUBMIT_TIMEOUT;
+    public long STORAGE_LOGIN_TIMEOUT;
+    public long WRITE_BEHIND_FLUSH_INTERVAL;
+    public int WRITE_BEHIND_MAX_PENDING;
+    public long STORAGE_SHUTDOWN_TIMEOUT;
+    public boolean STORAGE_SPILL_JOURNAL;
+    public int STORAGE_SCHEMA_VERSION;
+    public long AUTOSAVE_INTERVAL;
+    public int AUTOSAVE_BATCH_SIZE;
+    public boolean AUTOSAVE_LOG;
+    public boolean LEDGER_ENABLED;
+    public long LEDGER_FLUSH_INTERVAL;
+    public int LEDGER_BATCH_SIZE;
+    public int LEDGER_MAX_PENDING;
+    public boolean SQLITE_WAL_MODE;
+    public int SQLITE_READ_CONNECTIONS;
+    public int MAPPED_INITIAL_CAPACITY;
+    public int OFFLINE_CACHE_SIZE;
+    public long OFFLINE_CACHE_TTL;
+    public long PROFILE_GRACE_PERIOD;
+    public int PROFILE_GRACE_SIZE;
+    public long MAPPED_SYNC_INTERVAL;
+    public int MIGRATION_CHUNK_SIZE;
+    public long MIGRATION_MIRROR_INTERVAL;
+
     // Prestige
     public int PRESTIGE_GEM_REWARD_BASE;
     public double PRESTIGE_MULTIPLIER_PER_LEVEL;
@@ -43,10 +73,41 @@ public class Config {
     public void loadConfig() {
         // Settings
         STARTING_GEMS = SimpleGems.getInstance().getConfigFile().getDouble("starting-gems");
+        GEM_DECIMALS = SimpleGems.getInstance().getConfigFile().getInt("gem-decimals", 0);
         LEADERBOARD_UPDATE_INTERVAL = SimpleGems.getInstance().getConfigFile().getLong("leaderboard-update-interval");
+        LEADERBOARD_CACHE_SIZE = SimpleGems.getInstance().getConfigFile().getInt("leaderboard-cache-size", 100);
         DATA_TYPE = SimpleGems.getInstance().getConfigFile().getString("data-type");
         CHECK_FOR_UPDATES = SimpleGems.getInstance().getConfigFile().getBoolean("check-for-updates");
 
+        // Storage
+        STORAGE_READ_THREADS = SimpleGems.getInstance().getConfigFile().getInt("storage.read-threads", 4);
+        STORAGE_WRITE_THREADS = SimpleGems.getInstance().getConfigFile().getInt("storage.write-threads", 2);
+        STORAGE_QUEUE_SIZE = SimpleGems.getInstance().getConfigFile().getInt("storage.queue-size", 1000);
+        STORAGE_SUBMIT_TIMEOUT = SimpleGems.getInstance().getConfigFile().getLong("storage.submit-timeout", 50);
+        STORAGE_LOGIN_TIMEOUT = SimpleGems.getInstance().getConfigFile().getLong("storage.login-timeout", 5000);
+        WRITE_BEHIND_FLUSH_INTERVAL = SimpleGems.getInstance().getConfigFile().getLong("storage.write-behind.flush-interval", 5);
+        WRITE_BEHIND_MAX_PENDING = SimpleGems.getInstance().getConfigFile().getInt("storage.write-behind.max-pending", 500);
+        STORAGE_SHUTDOWN_TIMEOUT = SimpleGems.getInstance().getConfigFile().getLong("storage.shutdown-timeout", 10);
+        STORAGE_SPILL_JOURNAL = SimpleGems.getInstance().getConfigFile().getBoolean("storage.spill-journal", true);
+        STORAGE_SCHEMA_VERSION = SimpleGems.getInstance().getConfigFile().getInt("storage.schema-version", SchemaMigrator.LATEST);
+        AUTOSAVE_INTERVAL = SimpleGems.getInstance().getConfigFile().getLong("storage.autosave.interval", 60);
+        AUTOSAVE_BATCH_SIZE = SimpleGems.getInstance().getConfigFile().getInt("storage.autosave.batch-size", 100);
+        AUTOSAVE_LOG = SimpleGems.getInstance().getConfigFile().getBoolean("storage.autosave.log", true);
+        LEDGER_ENABLED = SimpleGems.getInstance().getConfigFile().getBoolean("ledger.enabled", true);
+        LEDGER_FLUSH_INTERVAL = SimpleGems.getInstance().getConfigFile().getLong("ledger.flush-interval", 2);
+        LEDGER_BATCH_SIZE = SimpleGems.getInstance().getConfigFile().getInt("ledger.batch-size", 500);
+        LEDGER_MAX_PENDING = SimpleGems.getInstance().getConfigFile().getInt("ledger.max-pending", 50000);
+        SQLITE_WAL_MODE = SimpleGems.getInstance().getConfigFile().getBoolean("sqlite.wal-mode", true);
+        SQLITE_READ_CONNECTIONS = SimpleGems.getInstance().getConfigFile().getInt("sqlite.read-connections", 4);
+        OFFLINE_CACHE_SIZE = SimpleGems.getInstance().getConfigFile().getInt("offline-cache.size", 1000);
+        OFFLINE_CACHE_TTL = SimpleGems.getInstance().getConfigFile().getLong("offline-cache.ttl", 300);
+        PROFILE_GRACE_PERIOD = SimpleGems.getInstance().getConfigFile().getLong("profiles.grace-period", 60);
+        PROFILE_GRACE_SIZE = SimpleGems.getInstance().getConfigFile().getInt("profiles.grace-size", 500);
+        MAPPED_INITIAL_CAPACITY = SimpleGems.getInstance().getConfigFile().getInt("mapped.initial-capacity", 4096);
+        MAPPED_SYNC_INTERVAL = SimpleGems.getInstance().getConfigFile().getLong("mapped.sync-interval", 5);
+        MIGRATION_CHUNK_SIZE = SimpleGems.getInstance().getConfigFile().getInt("migration.chunk-size", 1000);
+        MIGRATION_MIRROR_INTERVAL = SimpleGems.getInstance().getConfigFile().getLong("migration.mirror-interval", 1);
+
         // Prestige
         PRESTIGE_GEM_REWARD_BASE = SimpleGems.getInstance().getConfigFile().getInt("prestige.gem-reward-base");
         PRESTIGE_MULTIPLIER_PER_LEVEL = SimpleGems.getInstance().getConfigFile().getDouble("prestige.multiplier-per-level");
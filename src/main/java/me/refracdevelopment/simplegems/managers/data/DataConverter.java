@@ -0,0 +1,126 @@
+package me.refracdevelopment.simplegems.managers.data;
+
+import me.refracdevelopment.simplegems.SimpleGems;
+import me.refracdevelopment.simplegems.managers.leaderboards.LeaderboardEntry;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Copies every player between the mapped file and one of the SQL databases.
+ * The database is opened just for the conversion and closed afterwards.
+ */
+public class DataConverter {
+
+    private static final int CHUNK_SIZE = 1000;
+
+    private final MappedManager mappedManager;
+
+    public DataConverter(MappedManager mappedManager) {
+        this.mappedManager = mappedManager;
+    }
+
+    /**
+     * Copy every player from the database into the mapped file.
+     *
+     * @param source Either {@link DataType#MYSQL} or {@link DataType#SQLITE}.
+     * @return A future completed with the amount of players copied.
+     */
+    public CompletableFuture<Integer> importFrom(DataType source) {
+        List<LeaderboardEntry> loaded = new ArrayList<>();
+
+        switch (source) {
+            case MYSQL:
+                MySQLManager mySQLManager = new MySQLManager(false);
+
+                if (!mySQLManager.isInitiated())
+                    return CompletableFuture.failedFuture(new IllegalStateException("Couldn't connect to MySQL."));
+
+                return mySQLManager.createTables()
+                        .thenCompose(ignored -> mySQLManager.select(Queries.SELECT_PLAYERS, resultSet -> {
+                            while (resultSet.next())
+                                loaded.add(new LeaderboardEntry(UUID.fromString(Uuids.read(resultSet, "uuid")), resultSet.getString("name"), resultSet.getLong("gems")));
+                        }))
+                        .thenCompose(ignored -> mappedManager.putAll(loaded))
+                        .thenApply(ignored -> loaded.size())
+                        .whenComplete((ignored, throwable) -> mySQLManager.shutdown());
+            default:
+                SQLiteManager sqLiteManager = new SQLiteManager(getSQLitePath());
+
+                return sqLiteManager.createTables()
+                        .thenCompose(ignored -> sqLiteManager.select(Queries.SELECT_PLAYERS, resultSet -> {
+                            while (resultSet.next())
+                                loaded.add(new LeaderboardEntry(UUID.fromString(Uuids.read(resultSet, "uuid")), resultSet.getString("name"), resultSet.getLong("gems")));
+                        }))
+                        .thenCompose(ignored -> mappedManager.putAll(loaded))
+                        .thenApply(ignored -> loaded.size())
+                        .whenComplete((ignored, throwable) -> sqLiteManager.shutdown());
+        }
+    }
+
+    /**
+     * Copy every player from the mapped file into the database, overwriting existing balances.
+     *
+     * @param target Either {@link DataType#MYSQL} or {@link DataType#SQLITE}.
+     * @return A future completed with the amount of players copied.
+     */
+    public CompletableFuture<Integer> exportTo(DataType target) {
+        return mappedManager.getEntries().thenCompose(entries -> {
+            List<List<Object[]>> chunks = toChunks(entries);
+
+            switch (target) {
+                case MYSQL:
+                    MySQLManager mySQLManager = new MySQLManager(false);
+
+                    if (!mySQLManager.isInitiated())
+                        return CompletableFuture.failedFuture(new IllegalStateException("Couldn't connect to MySQL."));
+
+                    CompletableFuture<Void> mysql = mySQLManager.createTables();
+
+                    // One chunk at a time so a large export doesn't fill the write queue
+                    for (List<Object[]> chunk : chunks)
+                        mysql = mysql.thenCompose(ignored -> mySQLManager.executeBatch(Queries.UPSERT_MYSQL, chunk));
+
+                    return mysql.thenApply(ignored -> entries.size())
+                            .whenComplete((ignored, throwable) -> mySQLManager.shutdown());
+                default:
+                    SQLiteManager sqLiteManager = new SQLiteManager(getSQLitePath());
+                    CompletableFuture<Void> sqlite = sqLiteManager.createTables();
+
+                    for (List<Object[]> chunk : chunks)
+                        sqlite = sqlite.thenCompose(ignored -> sqLiteManager.executeBatch(Queries.UPSERT_SQLITE, chunk));
+
+                    return sqlite.thenApply(ignored -> entries.size())
+                            .whenComplete((ignored, throwable) -> sqLiteManager.shutdown());
+            }
+        });
+    }
+
+    private List<List<Object[]>> toChunks(List<LeaderboardEntry> entries) {
+        List<List<Object[]>> chunks = new ArrayList<>();
+        List<Object[]> chunk = new ArrayList<>();
+
+        for (LeaderboardEntry entry : entries) {
+            // Entries without a name fall back to their uuid
+            String name = entry.getName().equals(entry.getUuid().toString()) ? null : entry.getName();
+            chunk.add(new Object[]{entry.getUuid().toString(), name, entry.getUnits()});
+
+            if (chunk.size() >= CHUNK_SIZE) {
+                chunks.add(chunk);
+                chunk = new ArrayList<>();
+            }
+        }
+
+        if (!chunk.isEmpty())
+            chunks.add(chunk);
+
+        return chunks;
+    }
+
+    private String getSQLitePath() {
+        return SimpleGems.getInstance().getDataFolder().getAbsolutePath() + File.separator + "gems.db";
+    }
+}
@@ -0,0 +1,512 @@
+package me.refracdevelopment.simplegems.managers.data;
+
+import lombok.Getter;
+import me.refracdevelopment.simplegems.SimpleGems;
+import me.refracdevelopment.simplegems.utilities.Tasks;
+import me.refracdevelopment.simplegems.utilities.chat.RyMessageUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.zip.CRC32;
+
+/**
+ * Copies the SQLite database into the configured MySQL database while the server keeps running.
+ * <p>
+ * Triggers on the SQLite table record every player written during the migration, those players
+ * are copied again shortly after (the dual-write phase) so nothing written mid-copy is lost. The
+ * table itself is copied in keyset ordered chunks with a checkpoint after every chunk, afterwards
+ * every chunk is compared by row count and checksum and copied again if it differs. Once verified
+ * the changes keep being mirrored until the data type is switched to MySQL and the server restarted.
+ * <p>
+ * Every step runs on the single schema worker, so a chunk and a mirrored change never race.
+ */
+public class DataMigration {
+
+    private static final String CHANGES_TABLE = "SimpleGemsChanges";
+    private static final String[] TRIGGERS = {"simplegems_migrate_insert", "simplegems_migrate_update", "simplegems_migrate_delete"};
+    private static final String SELECT_CHUNK = "SELECT uuid, name, gems FROM SimpleGems WHERE uuid > ? ORDER BY uuid LIMIT ?";
+    private static final String SELECT_RANGE = "SELECT uuid, name, gems FROM SimpleGems WHERE uuid > ? AND uuid <= ? ORDER BY uuid";
+    private static final String SELECT_TAIL = "SELECT uuid, name, gems FROM SimpleGems WHERE uuid > ? ORDER BY uuid";
+    private static final String DELETE_RANGE = "DELETE FROM SimpleGems WHERE uuid > ? AND uuid <= ?";
+    private static final String DELETE_TAIL = "DELETE FROM SimpleGems WHERE uuid > ?";
+
+    public enum State {
+        IDLE, COPYING, VERIFYING, MIRRORING
+    }
+
+    private final SQLiteManager sqLiteManager;
+    private final File checkpointFile;
+    private final int chunkSize = SimpleGems.getInstance().getSettings().MIGRATION_CHUNK_SIZE;
+    private final AtomicBoolean draining = new AtomicBoolean();
+    private volatile MySQLManager target;
+    private boolean ticking;
+
+    @Getter
+    private volatile State state = State.IDLE;
+    @Getter
+    private volatile boolean failed;
+    @Getter
+    private volatile long copied;
+    @Getter
+    private volatile long verified;
+    @Getter
+    private volatile long repaired;
+    @Getter
+    private volatile long mirrored;
+    private volatile String lastUuid = "";
+
+    public DataMigration(SQLiteManager sqLiteManager, File dataFolder) {
+        this.sqLiteManager = sqLiteManager;
+        this.checkpointFile = getCheckpointFile(dataFolder);
+    }
+
+    private static File getCheckpointFile(File dataFolder) {
+        return new File(dataFolder, "migration.properties");
+    }
+
+    /**
+     * Forget the checkpoint once the server has been switched to MySQL.
+     */
+    public static void finish(File dataFolder) {
+        File checkpointFile = getCheckpointFile(dataFolder);
+
+        if (!checkpointFile.exists())
+            return;
+
+        Properties checkpoint = new Properties();
+
+        try (InputStream input = Files.newInputStream(checkpointFile.toPath())) {
+            checkpoint.load(input);
+        } catch (IOException exception) {
+            exception.printStackTrace();
+        }
+
+        if (State.MIRRORING.name().equals(checkpoint.getProperty("state")))
+            RyMessageUtils.sendConsole(true, "&aFinished migrating from SQLite, gems.db is no longer used.");
+        else
+            RyMessageUtils.sendConsole(true, "&cSwitched to MySQL before the migration from SQLite was verified, some balances may be missing.");
+
+        checkpointFile.delete();
+    }
+
+    public boolean isRunning() {
+        return !failed && (state == State.COPYING || state == State.VERIFYING);
+    }
+
+    /**
+     * Continue a migration from its checkpoint, or remove the change triggers of a cancelled one.
+     */
+    public void resume() {
+        if (!checkpointFile.exists()) {
+            dropTriggers();
+            return;
+        }
+
+        try {
+            Properties checkpoint = new Properties();
+
+            try (InputStream input = Files.newInputStream(checkpointFile.toPath())) {
+                checkpoint.load(input);
+            }
+
+            state = State.valueOf(checkpoint.getProperty("state", State.COPYING.name()));
+            lastUuid = checkpoint.getProperty("last-uuid", "");
+            copied = Long.parseLong(checkpoint.getProperty("copied", "0"));
+        } catch (IOException | IllegalArgumentException exception) {
+            RyMessageUtils.sendConsole(true, "&cCouldn't read the migration checkpoint, use /gems migrate cancel to start over.");
+            exception.printStackTrace();
+            return;
+        }
+
+        RyMessageUtils.sendConsole(true, "&aResuming the MySQL migration at &e" + copied + " &aplayers.");
+
+        if (!start())
+            RyMessageUtils.sendConsole(true, "&cCouldn't reach MySQL, use /gems migrate start to try again.");
+    }
+
+    /**
+     * Start or continue the migration.
+     *
+     * @return False if the MySQL database couldn't be reached.
+     */
+    public boolean start() {
+        if (target == null) {
+            MySQLManager mySQLManager = new MySQLManager(false);
+
+            if (!mySQLManager.isInitiated())
+                return false;
+
+            target = mySQLManager;
+        }
+
+        if (state == State.IDLE)
+            state = State.COPYING;
+
+        failed = false;
+
+        // Capture changes first, anything written after this point is mirrored
+        createTriggers().thenRun(() -> {
+            if (state == State.VERIFYING)
+                submit(this::verifyChunk);
+            else if (state == State.COPYING)
+                submit(this::copyChunk);
+        });
+
+        if (!ticking) {
+            ticking = true;
+            mirrorTask();
+        }
+
+        return true;
+    }
+
+    /**
+     * Stop the migration, forget its checkpoint and stop capturing changes.
+     */
+    public void cancel() {
+        state = State.IDLE;
+        failed = false;
+        lastUuid = "";
+        copied = verified = repaired = mirrored = 0;
+        checkpointFile.delete();
+        dropTriggers();
+
+        if (target != null) {
+            target.shutdown();
+            target = null;
+        }
+    }
+
+    /**
+     * Mirror the last changes before the plugin shuts down. Runs on the calling thread
+     * since the storage workers have already been stopped.
+     */
+    public void shutdown() {
+        if (target == null)
+            return;
+
+        try {
+            drain();
+        } catch (SQLException exception) {
+            RyMessageUtils.sendConsole(true, "&cCouldn't mirror the last changes to MySQL, they will be mirrored on the next start.");
+            exception.printStackTrace();
+        }
+
+        saveCheckpoint();
+        target.shutdown();
+    }
+
+    /**
+     * Schedule mirroring the captured changes, once a migration has been started.
+     */
+    public void mirrorTask() {
+        if (ticking)
+            Tasks.runAsyncTimer(this::tick, 1, SimpleGems.getInstance().getSettings().MIGRATION_MIRROR_INTERVAL, TimeUnit.SECONDS);
+    }
+
+    private void tick() {
+        if (target == null || state == State.IDLE || !draining.compareAndSet(false, true))
+            return;
+
+        submit(this::drain).whenComplete((ignored, throwable) -> draining.set(false));
+    }
+
+    private CompletableFuture<Void> submit(SQLTask task) {
+        return SimpleGems.getInstance().getStorageExecutor().execute(StorageOperation.SCHEMA, () -> {
+            if (state == State.IDLE || target == null)
+                return;
+
+            try {
+                task.run();
+            } catch (SQLException exception) {
+                RyMessageUtils.sendConsole(true, "&cThe MySQL migration failed, use /gems migrate start to continue from the last checkpoint.");
+                exception.printStackTrace();
+                failed = true;
+                saveCheckpoint();
+            }
+        });
+    }
+
+    private void copyChunk() throws SQLException {
+        List<Object[]> rows;
+
+        try (Connection sqlite = sqLiteManager.getConnection(); Connection mysql = target.getConnection()) {
+            rows = read(sqlite, sqLiteManager.isBinaryUuids(), SELECT_CHUNK, lastUuid, chunkSize);
+
+            if (!rows.isEmpty())
+                write(mysql, null, null, rows);
+        }
+
+        if (rows.isEmpty()) {
+            RyMessageUtils.sendConsole(true, "&aCopied &e" + copied + " &aplayers to MySQL, verifying...");
+            state = State.VERIFYING;
+            lastUuid = "";
+            saveCheckpoint();
+            submit(this::verifyChunk);
+            return;
+        }
+
+        copied += rows.size();
+        lastUuid = (String) rows.get(rows.size() - 1)[0];
+        saveCheckpoint();
+
+        if (copied % (chunkSize * 10L) < chunkSize)
+            RyMessageUtils.sendConsole(true, "&aCopied &e" + copied + " &aplayers to MySQL so far.");
+
+        submit(this::copyChunk);
+    }
+
+    private void verifyChunk() throws SQLException {
+        // Changes captured so far are mirrored first, so only real differences are left
+        drain();
+
+        try (Connection sqlite = sqLiteManager.getConnection(); Connection mysql = target.getConnection()) {
+            List<Object[]> source = read(sqlite, sqLiteManager.isBinaryUuids(), SELECT_CHUNK, lastUuid, chunkSize);
+            boolean last = source.size() < chunkSize;
+            String from = lastUuid;
+            String to = source.isEmpty() ? null : (String) source.get(source.size() - 1)[0];
+            // The last chunk is open ended so rows that only exist in MySQL are caught as well
+            List<Object[]> copy = last ? read(mysql, target.isBinaryUuids(), SELECT_TAIL, from)
+                    : read(mysql, target.isBinaryUuids(), SELECT_RANGE, from, to);
+
+            if (source.size() != copy.size() || checksum(source) != checksum(copy)) {
+                write(mysql, from, last ? null : to, source);
+                repaired++;
+            }
+
+            verified += source.size();
+
+            if (!last) {
+                lastUuid = to;
+                saveCheckpoint();
+                submit(this::verifyChunk);
+                return;
+            }
+
+            long sourceCount = count(sqlite);
+            long copyCount = count(mysql);
+
+            if (sourceCount != copyCount)
+                throw new SQLException("Row counts differ after verifying, SQLite has " + sourceCount + " and MySQL " + copyCount + ".");
+
+            RyMessageUtils.sendConsole(true, "&aVerified &e" + verified + " &aplayers in MySQL, &e" + repaired + " &achunks had to be copied again.");
+            RyMessageUtils.sendConsole(true, "&aSet data-type to MYSQL and restart to finish the migration, changes are mirrored until then.");
+        }
+
+        state = State.MIRRORING;
+        saveCheckpoint();
+    }
+
+    private void drain() throws SQLException {
+        try (Connection sqlite = sqLiteManager.getConnection()) {
+            while (true) {
+                List<Object> keys = new ArrayList<>();
+                List<String> uuids = new ArrayList<>();
+
+                try (PreparedStatement statement = sqlite.prepareStatement("SELECT uuid FROM " + CHANGES_TABLE + " LIMIT ?")) {
+                    statement.setInt(1, chunkSize);
+
+                    try (ResultSet resultSet = statement.executeQuery()) {
+                        while (resultSet.next()) {
+                            // Removed as stored, changes captured before the uuids became bytes are still text
+                            keys.add(resultSet.getObject("uuid"));
+                            uuids.add(Uuids.read(resultSet, "uuid"));
+                        }
+                    }
+                }
+
+                if (uuids.isEmpty())
+                    return;
+
+                String placeholders = String.join(",", Collections.nCopies(uuids.size(), "?"));
+
+                // Forget the changes before reading them, a write after this point is captured again
+                try (PreparedStatement statement = sqlite.prepareStatement("DELETE FROM " + CHANGES_TABLE + " WHERE uuid IN (" + placeholders + ")")) {
+                    for (int i = 0; i < keys.size(); i++)
+                        statement.setObject(i + 1, keys.get(i));
+
+                    statement.executeUpdate();
+                }
+
+                List<Object[]> rows = read(sqlite, sqLiteManager.isBinaryUuids(), Queries.selectPlayersIn(uuids.size()).getSql(), uuids.toArray());
+                Set<String> removed = new HashSet<>(uuids);
+
+                for (Object[] row : rows)
+                    removed.remove((String) row[0]);
+
+                try (Connection mysql = target.getConnection()) {
+                    mysql.setAutoCommit(false);
+
+                    try {
+                        upsert(mysql, rows);
+
+                        for (String uuid : removed) {
+                            try (PreparedStatement statement = mysql.prepareStatement("DELETE FROM SimpleGems WHERE uuid=?")) {
+                                Uuids.bind(statement, 1, uuid, target.isBinaryUuids());
+                                statement.executeUpdate();
+                            }
+                        }
+
+                        mysql.commit();
+                    } catch (SQLException exception) {
+                        mysql.rollback();
+                        throw exception;
+                    } finally {
+                        mysql.setAutoCommit(true);
+                    }
+                }
+
+                mirrored += uuids.size();
+            }
+        }
+    }
+
+    /**
+     * @param binaryUuids Whether the table stores uuids as bytes, every text value is bound as a uuid.
+     */
+    private List<Object[]> read(Connection connection, boolean binaryUuids, String query, Object... values) throws SQLException {
+        List<Object[]> rows = new ArrayList<>();
+
+        try (PreparedStatement statement = connection.prepareStatement(query)) {
+            for (int i = 0; i < values.length; i++) {
+                if (values[i] instanceof String)
+                    Uuids.bind(statement, i + 1, values[i], binaryUuids);
+                else
+                    statement.setObject(i + 1, values[i]);
+            }
+
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next())
+                    rows.add(new Object[]{Uuids.read(resultSet, "uuid"), resultSet.getString("name"), resultSet.getLong("gems")});
+            }
+        }
+
+        return rows;
+    }
+
+    /**
+     * Write the rows in one transaction, replacing every MySQL row in the range if one is given.
+     */
+    private void write(Connection mysql, String from, String to, List<Object[]> rows) throws SQLException {
+        mysql.setAutoCommit(false);
+
+        try {
+            if (from != null) {
+                try (PreparedStatement statement = mysql.prepareStatement(to == null ? DELETE_TAIL : DELETE_RANGE)) {
+                    Uuids.bind(statement, 1, from, target.isBinaryUuids());
+
+                    if (to != null)
+                        Uuids.bind(statement, 2, to, target.isBinaryUuids());
+
+                    statement.executeUpdate();
+                }
+            }
+
+            upsert(mysql, rows);
+            mysql.commit();
+        } catch (SQLException exception) {
+            mysql.rollback();
+            throw exception;
+        } finally {
+            mysql.setAutoCommit(true);
+        }
+    }
+
+    private void upsert(Connection mysql, List<Object[]> rows) throws SQLException {
+        if (rows.isEmpty())
+            return;
+
+        try (PreparedStatement statement = mysql.prepareStatement(Queries.UPSERT_MYSQL.getSql())) {
+            for (Object[] row : rows) {
+                Queries.UPSERT_MYSQL.bind(statement, row, target.isBinaryUuids());
+                statement.addBatch();
+            }
+
+            statement.executeBatch();
+        }
+    }
+
+    private long checksum(List<Object[]> rows) {
+        CRC32 crc = new CRC32();
+
+        for (Object[] row : rows) {
+            // Both sides store whole units, so balances compare exactly
+            String line = row[0] + "\0" + (row[1] == null ? "" : row[1]) + "\0" + row[2] + "\n";
+            crc.update(line.getBytes(StandardCharsets.UTF_8));
+        }
+
+        return crc.getValue();
+    }
+
+    private long count(Connection connection) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement("SELECT COUNT(*) FROM SimpleGems");
+             ResultSet resultSet = statement.executeQuery()) {
+            return resultSet.next() ? resultSet.getLong(1) : 0;
+        }
+    }
+
+    private CompletableFuture<Void> createTriggers() {
+        return CompletableFuture.allOf(
+                sqLiteManager.createTable(CHANGES_TABLE, "uuid VARCHAR(36) NOT NULL PRIMARY KEY"),
+                sqLiteManager.execute("CREATE TRIGGER IF NOT EXISTS " + TRIGGERS[0] + " AFTER INSERT ON SimpleGems " +
+                        "BEGIN INSERT OR IGNORE INTO " + CHANGES_TABLE + " (uuid) VALUES (NEW.uuid); END"),
+                sqLiteManager.execute("CREATE TRIGGER IF NOT EXISTS " + TRIGGERS[1] + " AFTER UPDATE ON SimpleGems " +
+                        "BEGIN INSERT OR IGNORE INTO " + CHANGES_TABLE + " (uuid) VALUES (NEW.uuid); END"),
+                sqLiteManager.execute("CREATE TRIGGER IF NOT EXISTS " + TRIGGERS[2] + " AFTER DELETE ON SimpleGems " +
+                        "BEGIN INSERT OR IGNORE INTO " + CHANGES_TABLE + " (uuid) VALUES (OLD.uuid); END"));
+    }
+
+    private void dropTriggers() {
+        for (String trigger : TRIGGERS)
+            sqLiteManager.execute("DROP TRIGGER IF EXISTS " + trigger);
+
+        sqLiteManager.execute("DROP TABLE IF EXISTS " + CHANGES_TABLE);
+    }
+
+    private void saveCheckpoint() {
+        Properties checkpoint = new Properties();
+        checkpoint.setProperty("state", state.name());
+        checkpoint.setProperty("last-uuid", lastUuid);
+        checkpoint.setProperty("copied", String.valueOf(copied));
+
+        File temp = new File(checkpointFile.getParentFile(), checkpointFile.getName() + ".tmp");
+
+        try (OutputStream output = Files.newOutputStream(temp.toPath())) {
+            checkpoint.store(output, "SimpleGems MySQL migration, delete to start over");
+        } catch (IOException exception) {
+            RyMessageUtils.sendConsole(true, "&cCouldn't save the migration checkpoint.");
+            exception.printStackTrace();
+            return;
+        }
+
+        try {
+            Files.move(temp.toPath(), checkpointFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException exception) {
+            RyMessageUtils.sendConsole(true, "&cCouldn't save the migration checkpoint.");
+            exception.printStackTrace();
+        }
+    }
+
+    @FunctionalInterface
+    private interface SQLTask {
+        void run() throws SQLException;
+    }
+}
@@ -0,0 +1,245 @@
+package me.refracdevelopment.simplegems.managers.data;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import me.refracdevelopment.simplegems.SimpleGems;
+import me.refracdevelopment.simplegems.player.stats.GemAmount;
+import me.refracdevelopment.simplegems.utilities.chat.RyMessageUtils;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.IntConsumer;
+
+/**
+ * Streams the SimpleGems table to and from a CSV or newline delimited JSON file.
+ * <p>
+ * Exports read the table through a forward-only cursor and imports upsert one chunk per
+ * transaction, so only a single chunk is ever held in memory regardless of the table size.
+ */
+public class DataTransfer {
+
+    private static final String CSV_HEADER = "uuid,name,gems";
+    private static final int FETCH_SIZE = 1000;
+    private static final int CHUNK_SIZE = 1000;
+
+    public enum Format {
+        CSV, JSON;
+
+        /**
+         * @return The format matching the file's extension, defaulting to csv.
+         */
+        public static Format of(File file) {
+            String name = file.getName().toLowerCase();
+            return name.endsWith(".json") || name.endsWith(".ndjson") || name.endsWith(".jsonl") ? JSON : CSV;
+        }
+
+        public String getExtension() {
+            return this == JSON ? "ndjson" : "csv";
+        }
+    }
+
+    private final DataType dataType;
+
+    public DataTransfer(DataType dataType) {
+        this.dataType = dataType;
+    }
+
+    /**
+     * @return The folder exports are written to and imports are read from.
+     */
+    public static File getFolder() {
+        return new File(SimpleGems.getInstance().getDataFolder(), "exports");
+    }
+
+    /**
+     * Write every player to the file.
+     *
+     * @param file     The file to write, replaced if it exists.
+     * @param progress Called with the amount of rows written after every chunk.
+     * @return A future completed with the amount of players written.
+     */
+    public CompletableFuture<Integer> exportTo(File file, IntConsumer progress) {
+        Format format = Format.of(file);
+
+        return SimpleGems.getInstance().getStorageExecutor().submit(StorageOperation.SCHEMA, () -> {
+            File temp = new File(file.getParentFile(), file.getName() + ".tmp");
+            int rows = 0;
+
+            try (Connection resource = getConnection(true);
+                 PreparedStatement statement = resource.prepareStatement(Queries.SELECT_PLAYERS.getSql(), ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+                 BufferedWriter writer = Files.newBufferedWriter(temp.toPath(), StandardCharsets.UTF_8)) {
+                statement.setFetchSize(FETCH_SIZE);
+
+                if (format == Format.CSV) {
+                    writer.write(CSV_HEADER);
+                    writer.newLine();
+                }
+
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    while (resultSet.next()) {
+                        writer.write(toLine(format, Uuids.read(resultSet, "uuid"), resultSet.getString("name"), resultSet.getLong("gems")));
+                        writer.newLine();
+
+                        if (++rows % CHUNK_SIZE == 0)
+                            progress.accept(rows);
+                    }
+                }
+            } catch (SQLException | IOException exception) {
+                RyMessageUtils.sendConsole(true, "An error occurred while exporting players to " + file.getName() + ".");
+                exception.printStackTrace();
+                temp.delete();
+                throw new CompletionException(exception);
+            }
+
+            // Only replace an older export once the new one is complete
+            try {
+                Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            } catch (IOException exception) {
+                throw new CompletionException(exception);
+            }
+
+            return rows;
+        });
+    }
+
+    /**
+     * Upsert every player in the file, overwriting existing balances.
+     *
+     * @param file     The file to read.
+     * @param progress Called with the amount of rows imported after every chunk.
+     * @return A future completed with the amount of players imported.
+     */
+    public CompletableFuture<Integer> importFrom(File file, IntConsumer progress) {
+        Format format = Format.of(file);
+        String upsert = dataType == DataType.MYSQL ? Queries.UPSERT_MYSQL.getSql() : Queries.UPSERT_SQLITE.getSql();
+        boolean binaryUuids = dataType == DataType.MYSQL ? SimpleGems.getInstance().getMySQLManager().isBinaryUuids()
+                : SimpleGems.getInstance().getSqLiteManager().isBinaryUuids();
+
+        return SimpleGems.getInstance().getStorageExecutor().submit(StorageOperation.SCHEMA, () -> {
+            int rows = 0;
+            int line = 0;
+
+            try (BufferedReader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8);
+                 Connection resource = getConnection(false);
+                 PreparedStatement statement = resource.prepareStatement(upsert)) {
+                resource.setAutoCommit(false);
+
+                try {
+                    String text;
+                    int batched = 0;
+
+                    while ((text = reader.readLine()) != null) {
+                        line++;
+
+                        if (text.isBlank() || (format == Format.CSV && line == 1 && text.equalsIgnoreCase(CSV_HEADER)))
+                            continue;
+
+                        try {
+                            bind(statement, format, text, binaryUuids);
+                        } catch (RuntimeException exception) {
+                            throw new IOException("Invalid row on line " + line + " of " + file.getName() + ".", exception);
+                        }
+
+                        statement.addBatch();
+
+                        if (++batched == CHUNK_SIZE) {
+                            statement.executeBatch();
+                            resource.commit();
+                            rows += batched;
+                            batched = 0;
+                            progress.accept(rows);
+                        }
+                    }
+
+                    if (batched > 0) {
+                        statement.executeBatch();
+                        resource.commit();
+                        rows += batched;
+                    }
+                } catch (SQLException | IOException exception) {
+                    resource.rollback();
+                    throw exception;
+                } finally {
+                    resource.setAutoCommit(true);
+
+                    // Earlier chunks were committed even if a later one failed
+                    if (dataType == DataType.MYSQL)
+                        SimpleGems.getInstance().getMySQLManager().markBulkWrite();
+                }
+            } catch (SQLException | IOException exception) {
+                RyMessageUtils.sendConsole(true, "An error occurred while importing players from " + file.getName() + " after " + rows + " rows.");
+                exception.printStackTrace();
+                throw new CompletionException(exception);
+            }
+
+            return rows;
+        });
+    }
+
+    private Connection getConnection(boolean read) throws SQLException {
+        // A dedicated connection, the long running statement never holds up the shared ones
+        if (dataType == DataType.MYSQL) {
+            if (read)
+                return SimpleGems.getInstance().getMySQLManager().getReadConnection();
+
+            return SimpleGems.getInstance().getMySQLManager().getConnection();
+        }
+
+        return SimpleGems.getInstance().getSqLiteManager().getConnection();
+    }
+
+    // Files hold gems rather than units, so they can be imported with other decimals
+    private String toLine(Format format, String uuid, String name, long gems) {
+        String amount = GemAmount.toString(gems);
+
+        if (format == Format.CSV)
+            return uuid + "," + (name == null ? "" : name) + "," + amount;
+
+        JsonObject object = new JsonObject();
+        object.addProperty("uuid", uuid);
+        object.addProperty("name", name);
+        object.addProperty("gems", new BigDecimal(amount));
+        return object.toString();
+    }
+
+    private void bind(PreparedStatement statement, Format format, String text, boolean binaryUuids) throws SQLException {
+        String uuid;
+        String name;
+        BigDecimal gems;
+
+        if (format == Format.CSV) {
+            String[] values = text.split(",", -1);
+
+            if (values.length != 3)
+                throw new IllegalArgumentException("Expected 3 columns but found " + values.length + ".");
+
+            uuid = values[0].trim();
+            name = values[1].trim().isEmpty() ? null : values[1].trim();
+            gems = new BigDecimal(values[2].trim());
+        } else {
+            JsonObject object = JsonParser.parseString(text).getAsJsonObject();
+
+            uuid = object.get("uuid").getAsString();
+            name = object.has("name") && !object.get("name").isJsonNull() ? object.get("name").getAsString() : null;
+            gems = object.get("gems").getAsBigDecimal();
+        }
+
+        Uuids.bind(statement, 1, UUID.fromString(uuid), binaryUuids);
+        statement.setString(2, name);
+        statement.setLong(3, gems.movePointRight(GemAmount.getScale()).setScale(0, RoundingMode.HALF_UP).longValueExact());
+    }
+}
@@ -1,5 +1,5 @@
 package me.refracdevelopment.simplegems.managers.data;
 
 public enum DataType {
-    MYSQL, SQLITE
+    MYSQL, SQLITE, MAPPED
 }
\ No newline at end of file
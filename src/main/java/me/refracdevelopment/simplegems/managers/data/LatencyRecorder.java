@@ -0,0 +1,68 @@
+package me.refracdevelopment.simplegems.managers.data;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Keeps the most recent latency samples of a single query template in a ring buffer,
+ * percentiles are calculated from those samples when they are requested.
+ */
+public class LatencyRecorder {
+
+    private static final int SAMPLES = 1024;
+
+    private final long[] durations = new long[SAMPLES];
+    private final long[] waits = new long[SAMPLES];
+    private final LongAdder count = new LongAdder();
+    private int next;
+    private int size;
+
+    /**
+     * @param durationNanos The total time the query took, including the pool wait.
+     * @param waitNanos     The time spent waiting for a connection.
+     */
+    public synchronized void record(long durationNanos, long waitNanos) {
+        durations[next] = durationNanos;
+        waits[next] = waitNanos;
+        next = (next + 1) % SAMPLES;
+        size = Math.min(size + 1, SAMPLES);
+        count.increment();
+    }
+
+    public long getCount() {
+        return count.sum();
+    }
+
+    /**
+     * @param percentile The percentile between 0 and 100.
+     * @return The query duration at that percentile in milliseconds.
+     */
+    public double getDuration(double percentile) {
+        return percentile(durations, percentile);
+    }
+
+    /**
+     * @param percentile The percentile between 0 and 100.
+     * @return The pool wait at that percentile in milliseconds.
+     */
+    public double getWait(double percentile) {
+        return percentile(waits, percentile);
+    }
+
+    private double percentile(long[] samples, double percentile) {
+        long[] sorted;
+
+        synchronized (this) {
+            if (size == 0)
+                return 0;
+
+            sorted = Arrays.copyOf(samples, size);
+        }
+
+        Arrays.sort(sorted);
+        int index = (int) Math.ceil(percentile / 100 * sorted.length) - 1;
+
+        return sorted[Math.max(0, Math.min(index, sorted.length - 1))] / (double) TimeUnit.MILLISECONDS.toNanos(1);
+    }
+}
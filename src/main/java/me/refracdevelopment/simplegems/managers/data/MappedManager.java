@@ -0,0 +1,771 @@
+package me.refracdevelopment.simplegems.managers.data;
+
+import lombok.Getter;
+import me.refracdevelopment.simplegems.SimpleGems;
+import me.refracdevelopment.simplegems.managers.leaderboards.LeaderboardEntry;
+import me.refracdevelopment.simplegems.player.stats.GemAmount;
+import me.refracdevelopment.simplegems.utilities.Tasks;
+import me.refracdevelopment.simplegems.utilities.chat.RyMessageUtils;
+import org.bukkit.Bukkit;
+
+import java.io.*;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Stores balances in a memory mapped file of fixed size records, laid out as an open addressing
+ * hash table keyed by uuid. Every change is an in-place write that the OS flushes to disk,
+ * {@link #force()} runs periodically and on shutdown. Names live in a side file at the same slot.
+ * <p>
+ * Records keep balances as units of the scale recorded in the header, so every change is exact.
+ * The file is rescaled when the configured decimals change, and files of the first version,
+ * which kept balances as gems, are converted once. Both go through the rehash file, so a
+ * crash halfway is finished on the next start.
+ * <p>
+ * Each record carries a checksum of its uuid and balance, so a record torn by a crash is dropped
+ * on recovery instead of being read back as a balance.
+ * <p>
+ * Every access runs on the storage lanes, reads on the read lane and changes on the single
+ * write lane, so scans and rehashes never hold up the thread that asked for them.
+ */
+public class MappedManager {
+
+    private static final int MAGIC = 0x53474D44;
+    private static final int VERSION = 3;
+    // Records had no checksum yet
+    private static final int UNCHECKED_VERSION = 2;
+    // Balances were kept as doubles of gems
+    private static final int LEGACY_VERSION = 1;
+    // Starts a rehash file holding units, files without it hold gems
+    private static final int REHASH_UNITS = -1;
+
+    private static final int HEADER_SIZE = 64;
+    private static final int HEADER_MAGIC = 0;
+    private static final int HEADER_VERSION = 4;
+    private static final int HEADER_CAPACITY = 8;
+    private static final int HEADER_COUNT = 12;
+    private static final int HEADER_CLEAN = 16;
+    private static final int HEADER_SCALE = 20;
+
+    private static final int RECORD_SIZE = 32;
+    private static final int RECORD_STATE = 0;
+    private static final int RECORD_CHECKSUM = 4;
+    private static final int RECORD_MOST = 8;
+    private static final int RECORD_LEAST = 16;
+    private static final int RECORD_GEMS = 24;
+
+    private static final byte EMPTY = 0;
+    private static final byte USED = 1;
+
+    // One length byte followed by the UTF-8 name
+    private static final int NAME_SIZE = 32;
+    private static final double LOAD_FACTOR = 0.7;
+
+    private final File dataFile;
+    private final File nameFile;
+    private final File rehashFile;
+    private FileChannel dataChannel;
+    private FileChannel nameChannel;
+    private MappedByteBuffer data;
+    private MappedByteBuffer names;
+    @Getter
+    private int capacity;
+    @Getter
+    private int count;
+
+    public MappedManager(File folder) {
+        RyMessageUtils.sendConsole(true, "&aEnabling mapped file support.");
+
+        this.dataFile = new File(folder, "gems.dat");
+        this.nameFile = new File(folder, "gems-names.dat");
+        this.rehashFile = new File(folder, "gems.rehash");
+
+        try {
+            open();
+            RyMessageUtils.sendConsole(true, "&aLoaded &e" + count + " &aplayers from: &e" + dataFile.getName() + "&a!");
+        } catch (IOException exception) {
+            RyMessageUtils.sendConsole(true, "&cThere was an error opening your data file. Here's the suspect: &e" + exception.getLocalizedMessage());
+            exception.printStackTrace();
+            Bukkit.getPluginManager().disablePlugin(SimpleGems.getInstance());
+            return;
+        }
+
+        forceTask();
+    }
+
+    private synchronized void open() throws IOException {
+        boolean exists = dataFile.exists() && dataFile.length() >= HEADER_SIZE;
+
+        dataChannel = FileChannel.open(dataFile.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        nameChannel = FileChannel.open(nameFile.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+
+        if (!exists) {
+            map(Integer.highestOneBit(Math.max(16, SimpleGems.getInstance().getSettings().MAPPED_INITIAL_CAPACITY - 1)) << 1);
+            data.putInt(HEADER_MAGIC, MAGIC);
+            data.putInt(HEADER_VERSION, VERSION);
+            data.putInt(HEADER_CAPACITY, capacity);
+            data.putInt(HEADER_COUNT, 0);
+            data.putInt(HEADER_SCALE, GemAmount.getScale());
+            count = 0;
+        } else {
+            MappedByteBuffer header = dataChannel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE);
+            int version = header.getInt(HEADER_VERSION);
+
+            if (header.getInt(HEADER_MAGIC) != MAGIC)
+                throw new IOException(dataFile.getName() + " is not a SimpleGems data file.");
+
+            if (version != VERSION && version != UNCHECKED_VERSION && version != LEGACY_VERSION)
+                throw new IOException(dataFile.getName() + " has unsupported version " + version + ".");
+
+            int storedCapacity = header.getInt(HEADER_CAPACITY);
+
+            // The names only match the slots if both files were written with the same capacity
+            if (nameFile.length() != (long) storedCapacity * NAME_SIZE)
+                nameChannel.truncate(0);
+
+            map(storedCapacity);
+            count = data.getInt(HEADER_COUNT);
+
+            if (rehashFile.exists()) {
+                RyMessageUtils.sendConsole(true, "&eResuming an interrupted resize of " + dataFile.getName() + ".");
+                rebuild(readRehash(), capacity);
+            } else if (version == LEGACY_VERSION)
+                upgrade();
+            else {
+                if (version == UNCHECKED_VERSION)
+                    addChecksums();
+
+                if (data.get(HEADER_CLEAN) != 1)
+                    recover();
+
+                if (data.getInt(HEADER_SCALE) != GemAmount.getScale())
+                    rescale(data.getInt(HEADER_SCALE));
+            }
+        }
+
+        // Cleared until the next clean shutdown, so a crash is noticed on the next start
+        data.put(HEADER_CLEAN, (byte) 0);
+        force();
+    }
+
+    private void map(int capacity) throws IOException {
+        this.capacity = capacity;
+        this.data = dataChannel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE + (long) capacity * RECORD_SIZE);
+        this.names = nameChannel.map(FileChannel.MapMode.READ_WRITE, 0, (long) capacity * NAME_SIZE);
+    }
+
+    /**
+     * Check every record after the server didn't shut down cleanly. A torn record leaves a gap in
+     * its probe chain, so the table is rebuilt from the valid records if any had to be dropped.
+     */
+    private void recover() throws IOException {
+        RyMessageUtils.sendConsole(true, "&e" + dataFile.getName() + " wasn't closed cleanly, checking records.");
+
+        List<Record> records = new ArrayList<>();
+        int dropped = 0;
+
+        for (int slot = 0; slot < capacity; slot++) {
+            int position = offset(slot);
+            byte state = data.get(position + RECORD_STATE);
+
+            if (state == EMPTY)
+                continue;
+
+            long most = data.getLong(position + RECORD_MOST);
+            long least = data.getLong(position + RECORD_LEAST);
+            long units = readGems(position);
+
+            if (state != USED || data.getInt(position + RECORD_CHECKSUM) != checksum(most, least, units)) {
+                dropped++;
+                continue;
+            }
+
+            records.add(new Record(new UUID(most, least), readName(slot), units));
+        }
+
+        if (dropped > 0 || records.size() != count) {
+            RyMessageUtils.sendConsole(true, "&eDropped " + dropped + " damaged records, rebuilding " + records.size() + " players.");
+            writeRehash(records);
+            rebuild(records, capacity);
+        }
+    }
+
+    /**
+     * Checksum the records of a file of the second version. Balances are already units, so only
+     * the checksums are filled in before the records are checked like any other file.
+     */
+    private void addChecksums() {
+        for (int slot = 0; slot < capacity; slot++) {
+            int position = offset(slot);
+
+            if (data.get(position + RECORD_STATE) == USED)
+                writeGems(position, readGems(position));
+        }
+
+        data.putInt(HEADER_VERSION, VERSION);
+        data.force();
+    }
+
+    /**
+     * Convert a file of the first version, which kept balances as doubles of gems. Damaged
+     * records are dropped the same way {@link #recover()} does.
+     */
+    private void upgrade() throws IOException {
+        RyMessageUtils.sendConsole(true, "&eConverting " + dataFile.getName() + " to exact balances.");
+
+        List<Record> records = new ArrayList<>();
+        int dropped = 0;
+
+        for (int slot = 0; slot < capacity; slot++) {
+            int position = offset(slot);
+            byte state = data.get(position + RECORD_STATE);
+
+            if (state == EMPTY)
+                continue;
+
+            double gems = data.getDouble(position + RECORD_GEMS);
+
+            if (state != USED || Double.isNaN(gems) || Double.isInfinite(gems)) {
+                dropped++;
+                continue;
+            }
+
+            records.add(new Record(new UUID(data.getLong(position + RECORD_MOST), data.getLong(position + RECORD_LEAST)),
+                    readName(slot), GemAmount.toUnits(gems)));
+        }
+
+        if (dropped > 0)
+            RyMessageUtils.sendConsole(true, "&eDropped " + dropped + " damaged records while converting.");
+
+        writeRehash(records);
+        rebuild(records, capacity);
+    }
+
+    /**
+     * Convert every balance kept at another scale after the configured decimals changed.
+     */
+    private void rescale(int scale) throws IOException {
+        RyMessageUtils.sendConsole(true, "&eRescaling " + dataFile.getName() + " from " + scale + " to " + GemAmount.getScale() + " decimals.");
+
+        List<Record> records = new ArrayList<>(count);
+
+        for (Record record : records())
+            records.add(new Record(record.uuid, record.name, GemAmount.rescale(record.units, scale)));
+
+        writeRehash(records);
+        rebuild(records, capacity);
+    }
+
+    private int offset(int slot) {
+        return HEADER_SIZE + slot * RECORD_SIZE;
+    }
+
+    private int hash(UUID uuid) {
+        long hash = uuid.getMostSignificantBits() ^ uuid.getLeastSignificantBits();
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        return (int) hash;
+    }
+
+    // Mixes the uuid and balance, so a record torn halfway through a write no longer matches
+    private int checksum(long most, long least, long units) {
+        long hash = most * 0x9E3779B97F4A7C15L + least;
+        hash = (hash ^ (hash >>> 32)) * 0xff51afd7ed558ccdL + units;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return (int) hash;
+    }
+
+    /**
+     * @return The slot holding the uuid, or -(slot + 1) of the empty slot it would be inserted at.
+     */
+    private int find(UUID uuid) {
+        int mask = capacity - 1;
+        int slot = hash(uuid) & mask;
+
+        while (true) {
+            int position = offset(slot);
+
+            if (data.get(position + RECORD_STATE) == EMPTY)
+                return -(slot + 1);
+
+            if (data.getLong(position + RECORD_MOST) == uuid.getMostSignificantBits()
+                    && data.getLong(position + RECORD_LEAST) == uuid.getLeastSignificantBits())
+                return slot;
+
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    private int insert(UUID uuid, String name, long units) throws IOException {
+        if (count + 1 > capacity * LOAD_FACTOR) {
+            List<Record> records = records();
+            writeRehash(records);
+            rebuild(records, capacity << 1);
+        }
+
+        int slot = -(find(uuid) + 1);
+        write(slot, uuid, name, units);
+        data.putInt(HEADER_COUNT, ++count);
+        return slot;
+    }
+
+    private void write(int slot, UUID uuid, String name, long units) {
+        int position = offset(slot);
+
+        data.putLong(position + RECORD_MOST, uuid.getMostSignificantBits());
+        data.putLong(position + RECORD_LEAST, uuid.getLeastSignificantBits());
+        writeGems(position, units);
+        // Written last so a torn record is never seen as used
+        data.put(position + RECORD_STATE, USED);
+        writeName(slot, name);
+    }
+
+    private String readName(int slot) {
+        int position = slot * NAME_SIZE;
+        int length = names.get(position) & 0xFF;
+
+        if (length == 0 || length >= NAME_SIZE)
+            return null;
+
+        byte[] bytes = new byte[length];
+        names.get(position + 1, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private void writeName(int slot, String name) {
+        int position = slot * NAME_SIZE;
+
+        if (name == null) {
+            names.put(position, (byte) 0);
+            return;
+        }
+
+        byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+        int length = Math.min(bytes.length, NAME_SIZE - 1);
+
+        names.put(position + 1, bytes, 0, length);
+        names.put(position, (byte) length);
+    }
+
+    private List<Record> records() {
+        List<Record> records = new ArrayList<>(count);
+
+        for (int slot = 0; slot < capacity; slot++) {
+            int position = offset(slot);
+
+            if (data.get(position + RECORD_STATE) == USED)
+                records.add(new Record(new UUID(data.getLong(position + RECORD_MOST), data.getLong(position + RECORD_LEAST)),
+                        readName(slot), readGems(position)));
+        }
+
+        return records;
+    }
+
+    /**
+     * Lay the table out again at the given capacity. The records are journaled to the rehash file
+     * beforehand, so a crash in the middle of this is finished on the next start.
+     */
+    private void rebuild(List<Record> records, int newCapacity) throws IOException {
+        map(newCapacity);
+
+        for (int slot = 0; slot < capacity; slot++) {
+            data.put(offset(slot) + RECORD_STATE, EMPTY);
+            names.put(slot * NAME_SIZE, (byte) 0);
+        }
+
+        count = 0;
+
+        for (Record record : records) {
+            int slot = find(record.uuid);
+
+            if (slot >= 0)
+                continue;
+
+            write(-(slot + 1), record.uuid, record.name, record.units);
+            count++;
+        }
+
+        data.putInt(HEADER_CAPACITY, capacity);
+        data.putInt(HEADER_COUNT, count);
+        // Only marked once every record holds units of the current scale
+        data.putInt(HEADER_SCALE, GemAmount.getScale());
+        data.putInt(HEADER_VERSION, VERSION);
+        data.force();
+        names.force();
+        Files.deleteIfExists(rehashFile.toPath());
+    }
+
+    private void writeRehash(List<Record> records) throws IOException {
+        try (FileOutputStream file = new FileOutputStream(rehashFile);
+             DataOutputStream output = new DataOutputStream(new BufferedOutputStream(file))) {
+            output.writeInt(REHASH_UNITS);
+            output.writeInt(GemAmount.getScale());
+            output.writeInt(records.size());
+
+            for (Record record : records) {
+                output.writeLong(record.uuid.getMostSignificantBits());
+                output.writeLong(record.uuid.getLeastSignificantBits());
+                output.writeLong(record.units);
+                output.writeUTF(record.name == null ? "" : record.name);
+            }
+
+            output.flush();
+            file.getFD().sync();
+        }
+    }
+
+    /**
+     * @return The records of the rehash file, in units of the current scale.
+     */
+    private List<Record> readRehash() throws IOException {
+        try (DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(rehashFile)))) {
+            int size = input.readInt();
+            // Rehash files of the first version start with the size and hold gems
+            boolean units = size == REHASH_UNITS;
+            int scale = units ? input.readInt() : GemAmount.getScale();
+
+            if (units)
+                size = input.readInt();
+
+            List<Record> records = new ArrayList<>(size);
+
+            for (int i = 0; i < size; i++) {
+                UUID uuid = new UUID(input.readLong(), input.readLong());
+                long gems = units ? GemAmount.rescale(input.readLong(), scale) : GemAmount.toUnits(input.readDouble());
+                String name = input.readUTF();
+
+                records.add(new Record(uuid, name.isEmpty() ? null : name, gems));
+            }
+
+            return records;
+        }
+    }
+
+    /**
+     * Flush every change to disk.
+     */
+    public synchronized void force() {
+        if (data == null)
+            return;
+
+        data.force();
+        names.force();
+    }
+
+    public void forceTask() {
+        long interval = SimpleGems.getInstance().getSettings().MAPPED_SYNC_INTERVAL;
+
+        Tasks.runAsyncTimer(this::force, interval, interval, TimeUnit.SECONDS);
+    }
+
+    public boolean isInitiated() {
+        return data != null;
+    }
+
+    public void shutdown() {
+        close();
+    }
+
+    public synchronized void close() {
+        if (data == null)
+            return;
+
+        force();
+        data.put(HEADER_CLEAN, (byte) 1);
+        data.force();
+
+        try {
+            dataChannel.close();
+            nameChannel.close();
+        } catch (IOException exception) {
+            exception.printStackTrace();
+        }
+
+        data = null;
+        names = null;
+    }
+
+    private <T> CompletableFuture<T> submit(StorageOperation operation, Callable<T> task) {
+        return SimpleGems.getInstance().getStorageExecutor().submit(operation, () -> {
+            synchronized (this) {
+                if (data == null)
+                    throw new IOException(dataFile.getName() + " is closed.");
+
+                return task.call();
+            }
+        });
+    }
+
+    /**
+     * Load a player's balance, creating their record if it doesn't exist yet.
+     *
+     * @param uuid The player's uuid.
+     * @param name The player's current name.
+     * @return A future completed with the player's balance, in units.
+     */
+    public CompletableFuture<Long> loadPlayer(String uuid, String name) {
+        return submit(StorageOperation.WRITE, () -> {
+            UUID key = UUID.fromString(uuid);
+            int slot = find(key);
+
+            if (slot >= 0) {
+                if (!Objects.equals(readName(slot), name))
+                    writeName(slot, name);
+
+                return readGems(offset(slot));
+            }
+
+            try {
+                insert(key, name, 0);
+            } catch (IOException exception) {
+                RyMessageUtils.sendConsole(true, "An error occurred while creating a record for " + uuid + ".");
+                exception.printStackTrace();
+                throw exception;
+            }
+
+            return 0L;
+        });
+    }
+
+    public CompletableFuture<Void> updatePlayerGems(String uuid, long gems) {
+        return submit(StorageOperation.WRITE, () -> {
+            int slot = find(UUID.fromString(uuid));
+
+            if (slot >= 0)
+                writeGems(offset(slot), gems);
+
+            return null;
+        });
+    }
+
+    public CompletableFuture<Void> updatePlayersGems(Map<UUID, Long> balances) {
+        return submit(StorageOperation.WRITE, () -> {
+            balances.forEach((uuid, gems) -> {
+                int slot = find(uuid);
+
+                if (slot >= 0)
+                    writeGems(offset(slot), gems);
+            });
+
+            return null;
+        });
+    }
+
+    public CompletableFuture<Void> updatePlayerName(String uuid, String name) {
+        return submit(StorageOperation.WRITE, () -> {
+            int slot = find(UUID.fromString(uuid));
+
+            if (slot >= 0)
+                writeName(slot, name);
+
+            return null;
+        });
+    }
+
+    /**
+     * Add to a player's balance.
+     *
+     * @return A future completed with false if the player has no record.
+     */
+    public CompletableFuture<Boolean> addPlayerGems(String uuid, long amount) {
+        return submit(StorageOperation.WRITE, () -> {
+            int slot = find(UUID.fromString(uuid));
+
+            if (slot < 0)
+                return false;
+
+            int position = offset(slot);
+            writeGems(position, readGems(position) + amount);
+            return true;
+        });
+    }
+
+    /**
+     * Take from a player's balance if they have enough gems.
+     *
+     * @return A future completed with false if nothing was taken.
+     */
+    public CompletableFuture<Boolean> takePlayerGems(String uuid, long amount) {
+        return submit(StorageOperation.WRITE, () -> {
+            int slot = find(UUID.fromString(uuid));
+
+            if (slot < 0)
+                return false;
+
+            int position = offset(slot);
+            long gems = readGems(position);
+
+            if (gems < amount)
+                return false;
+
+            writeGems(position, gems - amount);
+            return true;
+        });
+    }
+
+    /**
+     * Add to every player's balance.
+     *
+     * @return A future completed with the amount of players changed.
+     */
+    public CompletableFuture<Integer> addAllGems(long amount) {
+        return submit(StorageOperation.WRITE, () -> {
+            for (int slot = 0; slot < capacity; slot++) {
+                int position = offset(slot);
+
+                if (data.get(position + RECORD_STATE) == USED)
+                    writeGems(position, readGems(position) + amount);
+            }
+
+            return count;
+        });
+    }
+
+    public CompletableFuture<Long> getPlayerGems(String uuid) {
+        return submit(StorageOperation.READ, () -> {
+            int slot = find(UUID.fromString(uuid));
+
+            return slot < 0 ? 0L : readGems(offset(slot));
+        });
+    }
+
+    public CompletableFuture<Map<String, Long>> getPlayersGems(Collection<String> uuids) {
+        return submit(StorageOperation.READ, () -> {
+            Map<String, Long> balances = new HashMap<>();
+
+            for (String uuid : uuids) {
+                int slot = find(UUID.fromString(uuid));
+
+                if (slot >= 0)
+                    balances.put(uuid, readGems(offset(slot)));
+            }
+
+            return balances;
+        });
+    }
+
+    /**
+     * @return Every player, unsorted.
+     */
+    public CompletableFuture<List<LeaderboardEntry>> getEntries() {
+        return submit(StorageOperation.READ, () -> {
+            List<LeaderboardEntry> entries = new ArrayList<>(count);
+            records().forEach(record -> entries.add(new LeaderboardEntry(record.uuid, record.name, record.units)));
+            return entries;
+        });
+    }
+
+    /**
+     * Hand every player to the consumer without collecting them first.
+     */
+    public CompletableFuture<Void> forEachEntry(Consumer<LeaderboardEntry> consumer) {
+        return submit(StorageOperation.READ, () -> {
+            for (int slot = 0; slot < capacity; slot++) {
+                int position = offset(slot);
+
+                if (data.get(position + RECORD_STATE) != USED)
+                    continue;
+
+                consumer.accept(new LeaderboardEntry(new UUID(data.getLong(position + RECORD_MOST), data.getLong(position + RECORD_LEAST)),
+                        readName(slot), readGems(position)));
+            }
+
+            return null;
+        });
+    }
+
+    /**
+     * @param limit The amount of players.
+     * @return The players with the highest balances, highest first.
+     */
+    public CompletableFuture<List<LeaderboardEntry>> getTopEntries(int limit) {
+        return submit(StorageOperation.READ, () -> {
+            if (limit <= 0)
+                return new ArrayList<>();
+
+            // The lowest of the best so far sits on top, so no more than the limit is ever held
+            PriorityQueue<LeaderboardEntry> top = new PriorityQueue<>(Math.min(limit, count) + 1, Comparator.reverseOrder());
+
+            for (int slot = 0; slot < capacity; slot++) {
+                int position = offset(slot);
+
+                if (data.get(position + RECORD_STATE) != USED)
+                    continue;
+
+                long units = readGems(position);
+
+                // Skipped before its name is read if it can't make the list
+                if (top.size() == limit && units < top.peek().getUnits())
+                    continue;
+
+                top.offer(new LeaderboardEntry(new UUID(data.getLong(position + RECORD_MOST), data.getLong(position + RECORD_LEAST)),
+                        readName(slot), units));
+
+                if (top.size() > limit)
+                    top.poll();
+            }
+
+            List<LeaderboardEntry> sorted = new ArrayList<>(top);
+            Collections.sort(sorted);
+            return sorted;
+        });
+    }
+
+    /**
+     * Copy every player into the mapped file, overwriting the balances of players already in it.
+     *
+     * @param entries The players to copy.
+     */
+    public CompletableFuture<Void> putAll(Collection<LeaderboardEntry> entries) {
+        return submit(StorageOperation.WRITE, () -> {
+            for (LeaderboardEntry entry : entries) {
+                // Entries without a name fall back to their uuid
+                String name = entry.getName().equals(entry.getUuid().toString()) ? null : entry.getName();
+                int slot = find(entry.getUuid());
+
+                if (slot >= 0) {
+                    writeGems(offset(slot), entry.getUnits());
+                    writeName(slot, name);
+                } else
+                    insert(entry.getUuid(), name, entry.getUnits());
+            }
+
+            force();
+            return null;
+        });
+    }
+
+    private long readGems(int position) {
+        return data.getLong(position + RECORD_GEMS);
+    }
+
+    // The checksum follows the balance, so a crash in between is caught by recover()
+    private void writeGems(int position, long units) {
+        data.putLong(position + RECORD_GEMS, units);
+        data.putInt(position + RECORD_CHECKSUM, checksum(data.getLong(position + RECORD_MOST), data.getLong(position + RECORD_LEAST), units));
+    }
+
+    private static final class Record {
+
+        private final UUID uuid;
+        private final String name;
+        private final long units;
+
+        private Record(UUID uuid, String name, long units) {
+            this.uuid = uuid;
+            this.name = name;
+            this.units = units;
+        }
+    }
+}
@@ -2,14 +2,22 @@ package me.refracdevelopment.simplegems.managers.data;
 
 import com.zaxxer.hikari.HikariConfig;
 import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import lombok.Getter;
 import me.refracdevelopment.simplegems.SimpleGems;
-import me.refracdevelopment.simplegems.utilities.Tasks;
+import me.refracdevelopment.simplegems.player.stats.GemAmount;
 import me.refracdevelopment.simplegems.utilities.chat.RyMessageUtils;
 import org.bukkit.Bukkit;
+import org.bukkit.configuration.ConfigurationSection;
 
 import java.sql.Connection;
 import java.sql.PreparedStatement;
+import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class MySQLManager {
 
@@ -18,9 +26,27 @@ public class MySQLManager {
     private final String password = SimpleGems.getInstance().getConfigFile().getString("mysql.password");
     private final String database = SimpleGems.getInstance().getConfigFile().getString("mysql.database");
     private final String port = SimpleGems.getInstance().getConfigFile().getString("mysql.port");
+    private final long stickyWindow = SimpleGems.getInstance().getConfigFile().getLong("mysql.replica.sticky-window", 2000);
     private HikariDataSource hikariDataSource;
+    private HikariDataSource replicaDataSource;
+    private CompletableFuture<Void> schema;
+    @Getter
+    private volatile boolean binaryUuids;
+    @Getter
+    private final QueryMetrics queryMetrics = new QueryMetrics();
+    // When each player was last written here, their reads stay on the primary until the replica caught up
+    private final Map<String, Long> recentWrites = new ConcurrentHashMap<>();
+    private volatile long lastBulkWrite;
 
     public MySQLManager() {
+        this(true);
+    }
+
+    /**
+     * @param required Whether the server should shut down if the database can't be reached,
+     *                 disable this for connections that are only used to convert data.
+     */
+    public MySQLManager(boolean required) {
         RyMessageUtils.sendConsole(true, "&aEnabling MySQL support.");
 
         Exception ex = connect();
@@ -28,25 +54,28 @@ public class MySQLManager {
         if (ex != null) {
             RyMessageUtils.sendConsole(true, "&cThere was an error connecting to your database. Here's the suspect: &e" + ex.getLocalizedMessage());
             ex.printStackTrace();
-            Bukkit.shutdown();
-        } else
-            RyMessageUtils.sendConsole(true, "&aManaged to successfully connect to: &e" + database + "&a!");
 
-        Tasks.runAsync(this::createTables);
+            if (required)
+                Bukkit.shutdown();
+            return;
+        }
+
+        RyMessageUtils.sendConsole(true, "&aManaged to successfully connect to: &e" + database + "&a!");
+
+        if (required && SimpleGems.getInstance().getConfigFile().getBoolean("mysql.replica.enabled", false))
+            connectReplica();
+
+        schema = createTables();
     }
 
     public Exception connect() {
         try {
-            HikariConfig config = new HikariConfig();
-
             Class.forName("org.mariadb.jdbc.Driver");
-            config.setDriverClassName("org.mariadb.jdbc.Driver");
-            config.setJdbcUrl("jdbc:mariadb://" + host + ':' + port + '/' + database);
-            config.setUsername(username);
-            config.setPassword(password);
-            config.addDataSourceProperty("cachePrepStmts", "true");
-            config.addDataSourceProperty("prepStmtCacheSize", "250");
-            config.addDataSourceProperty("prepStmtCacheSqlLimit", "2048");
+
+            HikariConfig config = createConfig(host, port, database, username, password);
+            config.setPoolName("SimpleGems-MySQL");
+            config.setMaximumPoolSize(SimpleGems.getInstance().getConfigFile().getInt("mysql.pool.maximum-pool-size", 10));
+            config.setMinimumIdle(SimpleGems.getInstance().getConfigFile().getInt("mysql.pool.minimum-idle", 10));
 
             hikariDataSource = new HikariDataSource(config);
         } catch (Exception exception) {
@@ -57,12 +86,124 @@ public class MySQLManager {
         return null;
     }
 
+    /**
+     * Open the read replica's pool, reads stay on the primary if it can't be reached.
+     */
+    private void connectReplica() {
+        String replicaHost = SimpleGems.getInstance().getConfigFile().getString("mysql.replica.host", host);
+        String replicaPort = SimpleGems.getInstance().getConfigFile().getString("mysql.replica.port", port);
+        String replicaDatabase = SimpleGems.getInstance().getConfigFile().getString("mysql.replica.database", database);
+
+        try {
+            HikariConfig config = createConfig(replicaHost, replicaPort, replicaDatabase,
+                    SimpleGems.getInstance().getConfigFile().getString("mysql.replica.username", username),
+                    SimpleGems.getInstance().getConfigFile().getString("mysql.replica.password", password));
+            config.setPoolName("SimpleGems-MySQL-Replica");
+            config.setMaximumPoolSize(SimpleGems.getInstance().getConfigFile().getInt("mysql.replica.maximum-pool-size", 5));
+            config.setMinimumIdle(SimpleGems.getInstance().getConfigFile().getInt("mysql.replica.minimum-idle", 5));
+            config.setReadOnly(true);
+
+            replicaDataSource = new HikariDataSource(config);
+            RyMessageUtils.sendConsole(true, "&aReading from the replica at: &e" + replicaHost + ':' + replicaPort + "&a!");
+        } catch (Exception exception) {
+            replicaDataSource = null;
+            RyMessageUtils.sendConsole(true, "&cCouldn't connect to the replica, every read goes to the primary. Here's the suspect: &e" + exception.getLocalizedMessage());
+        }
+    }
+
+    private HikariConfig createConfig(String host, String port, String database, String username, String password) {
+        HikariConfig config = new HikariConfig();
+
+        config.setDriverClassName("org.mariadb.jdbc.Driver");
+        config.setJdbcUrl("jdbc:mariadb://" + host + ':' + port + '/' + database);
+        config.setUsername(username);
+        config.setPassword(password);
+        config.setConnectionTimeout(SimpleGems.getInstance().getConfigFile().getLong("mysql.pool.connection-timeout", 5000));
+        config.setIdleTimeout(SimpleGems.getInstance().getConfigFile().getLong("mysql.pool.idle-timeout", 600000));
+        config.setMaxLifetime(SimpleGems.getInstance().getConfigFile().getLong("mysql.pool.max-lifetime", 1800000));
+        config.setKeepaliveTime(SimpleGems.getInstance().getConfigFile().getLong("mysql.pool.keepalive-time", 0));
+        config.setLeakDetectionThreshold(SimpleGems.getInstance().getConfigFile().getLong("mysql.pool.leak-detection-threshold", 0));
+        config.addDataSourceProperty("cachePrepStmts", "true");
+        config.addDataSourceProperty("prepStmtCacheSize", "250");
+        config.addDataSourceProperty("prepStmtCacheSqlLimit", "2048");
+        // Prepare hot statements once on the server and reuse them per connection
+        config.addDataSourceProperty("useServerPrepStmts", "true");
+
+        ConfigurationSection properties = SimpleGems.getInstance().getConfigFile().getConfigurationSection("mysql.properties");
+
+        if (properties != null) {
+            for (String key : properties.getKeys(false))
+                config.addDataSourceProperty(key, String.valueOf(properties.get(key)));
+        }
+
+        return config;
+    }
+
+    /**
+     * @return The pool's connection counts, or null if the pool isn't running.
+     */
+    public HikariPoolMXBean getPoolStats() {
+        if (hikariDataSource == null)
+            return null;
+
+        return hikariDataSource.getHikariPoolMXBean();
+    }
+
+    /**
+     * @return The replica pool's connection counts, or null if no replica is used.
+     */
+    public HikariPoolMXBean getReplicaPoolStats() {
+        if (replicaDataSource == null)
+            return null;
+
+        return replicaDataSource.getHikariPoolMXBean();
+    }
+
     public void shutdown() {
         close();
     }
 
-    public void createTables() {
-        createTable("SimpleGems", "uuid VARCHAR(36) NOT NULL PRIMARY KEY, name VARCHAR(16), gems BIGINT(50)");
+    public CompletableFuture<Void> createTables() {
+        return CompletableFuture.allOf(createTable("SimpleGems", "uuid VARCHAR(36) NOT NULL PRIMARY KEY, name VARCHAR(16), gems BIGINT(50)"),
+                createTable("SimpleGemsLedger", "id BIGINT NOT NULL AUTO_INCREMENT PRIMARY KEY, time BIGINT NOT NULL, actor VARCHAR(36), " +
+                        "target VARCHAR(36) NOT NULL, delta BIGINT, reason VARCHAR(16) NOT NULL, balance BIGINT, " +
+                        "INDEX ledger_target_time (target, time), INDEX ledger_time (time)"))
+                .thenCompose(ignored -> migrateSchema());
+    }
+
+    private CompletableFuture<Void> migrateSchema() {
+        return SimpleGems.getInstance().getStorageExecutor().execute(StorageOperation.SCHEMA, () -> {
+            try (Connection resource = getConnection()) {
+                SchemaMigrator migrator = new SchemaMigrator(DataType.MYSQL);
+                int version = migrator.migrate(resource, SimpleGems.getInstance().getSettings().STORAGE_SCHEMA_VERSION);
+                binaryUuids = version >= SchemaMigrator.BINARY_UUIDS;
+
+                // Keep reading balances in the units they're stored in if they couldn't be moved
+                int scale = migrator.rescale(resource, GemAmount.getScale());
+
+                if (scale != GemAmount.getScale() && SimpleGems.getInstance().getDataType() == DataType.MYSQL)
+                    GemAmount.setScale(scale);
+            } catch (SQLException exception) {
+                RyMessageUtils.sendConsole(true, "An error occurred while reading the database schema version.");
+                exception.printStackTrace();
+                throw new CompletionException(exception);
+            }
+        });
+    }
+
+    /**
+     * Wait until the tables exist and the schema has been migrated,
+     * so no query runs against a table that is being rebuilt.
+     */
+    public void awaitSchema() {
+        if (schema == null)
+            return;
+
+        try {
+            schema.join();
+        } catch (CompletionException exception) {
+            RyMessageUtils.sendConsole(true, "&cCouldn't prepare the database tables.");
+        }
     }
 
     public boolean isInitiated() {
@@ -70,7 +211,11 @@ public class MySQLManager {
     }
 
     public void close() {
-        this.hikariDataSource.close();
+        if (this.replicaDataSource != null)
+            this.replicaDataSource.close();
+
+        if (this.hikariDataSource != null)
+            this.hikariDataSource.close();
     }
 
 
@@ -82,26 +227,97 @@ public class MySQLManager {
         return hikariDataSource.getConnection();
     }
 
+    /**
+     * @return A new connection to the replica, or to the primary if there's no replica,
+     * it's unreachable or every player may have been written within the sticky window.
+     * @throws SQLException
+     */
+    public Connection getReadConnection() throws SQLException {
+        return getReadConnection(null);
+    }
+
+    private Connection getReadConnection(Object[] uuids) throws SQLException {
+        if (replicaDataSource == null || isSticky(uuids))
+            return getConnection();
+
+        try {
+            return replicaDataSource.getConnection();
+        } catch (SQLException exception) {
+            RyMessageUtils.sendConsole(true, "&cCouldn't read from the replica, falling back to the primary: &e" + exception.getLocalizedMessage());
+            return getConnection();
+        }
+    }
+
+    /**
+     * @param uuids The players that are read, null for reads that scan the table.
+     * @return Whether the read has to go to the primary as the replica may not have the latest writes yet.
+     */
+    private boolean isSticky(Object[] uuids) {
+        long now = System.currentTimeMillis();
+
+        if (now - lastBulkWrite < stickyWindow)
+            return true;
+
+        // Scans only stick to bulk writes, online players' balances are merged in from memory
+        if (uuids == null)
+            return false;
+
+        for (Object uuid : uuids) {
+            Long written = recentWrites.get(String.valueOf(uuid));
+
+            if (written != null && now - written < stickyWindow)
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * Remember which players a write changed, so reading them sticks to the primary for a while.
+     *
+     * @param query The statement that was written.
+     * @param rows  The values it was written with, one array per row.
+     */
+    private void written(SqlQuery query, List<Object[]> rows) {
+        if (replicaDataSource == null || query.getKey() == SqlQuery.NO_PLAYER)
+            return;
+
+        long now = System.currentTimeMillis();
+
+        if (query.getKey() == SqlQuery.ANY_PLAYER) {
+            markBulkWrite();
+            return;
+        }
+
+        for (Object[] row : rows)
+            recentWrites.put(String.valueOf(row[query.getKey()]), now);
+
+        if (recentWrites.size() > 1000)
+            recentWrites.values().removeIf(written -> now - written >= stickyWindow);
+    }
+
+    /**
+     * Send every read to the primary for the sticky window, after a write that may have changed any player.
+     */
+    public void markBulkWrite() {
+        lastBulkWrite = System.currentTimeMillis();
+    }
+
     /**
      * Create a new table in the database.
      *
      * @param name The name of the table.
      * @param info The table info between the round VALUES() brackets.
      */
-    public void createTable(String name, String info) {
-        new Thread(() -> {
+    public CompletableFuture<Void> createTable(String name, String info) {
+        return SimpleGems.getInstance().getStorageExecutor().execute(StorageOperation.SCHEMA, () -> {
             try (Connection resource = getConnection(); PreparedStatement statement = resource.prepareStatement("CREATE TABLE IF NOT EXISTS " + name + "(" + info + ");")) {
                 statement.execute();
-                statement.closeOnCompletion();
             } catch (SQLException exception) {
                 RyMessageUtils.sendConsole(true, "An error occurred while creating database table " + name + ".");
                 exception.printStackTrace();
-            } finally {
-                Thread.currentThread().interrupt();
+                throw new CompletionException(exception);
             }
-
-            Thread.currentThread().interrupt();
-        }).start();
+        });
     }
 
     /**
@@ -110,24 +326,79 @@ public class MySQLManager {
      * @param query  The statement to the database.
      * @param values The values to be inserted into the statement.
      */
-    public void execute(String query, Object... values) {
-        new Thread(() -> {
-            try (Connection resource = getConnection(); PreparedStatement statement = resource.prepareStatement(query)) {
-                for (int i = 0; i < values.length; i++)
-                    statement.setObject((i + 1), values[i]);
+    public CompletableFuture<Void> execute(String query, Object... values) {
+        return execute(Queries.of(query), values);
+    }
 
+    /**
+     * Execute an update to the database.
+     *
+     * @param query  The statement to the database.
+     * @param values The values to be inserted into the statement.
+     */
+    public CompletableFuture<Void> execute(SqlQuery query, Object... values) {
+        return SimpleGems.getInstance().getStorageExecutor().execute(StorageOperation.WRITE, () -> {
+            try (QueryMetrics.Timer timer = queryMetrics.time(query.getSql());
+                 Connection resource = timer.acquired(getConnection());
+                 PreparedStatement statement = resource.prepareStatement(query.getSql())) {
+                query.bind(statement, values, binaryUuids);
                 statement.execute();
-                statement.closeOnCompletion();
+                written(query, Collections.singletonList(values));
             } catch (SQLException exception) {
                 RyMessageUtils.sendConsole(true, "An error occurred while executing an update on the database.");
                 RyMessageUtils.sendConsole(true, "MySQL#execute : " + query);
                 exception.printStackTrace();
-            } finally {
-                Thread.currentThread().interrupt();
+                throw new CompletionException(exception);
+            }
+        }, new WriteJournal.Entry(query.getSql(), values));
+    }
+
+    /**
+     * Execute an update to the database and report how many rows it changed.
+     *
+     * @param query  The statement to the database.
+     * @param values The values to be inserted into the statement.
+     * @return A future completed with the affected row count.
+     */
+    public CompletableFuture<Integer> executeUpdate(String query, Object... values) {
+        return executeUpdate(Queries.of(query), values);
+    }
+
+    /**
+     * Execute an update to the database and report how many rows it changed.
+     *
+     * @param query  The statement to the database.
+     * @param values The values to be inserted into the statement.
+     * @return A future completed with the affected row count.
+     */
+    public CompletableFuture<Integer> executeUpdate(SqlQuery query, Object... values) {
+        return SimpleGems.getInstance().getStorageExecutor().submit(StorageOperation.WRITE, () -> {
+            try (QueryMetrics.Timer timer = queryMetrics.time(query.getSql());
+                 Connection resource = timer.acquired(getConnection());
+                 PreparedStatement statement = resource.prepareStatement(query.getSql())) {
+                query.bind(statement, values, binaryUuids);
+
+                int rows = statement.executeUpdate();
+                written(query, Collections.singletonList(values));
+                return rows;
+            } catch (SQLException exception) {
+                RyMessageUtils.sendConsole(true, "An error occurred while executing an update on the database.");
+                RyMessageUtils.sendConsole(true, "MySQL#executeUpdate : " + query);
+                exception.printStackTrace();
+                throw new CompletionException(exception);
             }
+        }, new WriteJournal.Entry(query.getSql(), values));
+    }
 
-            Thread.currentThread().interrupt();
-        }).start();
+    /**
+     * Execute a query to the database.
+     *
+     * @param query    The statement to the database.
+     * @param callback The data callback (Async).
+     * @param values   The values to be inserted into the statement.
+     */
+    public CompletableFuture<Void> select(String query, SelectCall callback, Object... values) {
+        return select(Queries.of(query), callback, values);
     }
 
     /**
@@ -137,31 +408,214 @@ public class MySQLManager {
      * @param callback The data callback (Async).
      * @param values   The values to be inserted into the statement.
      */
-    public void select(String query, SelectCall callback, Object... values) {
-        new Thread(() -> {
-            try (Connection resource = getConnection(); PreparedStatement statement = resource.prepareStatement(query)) {
-                for (int i = 0; i < values.length; i++)
-                    statement.setObject((i + 1), values[i]);
+    public CompletableFuture<Void> select(SqlQuery query, SelectCall callback, Object... values) {
+        return select(query, false, null, callback, values);
+    }
+
+    /**
+     * Execute a query to the replica, falling back to the primary.
+     * Meant for scans that may lag behind a little, unless every player may have just been written.
+     *
+     * @param query    The statement to the database.
+     * @param callback The data callback (Async).
+     * @param values   The values to be inserted into the statement.
+     */
+    public CompletableFuture<Void> selectReplica(SqlQuery query, SelectCall callback, Object... values) {
+        return select(query, true, null, callback, values);
+    }
+
+    /**
+     * @param replica Whether the query may go to the replica.
+     * @param uuids   The players that are read, whose recent writes make the query stick to the primary.
+     */
+    private CompletableFuture<Void> select(SqlQuery query, boolean replica, Object[] uuids, SelectCall callback, Object... values) {
+        return SimpleGems.getInstance().getStorageExecutor().execute(StorageOperation.READ, () -> {
+            try (QueryMetrics.Timer timer = queryMetrics.time(query.getSql());
+                 Connection resource = timer.acquired(replica ? getReadConnection(uuids) : getConnection());
+                 PreparedStatement statement = resource.prepareStatement(query.getSql())) {
+                query.bind(statement, values, binaryUuids);
 
-                callback.call(statement.executeQuery());
-                statement.closeOnCompletion();
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    callback.call(resultSet);
+                }
             } catch (SQLException exception) {
                 RyMessageUtils.sendConsole(true, "An error occurred while executing a query on the database.");
                 RyMessageUtils.sendConsole(true, "MySQL#select : " + query);
                 exception.printStackTrace();
-            } finally {
-                Thread.currentThread().interrupt();
+                throw new CompletionException(exception);
+            }
+        });
+    }
+
+    /**
+     * Execute the same update for every set of values in a single batch and transaction.
+     *
+     * @param query  The statement to the database.
+     * @param values The values to be inserted into the statement, one array per batch entry.
+     */
+    public CompletableFuture<Void> executeBatch(String query, List<Object[]> values) {
+        return executeBatch(Queries.of(query), values);
+    }
+
+    /**
+     * Execute the same update for every set of values in a single batch and transaction.
+     *
+     * @param query  The statement to the database.
+     * @param values The values to be inserted into the statement, one array per batch entry.
+     */
+    public CompletableFuture<Void> executeBatch(SqlQuery query, List<Object[]> values) {
+        return SimpleGems.getInstance().getStorageExecutor().execute(StorageOperation.WRITE, () -> {
+            try (QueryMetrics.Timer timer = queryMetrics.time(query.getSql()); Connection resource = timer.acquired(getConnection())) {
+                resource.setAutoCommit(false);
+
+                try (PreparedStatement statement = resource.prepareStatement(query.getSql())) {
+                    for (Object[] batch : values) {
+                        query.bind(statement, batch, binaryUuids);
+                        statement.addBatch();
+                    }
+
+                    statement.executeBatch();
+                    resource.commit();
+                    written(query, values);
+                } catch (SQLException exception) {
+                    resource.rollback();
+                    throw exception;
+                } finally {
+                    resource.setAutoCommit(true);
+                }
+            } catch (SQLException exception) {
+                RyMessageUtils.sendConsole(true, "An error occurred while executing a batch update on the database.");
+                RyMessageUtils.sendConsole(true, "MySQL#executeBatch : " + query);
+                exception.printStackTrace();
+                throw new CompletionException(exception);
+            }
+        }, new WriteJournal.Entry(query.getSql(), values));
+    }
+
+    /**
+     * Load a player's balance, creating their row if it doesn't exist yet and
+     * refreshing their name, on a single connection and in a single transaction.
+     *
+     * @param uuid The player's uuid.
+     * @param name The player's current name.
+     * @return A future completed with the player's balance, in units.
+     */
+    public CompletableFuture<Long> loadPlayer(String uuid, String name) {
+        return SimpleGems.getInstance().getStorageExecutor().submit(StorageOperation.WRITE, () -> {
+            // MariaDB leaves the row untouched when the name is unchanged
+            try (QueryMetrics.Timer timer = queryMetrics.time(Queries.LOAD_PLAYER_MYSQL.getSql());
+                 Connection resource = timer.acquired(getConnection());
+                 PreparedStatement upsert = resource.prepareStatement(Queries.LOAD_PLAYER_MYSQL.getSql());
+                 PreparedStatement select = resource.prepareStatement(Queries.SELECT_GEMS.getSql())) {
+                resource.setAutoCommit(false);
+
+                try {
+                    Queries.LOAD_PLAYER_MYSQL.bind(upsert, new Object[]{uuid, name}, binaryUuids);
+                    upsert.executeUpdate();
+
+                    Queries.SELECT_GEMS.bind(select, new Object[]{uuid}, binaryUuids);
+
+                    long gems = 0;
+
+                    try (ResultSet resultSet = select.executeQuery()) {
+                        if (resultSet.next())
+                            gems = resultSet.getLong("gems");
+                    }
+
+                    resource.commit();
+                    written(Queries.LOAD_PLAYER_MYSQL, Collections.singletonList(new Object[]{uuid, name}));
+                    return gems;
+                } catch (SQLException exception) {
+                    resource.rollback();
+                    throw exception;
+                } finally {
+                    resource.setAutoCommit(true);
+                }
+            } catch (SQLException exception) {
+                RyMessageUtils.sendConsole(true, "An error occurred while loading " + name + " from the database.");
+                exception.printStackTrace();
+                throw new CompletionException(exception);
             }
+        });
+    }
+
+    public CompletableFuture<Void> updatePlayerGems(String uuid, long gems) {
+        return execute(Queries.UPDATE_GEMS, gems, uuid);
+    }
+
+    public CompletableFuture<Void> updatePlayerName(String uuid, String name) {
+        return execute(Queries.UPDATE_NAME, name, uuid);
+    }
+
+    /**
+     * Add to a player's stored balance without reading it first.
+     *
+     * @return A future completed with true if the player's row exists.
+     */
+    public CompletableFuture<Boolean> addPlayerGems(String uuid, long amount) {
+        return executeUpdate(Queries.ADD_GEMS, amount, uuid)
+                .thenApply(rows -> rows > 0);
+    }
+
+    /**
+     * Take from a player's stored balance, only if they have enough.
+     *
+     * @return A future completed with true if the gems were taken.
+     */
+    public CompletableFuture<Boolean> takePlayerGems(String uuid, long amount) {
+        return executeUpdate(Queries.TAKE_GEMS, amount, uuid, amount)
+                .thenApply(rows -> rows > 0);
+    }
 
-            Thread.currentThread().interrupt();
-        }).start();
+    /**
+     * Add to every stored balance in a single set-based update.
+     *
+     * @return A future completed with the amount of players changed.
+     */
+    public CompletableFuture<Integer> addAllGems(long amount) {
+        return executeUpdate(Queries.ADD_ALL_GEMS, amount);
     }
 
-    public void updatePlayerGems(String uuid, double gems) {
-        execute("UPDATE SimpleGems SET gems=? WHERE uuid=?", gems, uuid);
+    /**
+     * Read a player's stored balance, from the replica unless they were just written.
+     *
+     * @return A future completed with the balance in units, 0 if the player has no data.
+     */
+    public CompletableFuture<Long> getPlayerGems(String uuid) {
+        CompletableFuture<Long> future = new CompletableFuture<>();
+
+        select(Queries.SELECT_GEMS, true, new Object[]{uuid}, resultSet ->
+                future.complete(resultSet.next() ? resultSet.getLong("gems") : 0L), uuid)
+                .whenComplete((ignored, throwable) -> {
+                    if (throwable != null)
+                        future.completeExceptionally(throwable);
+                });
+
+        return future;
     }
 
-    public void updatePlayerName(String uuid, String name) {
-        execute("UPDATE SimpleGems SET name=? WHERE uuid=?", name, uuid);
+    /**
+     * Read the stored balances of many players, a chunk of uuids per query,
+     * from the replica unless one of them was just written.
+     *
+     * @return A future completed with the balances in units of the players that have data.
+     */
+    public CompletableFuture<Map<String, Long>> getPlayersGems(Collection<String> uuids) {
+        Map<String, Long> balances = new ConcurrentHashMap<>();
+        List<String> remaining = new ArrayList<>(uuids);
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+
+        for (int start = 0; start < remaining.size(); start += 500) {
+            List<String> chunk = remaining.subList(start, Math.min(start + 500, remaining.size()));
+
+            Object[] keys = chunk.toArray();
+
+            futures.add(select(Queries.selectGemsIn(chunk.size()), true, keys, resultSet -> {
+                while (resultSet.next())
+                    balances.put(Uuids.read(resultSet, "uuid"), resultSet.getLong("gems"));
+            }, keys));
+        }
+
+        return CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).thenApply(ignored -> balances);
     }
 }
\ No newline at end of file
@@ -0,0 +1,93 @@
+package me.refracdevelopment.simplegems.managers.data;
+
+import me.refracdevelopment.simplegems.managers.data.SqlQuery.Param;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Every statement run on the hot paths, with the types of its parameters. Balances are bound in units.
+ * Statements passed as plain text are looked up here, so journaled writes are bound the same way.
+ */
+public final class Queries {
+
+    private static final Map<String, SqlQuery> REGISTRY = new ConcurrentHashMap<>();
+
+    public static final SqlQuery SELECT_GEMS = register("SELECT gems FROM SimpleGems WHERE uuid=?", Param.UUID);
+    public static final SqlQuery SELECT_PLAYERS = register("SELECT uuid, name, gems FROM SimpleGems");
+    public static final SqlQuery SELECT_TOP = register("SELECT uuid, name, gems FROM SimpleGems ORDER BY gems DESC LIMIT ?", Param.INT);
+    public static final SqlQuery UPDATE_GEMS = register("UPDATE SimpleGems SET gems=? WHERE uuid=?", 1, Param.UNITS, Param.UUID);
+    public static final SqlQuery UPDATE_NAME = register("UPDATE SimpleGems SET name=? WHERE uuid=?", 1, Param.STRING, Param.UUID);
+    public static final SqlQuery ADD_GEMS = register("UPDATE SimpleGems SET gems = gems + ? WHERE uuid=?", 1, Param.UNITS, Param.UUID);
+    public static final SqlQuery TAKE_GEMS = register("UPDATE SimpleGems SET gems = gems - ? WHERE uuid=? AND gems >= ?", 1, Param.UNITS, Param.UUID, Param.UNITS);
+    public static final SqlQuery ADD_ALL_GEMS = register("UPDATE SimpleGems SET gems = gems + ?", Param.UNITS);
+    public static final SqlQuery LOAD_PLAYER_MYSQL = register("INSERT INTO SimpleGems (uuid, name, gems) VALUES (?,?,0) ON DUPLICATE KEY UPDATE name=VALUES(name)",
+            0, Param.UUID, Param.STRING);
+    public static final SqlQuery LOAD_PLAYER_SQLITE = register("INSERT INTO SimpleGems (uuid, name, gems) VALUES (?,?,0) " +
+            "ON CONFLICT(uuid) DO UPDATE SET name=excluded.name WHERE SimpleGems.name IS NOT excluded.name RETURNING gems", 0, Param.UUID, Param.STRING);
+    public static final SqlQuery UPSERT_MYSQL = register("INSERT INTO SimpleGems (uuid, name, gems) VALUES (?, ?, ?) " +
+            "ON DUPLICATE KEY UPDATE name=VALUES(name), gems=VALUES(gems)", 0, Param.UUID, Param.STRING, Param.UNITS);
+    public static final SqlQuery UPSERT_SQLITE = register("INSERT INTO SimpleGems (uuid, name, gems) VALUES (?, ?, ?) " +
+            "ON CONFLICT(uuid) DO UPDATE SET name=excluded.name, gems=excluded.gems", 0, Param.UUID, Param.STRING, Param.UNITS);
+
+    private static final String SELECT_GEMS_IN = "SELECT uuid, gems FROM SimpleGems WHERE uuid IN (";
+    private static final String SELECT_PLAYERS_IN = "SELECT uuid, name, gems FROM SimpleGems WHERE uuid IN (";
+    private static final String INSERT_LEDGER = "INSERT INTO SimpleGemsLedger (time, actor, target, delta, reason, balance) VALUES ";
+    private static final String LEDGER_ROW = "(?, ?, ?, ?, ?, ?)";
+    private static final Param[] LEDGER_PARAMS = {Param.LONG, Param.STRING, Param.STRING, Param.UNITS, Param.STRING, Param.UNITS};
+
+    private Queries() {
+    }
+
+    private static SqlQuery register(String sql, Param... params) {
+        return register(sql, SqlQuery.ANY_PLAYER, params);
+    }
+
+    private static SqlQuery register(String sql, int key, Param... params) {
+        SqlQuery query = new SqlQuery(sql, key, params);
+        REGISTRY.put(sql, query);
+        return query;
+    }
+
+    /**
+     * @param sql The statement.
+     * @return The registered query, or one binding every value as an object if it isn't registered.
+     */
+    public static SqlQuery of(String sql) {
+        SqlQuery query = REGISTRY.get(sql);
+
+        if (query != null)
+            return query;
+
+        // Ledger inserts are built for the amount of entries in a batch
+        if (sql.startsWith(INSERT_LEDGER))
+            return new SqlQuery(sql, SqlQuery.NO_PLAYER, LEDGER_PARAMS);
+
+        return new SqlQuery(sql);
+    }
+
+    /**
+     * @param count The amount of uuids.
+     * @return A query reading the balances of that many players.
+     */
+    public static SqlQuery selectGemsIn(int count) {
+        return new SqlQuery(SELECT_GEMS_IN + String.join(",", Collections.nCopies(count, "?")) + ")", Param.UUID);
+    }
+
+    /**
+     * @param count The amount of uuids.
+     * @return A query reading that many players.
+     */
+    public static SqlQuery selectPlayersIn(int count) {
+        return new SqlQuery(SELECT_PLAYERS_IN + String.join(",", Collections.nCopies(count, "?")) + ")", Param.UUID);
+    }
+
+    /**
+     * @param rows The amount of entries.
+     * @return A query inserting that many ledger entries at once.
+     */
+    public static SqlQuery insertLedger(int rows) {
+        return new SqlQuery(INSERT_LEDGER + String.join(", ", Collections.nCopies(rows, LEDGER_ROW)), SqlQuery.NO_PLAYER, LEDGER_PARAMS);
+    }
+}
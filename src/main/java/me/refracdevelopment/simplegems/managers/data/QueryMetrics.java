@@ -0,0 +1,66 @@
+package me.refracdevelopment.simplegems.managers.data;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+/**
+ * Latency of every query template run by a database manager.
+ */
+public class QueryMetrics {
+
+    // Collapses the variable parameter lists of IN (...) lookups and multi-row inserts
+    private static final Pattern PARAMETER_LIST = Pattern.compile("\\?(\\s*,\\s*\\?)+");
+    private static final Pattern ROW_LIST = Pattern.compile("\\(\\?\\)(\\s*,\\s*\\(\\?\\))+");
+
+    private final Map<String, LatencyRecorder> recorders = new ConcurrentHashMap<>();
+
+    /**
+     * Start timing a query, meant to be opened in a try-with-resources block
+     * before the connection so the pool wait is included.
+     *
+     * @param query The statement sent to the database.
+     */
+    public Timer time(String query) {
+        return new Timer(query);
+    }
+
+    public Map<String, LatencyRecorder> getRecorders() {
+        return recorders;
+    }
+
+    private String normalize(String query) {
+        String template = PARAMETER_LIST.matcher(query).replaceAll("?");
+        return ROW_LIST.matcher(template).replaceAll("(?)");
+    }
+
+    public final class Timer implements AutoCloseable {
+
+        private final String query;
+        private final long start = System.nanoTime();
+        private long acquired;
+
+        private Timer(String query) {
+            this.query = query;
+        }
+
+        /**
+         * Mark the connection as acquired.
+         *
+         * @param resource The connection taken from the pool.
+         * @return The same connection.
+         */
+        public <T> T acquired(T resource) {
+            acquired = System.nanoTime();
+            return resource;
+        }
+
+        @Override
+        public void close() {
+            long end = System.nanoTime();
+            long wait = acquired == 0 ? end - start : acquired - start;
+
+            recorders.computeIfAbsent(normalize(query), ignored -> new LatencyRecorder()).record(end - start, wait);
+        }
+    }
+}
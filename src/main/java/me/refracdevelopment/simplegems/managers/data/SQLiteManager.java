@@ -2,19 +2,40 @@ package me.refracdevelopment.simplegems.managers.data;
 
 import lombok.Getter;
 import me.refracdevelopment.simplegems.SimpleGems;
-import me.refracdevelopment.simplegems.utilities.Tasks;
+import me.refracdevelopment.simplegems.player.stats.GemAmount;
 import me.refracdevelopment.simplegems.utilities.chat.RyMessageUtils;
 import org.bukkit.Bukkit;
+import org.sqlite.SQLiteConfig;
 import org.sqlite.SQLiteDataSource;
 
 import java.sql.Connection;
 import java.sql.PreparedStatement;
+import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 
 @Getter
 public class SQLiteManager {
 
+    private static final int STATEMENT_CACHE_SIZE = 64;
+
+    private final boolean walMode = SimpleGems.getInstance().getSettings().SQLITE_WAL_MODE;
+    private final int readConnections = SimpleGems.getInstance().getSettings().SQLITE_READ_CONNECTIONS;
     private SQLiteDataSource dataSource;
+    private SQLiteDataSource readDataSource;
+    private Connection writer;
+    private BlockingQueue<Connection> readers;
+    // Statements stay prepared on the long-lived connections, a connection is only used by one task at a time
+    private final Map<Connection, StatementCache> statements = new ConcurrentHashMap<>();
+    private final QueryMetrics queryMetrics = new QueryMetrics();
+    private CompletableFuture<Void> schema;
+    private volatile boolean binaryUuids;
 
     public SQLiteManager(String path) {
         RyMessageUtils.sendConsole(true, "&aEnabling SQLite support.");
@@ -28,14 +49,39 @@ public class SQLiteManager {
         } else
             RyMessageUtils.sendConsole(true, "&aManaged to successfully connect to: &e" + path + "&a!");
 
-        Tasks.runAsync(this::createTables);
+        schema = createTables();
     }
 
     private Exception connect(String path) {
         try {
             Class.forName("org.sqlite.JDBC");
-            dataSource = new SQLiteDataSource();
+
+            if (!walMode) {
+                dataSource = new SQLiteDataSource();
+                dataSource.setUrl("jdbc:sqlite:" + path);
+                return null;
+            }
+
+            // One long-lived writer, WAL lets the readers run while it writes
+            SQLiteConfig writeConfig = new SQLiteConfig();
+            writeConfig.setJournalMode(SQLiteConfig.JournalMode.WAL);
+            writeConfig.setSynchronous(SQLiteConfig.SynchronousMode.NORMAL);
+            writeConfig.setBusyTimeout(5000);
+
+            dataSource = new SQLiteDataSource(writeConfig);
             dataSource.setUrl("jdbc:sqlite:" + path);
+            writer = dataSource.getConnection();
+
+            SQLiteConfig readConfig = new SQLiteConfig();
+            readConfig.setReadOnly(true);
+            readConfig.setBusyTimeout(5000);
+
+            readDataSource = new SQLiteDataSource(readConfig);
+            readDataSource.setUrl("jdbc:sqlite:" + path);
+            readers = new ArrayBlockingQueue<>(Math.max(1, readConnections));
+
+            for (int i = 0; i < Math.max(1, readConnections); i++)
+                readers.add(readDataSource.getConnection());
         } catch (Exception exception) {
             dataSource = null;
             return exception;
@@ -47,11 +93,55 @@ public class SQLiteManager {
         close();
     }
 
-    private void createTables() {
-        createTable("SimpleGems", "uuid VARCHAR(36) NOT NULL PRIMARY KEY, name VARCHAR(16), gems BIGINT(50)");
+    public CompletableFuture<Void> createTables() {
+        return CompletableFuture.allOf(createTable("SimpleGems", "uuid VARCHAR(36) NOT NULL PRIMARY KEY, name VARCHAR(16), gems BIGINT(50)"),
+                createTable("SimpleGemsLedger", "id INTEGER PRIMARY KEY AUTOINCREMENT, time BIGINT NOT NULL, actor VARCHAR(36), " +
+                        "target VARCHAR(36) NOT NULL, delta BIGINT, reason VARCHAR(16) NOT NULL, balance BIGINT"),
+                execute("CREATE INDEX IF NOT EXISTS ledger_target_time ON SimpleGemsLedger (target, time)"),
+                execute("CREATE INDEX IF NOT EXISTS ledger_time ON SimpleGemsLedger (time)"))
+                .thenCompose(ignored -> migrateSchema());
+    }
+
+    private CompletableFuture<Void> migrateSchema() {
+        // On the write thread, writes queued meanwhile run against the migrated table
+        return SimpleGems.getInstance().getStorageExecutor().execute(StorageOperation.WRITE, () -> {
+            try (Lease lease = lease(true)) {
+                SchemaMigrator migrator = new SchemaMigrator(DataType.SQLITE);
+                int version = migrator.migrate(lease.connection, SimpleGems.getInstance().getSettings().STORAGE_SCHEMA_VERSION);
+                binaryUuids = version >= SchemaMigrator.BINARY_UUIDS;
+
+                // Keep reading balances in the units they're stored in if they couldn't be moved
+                int scale = migrator.rescale(lease.connection, GemAmount.getScale());
+
+                if (scale != GemAmount.getScale() && SimpleGems.getInstance().getDataType() == DataType.SQLITE)
+                    GemAmount.setScale(scale);
+            } catch (SQLException exception) {
+                RyMessageUtils.sendConsole(true, "An error occurred while reading the database schema version.");
+                exception.printStackTrace();
+                throw new CompletionException(exception);
+            }
+        });
+    }
+
+    /**
+     * Wait until the tables exist and the schema has been migrated,
+     * so no query runs against a table that is being rebuilt.
+     */
+    public void awaitSchema() {
+        if (schema == null)
+            return;
+
+        try {
+            schema.join();
+        } catch (CompletionException exception) {
+            RyMessageUtils.sendConsole(true, "&cCouldn't prepare the database tables.");
+        }
     }
 
     public boolean isInitiated() {
+        if (walMode)
+            return writer != null;
+
         try {
             return dataSource.getConnection() != null;
         } catch (SQLException e) {
@@ -62,36 +152,157 @@ public class SQLiteManager {
 
     public void close() {
         try {
-            dataSource.getConnection().close();
+            // Without WAL every task opens and closes its own connection
+            if (!walMode)
+                return;
+
+            // Closing a connection closes its statements as well
+            statements.clear();
+
+            if (writer != null)
+                writer.close();
+
+            Connection reader;
+
+            while ((reader = readers.poll()) != null)
+                reader.close();
         } catch (SQLException e) {
             e.printStackTrace();
         }
     }
 
     /**
-     * @return A new database connecting, provided by the Hikari pool.
+     * @return A new database connection, separate from the writer and reader connections.
      * @throws SQLException
      */
     public Connection getConnection() throws SQLException {
         return dataSource.getConnection();
     }
 
+    /**
+     * Borrow a connection for a single task. In WAL mode this is the shared writer
+     * or one of the read-only connections, otherwise a fresh connection.
+     *
+     * @param write Whether the task modifies the database.
+     * @return A lease which hands the connection back once closed.
+     * @throws SQLException
+     */
+    private Lease lease(boolean write) throws SQLException {
+        if (!walMode)
+            return new Lease(dataSource.getConnection(), false);
+
+        if (write) {
+            // Only ever used from the single write thread
+            if (writer == null || writer.isClosed()) {
+                if (writer != null)
+                    statements.remove(writer);
+
+                writer = dataSource.getConnection();
+            }
+
+            return new Lease(writer, true);
+        }
+
+        try {
+            Connection reader = readers.poll(5, TimeUnit.SECONDS);
+
+            if (reader == null)
+                throw new SQLException("Timed out waiting for a read connection.");
+
+            if (reader.isClosed()) {
+                statements.remove(reader);
+                reader = readDataSource.getConnection();
+            }
+
+            return new Lease(reader, true);
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a read connection.", exception);
+        }
+    }
+
+    private final class Lease implements AutoCloseable {
+
+        private final Connection connection;
+        private final boolean pooled;
+
+        private Lease(Connection connection, boolean pooled) {
+            this.connection = connection;
+            this.pooled = pooled;
+        }
+
+        /**
+         * Prepare a statement, reusing the one prepared earlier on a long-lived connection.
+         * The statement must not be closed by the caller.
+         *
+         * @param query The statement to the database.
+         * @return The prepared statement.
+         * @throws SQLException
+         */
+        private PreparedStatement prepare(String query) throws SQLException {
+            // Statements on a fresh connection are closed along with it
+            if (!pooled)
+                return connection.prepareStatement(query);
+
+            StatementCache cache = statements.computeIfAbsent(connection, ignored -> new StatementCache());
+            PreparedStatement statement = cache.get(query);
+
+            if (statement == null || statement.isClosed()) {
+                statement = connection.prepareStatement(query);
+                cache.put(query, statement);
+            }
+
+            return statement;
+        }
+
+        @Override
+        public void close() throws SQLException {
+            if (!pooled)
+                connection.close();
+            else if (connection != writer)
+                readers.offer(connection);
+        }
+    }
+
+    /**
+     * The most recently used statements of a single connection, closing the ones that fall out.
+     */
+    private static final class StatementCache extends LinkedHashMap<String, PreparedStatement> {
+
+        private StatementCache() {
+            super(16, 0.75f, true);
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, PreparedStatement> eldest) {
+            if (size() <= STATEMENT_CACHE_SIZE)
+                return false;
+
+            try {
+                eldest.getValue().close();
+            } catch (SQLException ignored) {
+            }
+            return true;
+        }
+    }
+
     /**
      * Create a new table in the database.
      *
      * @param name The name of the table.
      * @param info The table info between the round VALUES() brackets.
      */
-    public void createTable(String name, String info) {
-        new Thread(() -> {
-            try (Connection resource = getConnection(); PreparedStatement statement = resource.prepareStatement("CREATE TABLE IF NOT EXISTS " + name + "(" + info + ");")) {
+    public CompletableFuture<Void> createTable(String name, String info) {
+        // Runs on the write thread as well so the writer connection is never shared
+        return SimpleGems.getInstance().getStorageExecutor().execute(StorageOperation.WRITE, () -> {
+            try (Lease lease = lease(true); PreparedStatement statement = lease.connection.prepareStatement("CREATE TABLE IF NOT EXISTS " + name + "(" + info + ");")) {
                 statement.execute();
-                statement.closeOnCompletion();
             } catch (SQLException exception) {
                 RyMessageUtils.sendConsole(true, "An error occurred while creating database table " + name + ".");
                 exception.printStackTrace();
+                throw new CompletionException(exception);
             }
-        }).start();
+        });
     }
 
     /**
@@ -100,24 +311,62 @@ public class SQLiteManager {
      * @param query  The statement to the database.
      * @param values The values to be inserted into the statement.
      */
-    public void execute(String query, Object... values) {
-        new Thread(() -> {
-            try (Connection resource = getConnection(); PreparedStatement statement = resource.prepareStatement(query)) {
-                for (int i = 0; i < values.length; i++)
-                    statement.setObject((i + 1), values[i]);
+    public CompletableFuture<Void> execute(String query, Object... values) {
+        return execute(Queries.of(query), values);
+    }
 
+    /**
+     * Execute an update to the database.
+     *
+     * @param query  The statement to the database.
+     * @param values The values to be inserted into the statement.
+     */
+    public CompletableFuture<Void> execute(SqlQuery query, Object... values) {
+        return SimpleGems.getInstance().getStorageExecutor().execute(StorageOperation.WRITE, () -> {
+            try (QueryMetrics.Timer timer = queryMetrics.time(query.getSql()); Lease lease = timer.acquired(lease(true))) {
+                PreparedStatement statement = lease.prepare(query.getSql());
+                query.bind(statement, values, binaryUuids);
                 statement.execute();
-                statement.closeOnCompletion();
             } catch (SQLException exception) {
                 RyMessageUtils.sendConsole(true, "An error occurred while executing an update on the database.");
                 RyMessageUtils.sendConsole(true, "SQLite#execute : " + query);
                 exception.printStackTrace();
-            } finally {
-                Thread.currentThread().interrupt();
+                throw new CompletionException(exception);
             }
+        }, new WriteJournal.Entry(query.getSql(), values));
+    }
 
-            Thread.currentThread().interrupt();
-        }).start();
+    /**
+     * Execute an update to the database and report how many rows it changed.
+     *
+     * @param query  The statement to the database.
+     * @param values The values to be inserted into the statement.
+     * @return A future completed with the affected row count.
+     */
+    public CompletableFuture<Integer> executeUpdate(String query, Object... values) {
+        return executeUpdate(Queries.of(query), values);
+    }
+
+    /**
+     * Execute an update to the database and report how many rows it changed.
+     *
+     * @param query  The statement to the database.
+     * @param values The values to be inserted into the statement.
+     * @return A future completed with the affected row count.
+     */
+    public CompletableFuture<Integer> executeUpdate(SqlQuery query, Object... values) {
+        return SimpleGems.getInstance().getStorageExecutor().submit(StorageOperation.WRITE, () -> {
+            try (QueryMetrics.Timer timer = queryMetrics.time(query.getSql()); Lease lease = timer.acquired(lease(true))) {
+                PreparedStatement statement = lease.prepare(query.getSql());
+                query.bind(statement, values, binaryUuids);
+                return statement.executeUpdate();
+            } catch (SQLException exception) {
+                RyMessageUtils.sendConsole(true, "An error occurred while executing an update on the database.");
+                RyMessageUtils.sendConsole(true, "SQLite#executeUpdate : " + query);
+                exception.printStackTrace();
+                throw new CompletionException(exception);
+            }
+        }, new WriteJournal.Entry(query.getSql(), values));
     }
 
     /**
@@ -127,31 +376,192 @@ public class SQLiteManager {
      * @param callback The data callback (Async).
      * @param values   The values to be inserted into the statement.
      */
-    public void select(String query, SelectCall callback, Object... values) {
-        new Thread(() -> {
-            try (Connection resource = getConnection(); PreparedStatement statement = resource.prepareStatement(query)) {
-                for (int i = 0; i < values.length; i++)
-                    statement.setObject((i + 1), values[i]);
+    public CompletableFuture<Void> select(String query, SelectCall callback, Object... values) {
+        return select(Queries.of(query), callback, values);
+    }
 
-                callback.call(statement.executeQuery());
-                statement.closeOnCompletion();
+    /**
+     * Execute a query to the database.
+     *
+     * @param query    The statement to the database.
+     * @param callback The data callback (Async).
+     * @param values   The values to be inserted into the statement.
+     */
+    public CompletableFuture<Void> select(SqlQuery query, SelectCall callback, Object... values) {
+        return SimpleGems.getInstance().getStorageExecutor().execute(StorageOperation.READ, () -> {
+            try (QueryMetrics.Timer timer = queryMetrics.time(query.getSql()); Lease lease = timer.acquired(lease(false))) {
+                PreparedStatement statement = lease.prepare(query.getSql());
+                query.bind(statement, values, binaryUuids);
+
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    callback.call(resultSet);
+                }
             } catch (SQLException exception) {
                 RyMessageUtils.sendConsole(true, "An error occurred while executing a query on the database.");
                 RyMessageUtils.sendConsole(true, "SQLite#select : " + query);
                 exception.printStackTrace();
-            } finally {
-                Thread.currentThread().interrupt();
+                throw new CompletionException(exception);
             }
+        });
+    }
 
-            Thread.currentThread().interrupt();
-        }).start();
+    /**
+     * Execute the same update for every set of values in a single batch and transaction.
+     *
+     * @param query  The statement to the database.
+     * @param values The values to be inserted into the statement, one array per batch entry.
+     */
+    public CompletableFuture<Void> executeBatch(String query, List<Object[]> values) {
+        return executeBatch(Queries.of(query), values);
     }
 
-    public void updatePlayerGems(String uuid, double gems) {
-        execute("UPDATE SimpleGems SET gems=? WHERE uuid=?", gems, uuid);
+    /**
+     * Execute the same update for every set of values in a single batch and transaction.
+     *
+     * @param query  The statement to the database.
+     * @param values The values to be inserted into the statement, one array per batch entry.
+     */
+    public CompletableFuture<Void> executeBatch(SqlQuery query, List<Object[]> values) {
+        return SimpleGems.getInstance().getStorageExecutor().execute(StorageOperation.WRITE, () -> {
+            try (QueryMetrics.Timer timer = queryMetrics.time(query.getSql()); Lease lease = timer.acquired(lease(true))) {
+                Connection resource = lease.connection;
+                PreparedStatement statement = lease.prepare(query.getSql());
+                resource.setAutoCommit(false);
+
+                try {
+                    for (Object[] batch : values) {
+                        query.bind(statement, batch, binaryUuids);
+                        statement.addBatch();
+                    }
+
+                    statement.executeBatch();
+                    resource.commit();
+                } catch (SQLException exception) {
+                    resource.rollback();
+                    throw exception;
+                } finally {
+                    // The statement is kept for the next batch
+                    statement.clearBatch();
+                    resource.setAutoCommit(true);
+                }
+            } catch (SQLException exception) {
+                RyMessageUtils.sendConsole(true, "An error occurred while executing a batch update on the database.");
+                RyMessageUtils.sendConsole(true, "SQLite#executeBatch : " + query);
+                exception.printStackTrace();
+                throw new CompletionException(exception);
+            }
+        }, new WriteJournal.Entry(query.getSql(), values));
     }
 
-    public void updatePlayerName(String uuid, String name) {
-        execute("UPDATE SimpleGems SET name=? WHERE uuid=?", name, uuid);
+    /**
+     * Load a player's balance, creating their row if it doesn't exist yet and
+     * refreshing their name only when it changed, in a single statement.
+     *
+     * @param uuid The player's uuid.
+     * @param name The player's current name.
+     * @return A future completed with the player's balance, in units.
+     */
+    public CompletableFuture<Long> loadPlayer(String uuid, String name) {
+        return SimpleGems.getInstance().getStorageExecutor().submit(StorageOperation.WRITE, () -> {
+            try (QueryMetrics.Timer timer = queryMetrics.time(Queries.LOAD_PLAYER_SQLITE.getSql());
+                 Lease lease = timer.acquired(lease(true))) {
+                PreparedStatement upsert = lease.prepare(Queries.LOAD_PLAYER_SQLITE.getSql());
+                Queries.LOAD_PLAYER_SQLITE.bind(upsert, new Object[]{uuid, name}, binaryUuids);
+
+                try (ResultSet resultSet = upsert.executeQuery()) {
+                    if (resultSet.next())
+                        return resultSet.getLong("gems");
+                }
+
+                // RETURNING yields nothing when the row was left untouched, read it on the same connection
+                PreparedStatement select = lease.prepare(Queries.SELECT_GEMS.getSql());
+                Queries.SELECT_GEMS.bind(select, new Object[]{uuid}, binaryUuids);
+
+                try (ResultSet resultSet = select.executeQuery()) {
+                    return resultSet.next() ? resultSet.getLong("gems") : 0L;
+                }
+            } catch (SQLException exception) {
+                RyMessageUtils.sendConsole(true, "An error occurred while loading " + name + " from the database.");
+                exception.printStackTrace();
+                throw new CompletionException(exception);
+            }
+        });
+    }
+
+    public CompletableFuture<Void> updatePlayerGems(String uuid, long gems) {
+        return execute(Queries.UPDATE_GEMS, gems, uuid);
+    }
+
+    public CompletableFuture<Void> updatePlayerName(String uuid, String name) {
+        return execute(Queries.UPDATE_NAME, name, uuid);
+    }
+
+    /**
+     * Add to a player's stored balance without reading it first.
+     *
+     * @return A future completed with true if the player's row exists.
+     */
+    public CompletableFuture<Boolean> addPlayerGems(String uuid, long amount) {
+        return executeUpdate(Queries.ADD_GEMS, amount, uuid)
+                .thenApply(rows -> rows > 0);
+    }
+
+    /**
+     * Take from a player's stored balance, only if they have enough.
+     *
+     * @return A future completed with true if the gems were taken.
+     */
+    public CompletableFuture<Boolean> takePlayerGems(String uuid, long amount) {
+        return executeUpdate(Queries.TAKE_GEMS, amount, uuid, amount)
+                .thenApply(rows -> rows > 0);
+    }
+
+    /**
+     * Add to every stored balance in a single set-based update.
+     *
+     * @return A future completed with the amount of players changed.
+     */
+    public CompletableFuture<Integer> addAllGems(long amount) {
+        return executeUpdate(Queries.ADD_ALL_GEMS, amount);
+    }
+
+    /**
+     * Read a player's stored balance.
+     *
+     * @return A future completed with the balance in units, 0 if the player has no data.
+     */
+    public CompletableFuture<Long> getPlayerGems(String uuid) {
+        CompletableFuture<Long> future = new CompletableFuture<>();
+
+        select(Queries.SELECT_GEMS, resultSet ->
+                future.complete(resultSet.next() ? resultSet.getLong("gems") : 0L), uuid)
+                .whenComplete((ignored, throwable) -> {
+                    if (throwable != null)
+                        future.completeExceptionally(throwable);
+                });
+
+        return future;
+    }
+
+    /**
+     * Read the stored balances of many players, a chunk of uuids per query.
+     *
+     * @return A future completed with the balances in units of the players that have data.
+     */
+    public CompletableFuture<Map<String, Long>> getPlayersGems(Collection<String> uuids) {
+        Map<String, Long> balances = new ConcurrentHashMap<>();
+        List<String> remaining = new ArrayList<>(uuids);
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+
+        for (int start = 0; start < remaining.size(); start += 500) {
+            List<String> chunk = remaining.subList(start, Math.min(start + 500, remaining.size()));
+
+            futures.add(select(Queries.selectGemsIn(chunk.size()), resultSet -> {
+                while (resultSet.next())
+                    balances.put(Uuids.read(resultSet, "uuid"), resultSet.getLong("gems"));
+            }, chunk.toArray()));
+        }
+
+        return CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).thenApply(ignored -> balances);
     }
 }
\ No newline at end of file
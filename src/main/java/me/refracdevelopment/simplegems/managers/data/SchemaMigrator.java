@@ -0,0 +1,343 @@
+package me.refracdevelopment.simplegems.managers.data;
+
+import me.refracdevelopment.simplegems.utilities.chat.RyMessageUtils;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Locale;
+
+/**
+ * Moves the SimpleGems table between schema versions, recorded in the schema_version table.
+ * <p>
+ * Every version is reached by rebuilding the table into a shadow copy which is swapped in once
+ * complete, so a failed step leaves the previous table untouched. Setting a lower target
+ * version rolls back one version at a time.
+ * <ol>
+ *     <li>The original table, uuids as text.</li>
+ *     <li>Uuids as 16 bytes, an index on gems for the leaderboard and a case-insensitive one on name.</li>
+ * </ol>
+ * Balances are stored in units of the configured amount of decimals, recorded in the gem_scale table.
+ * The amounts in the ledger are kept in the same units and rescaled along with the balances.
+ */
+public class SchemaMigrator {
+
+    public static final int LATEST = 2;
+    public static final int BINARY_UUIDS = 2;
+
+    private static final String VERSION_TABLE = "schema_version";
+    private static final String SCALE_TABLE = "gem_scale";
+    private static final String SHADOW_TABLE = "SimpleGems_migrating";
+    private static final String PREVIOUS_TABLE = "SimpleGems_previous";
+    private static final String LEDGER_SHADOW_TABLE = "SimpleGemsLedger_migrating";
+    private static final String LEDGER_PREVIOUS_TABLE = "SimpleGemsLedger_previous";
+    private static final String LEDGER_COLUMNS = "id, time, actor, target, delta, reason, balance";
+
+    private static final String MYSQL_TEXT_TABLE = "uuid VARCHAR(36) NOT NULL PRIMARY KEY, name VARCHAR(16), gems BIGINT(50)";
+    private static final String MYSQL_BINARY_TABLE = "uuid BINARY(16) NOT NULL PRIMARY KEY, name VARCHAR(16), gems BIGINT(50), " +
+            "INDEX simplegems_gems (gems DESC), INDEX simplegems_name (name)";
+    private static final String MYSQL_TO_BINARY = "UNHEX(REPLACE(uuid, '-', ''))";
+    private static final String MYSQL_TO_TEXT = "LOWER(CONCAT_WS('-', SUBSTR(HEX(uuid), 1, 8), SUBSTR(HEX(uuid), 9, 4), " +
+            "SUBSTR(HEX(uuid), 13, 4), SUBSTR(HEX(uuid), 17, 4), SUBSTR(HEX(uuid), 21)))";
+
+    private static final String SQLITE_TEXT_TABLE = "uuid VARCHAR(36) NOT NULL PRIMARY KEY, name VARCHAR(16), gems BIGINT(50)";
+    private static final String SQLITE_BINARY_TABLE = "uuid BLOB NOT NULL PRIMARY KEY, name VARCHAR(16), gems BIGINT(50)";
+    private static final String[] SQLITE_BINARY_INDEXES = {
+            "CREATE INDEX IF NOT EXISTS simplegems_gems ON SimpleGems (gems DESC)",
+            "CREATE INDEX IF NOT EXISTS simplegems_name ON SimpleGems (name COLLATE NOCASE)"
+    };
+    private static final String MYSQL_LEDGER_TABLE = "id BIGINT NOT NULL AUTO_INCREMENT PRIMARY KEY, time BIGINT NOT NULL, actor VARCHAR(36), " +
+            "target VARCHAR(36) NOT NULL, delta BIGINT, reason VARCHAR(16) NOT NULL, balance BIGINT, " +
+            "INDEX ledger_target_time (target, time), INDEX ledger_time (time)";
+    private static final String SQLITE_LEDGER_TABLE = "id INTEGER PRIMARY KEY AUTOINCREMENT, time BIGINT NOT NULL, actor VARCHAR(36), " +
+            "target VARCHAR(36) NOT NULL, delta BIGINT, reason VARCHAR(16) NOT NULL, balance BIGINT";
+    private static final String[] SQLITE_LEDGER_INDEXES = {
+            "CREATE INDEX IF NOT EXISTS ledger_target_time ON SimpleGemsLedger (target, time)",
+            "CREATE INDEX IF NOT EXISTS ledger_time ON SimpleGemsLedger (time)"
+    };
+
+    private static final String SQLITE_TO_BINARY = "unhex(replace(uuid, '-', ''))";
+    private static final String SQLITE_TO_TEXT = "lower(substr(hex(uuid), 1, 8) || '-' || substr(hex(uuid), 9, 4) || '-' || " +
+            "substr(hex(uuid), 13, 4) || '-' || substr(hex(uuid), 17, 4) || '-' || substr(hex(uuid), 21))";
+
+    private final DataType dataType;
+
+    public SchemaMigrator(DataType dataType) {
+        this.dataType = dataType;
+    }
+
+    /**
+     * Move the schema to the target version. A step that fails is rolled back and stops the migration.
+     *
+     * @param connection A connection no other task uses meanwhile.
+     * @param target     The version to end up at.
+     * @return The version the schema is at afterwards.
+     * @throws SQLException If the current version couldn't be read.
+     */
+    public int migrate(Connection connection, int target) throws SQLException {
+        execute(connection, "CREATE TABLE IF NOT EXISTS " + VERSION_TABLE + " (version INT NOT NULL PRIMARY KEY, applied BIGINT NOT NULL)");
+
+        int version = getVersion(connection);
+
+        if (version > LATEST) {
+            RyMessageUtils.sendConsole(true, "&cThe database schema is at version &e" + version + "&c, which is newer than this version of SimpleGems supports.");
+            return version;
+        }
+
+        target = Math.max(1, Math.min(LATEST, target));
+
+        try {
+            while (version < target) {
+                step(connection, version + 1, true);
+                version++;
+                RyMessageUtils.sendConsole(true, "&aMigrated the database schema to version &e" + version + "&a.");
+            }
+
+            while (version > target) {
+                step(connection, version, false);
+                version--;
+                RyMessageUtils.sendConsole(true, "&aRolled the database schema back to version &e" + version + "&a.");
+            }
+        } catch (SQLException exception) {
+            RyMessageUtils.sendConsole(true, "&cCouldn't migrate the database schema, it was left at version &e" + version + "&c.");
+            exception.printStackTrace();
+        }
+
+        return version;
+    }
+
+    /**
+     * Multiply or divide every stored balance and ledger amount to move it to another amount of decimals.
+     * Balances from before the scale was recorded are whole gems.
+     *
+     * @param connection A connection no other task uses meanwhile.
+     * @param scale      The amount of decimals to store balances with.
+     * @return The amount of decimals the balances are stored with afterwards.
+     * @throws SQLException If the current scale couldn't be read or the ledger couldn't be moved to units.
+     */
+    public int rescale(Connection connection, int scale) throws SQLException {
+        execute(connection, "CREATE TABLE IF NOT EXISTS " + SCALE_TABLE + " (scale INT NOT NULL)");
+
+        Integer stored = null;
+
+        try (PreparedStatement statement = connection.prepareStatement("SELECT scale FROM " + SCALE_TABLE);
+             ResultSet resultSet = statement.executeQuery()) {
+            if (resultSet.next())
+                stored = resultSet.getInt(1);
+        }
+
+        int from = stored == null ? 0 : stored;
+        boolean ledger = convertLedger(connection, from);
+
+        // Unrecorded SQLite tables may still hold fractions written as doubles, so they're rounded once
+        if (stored != null && stored == scale)
+            return scale;
+
+        connection.setAutoCommit(false);
+
+        try {
+            execute(connection, "UPDATE SimpleGems SET gems = " + scaleExpression("gems", from, scale));
+
+            if (ledger)
+                execute(connection, "UPDATE SimpleGemsLedger SET delta = " + scaleExpression("delta", from, scale)
+                        + ", balance = " + scaleExpression("balance", from, scale));
+            execute(connection, "DELETE FROM " + SCALE_TABLE);
+
+            try (PreparedStatement statement = connection.prepareStatement("INSERT INTO " + SCALE_TABLE + " (scale) VALUES (?)")) {
+                statement.setInt(1, scale);
+                statement.executeUpdate();
+            }
+
+            connection.commit();
+        } catch (SQLException exception) {
+            connection.rollback();
+            RyMessageUtils.sendConsole(true, "&cCouldn't move the stored balances to &e" + scale + " &cdecimals, keeping &e" + from + "&c.");
+            exception.printStackTrace();
+            return from;
+        } finally {
+            connection.setAutoCommit(true);
+        }
+
+        if (from != scale)
+            RyMessageUtils.sendConsole(true, "&aMoved the stored balances from &e" + from + " &ato &e" + scale + " &adecimals.");
+
+        return scale;
+    }
+
+    /**
+     * @return The expression moving a column from one amount of decimals to another, rounded to whole units.
+     */
+    String scaleExpression(String column, int from, int to) {
+        long factor = factor(Math.abs(to - from));
+
+        if (dataType == DataType.MYSQL)
+            return to >= from ? column + " * " + factor : "CAST(ROUND(" + column + " / " + factor + ") AS SIGNED)";
+
+        return to >= from ? "CAST(ROUND(" + column + " * " + factor + ") AS INTEGER)" : "CAST(ROUND(" + column + " / " + factor + ".0) AS INTEGER)";
+    }
+
+    /**
+     * Move a ledger that still keeps its amounts as doubles of gems to units of the given scale,
+     * by copying it into a table with whole number columns.
+     *
+     * @return Whether there is a ledger table.
+     */
+    private boolean convertLedger(Connection connection, int scale) throws SQLException {
+        String type;
+
+        try (ResultSet resultSet = connection.getMetaData().getColumns(connection.getCatalog(), null, "SimpleGemsLedger", "delta")) {
+            if (!resultSet.next())
+                return false;
+
+            type = resultSet.getString("TYPE_NAME");
+        }
+
+        if (type != null && type.toUpperCase(Locale.ROOT).contains("INT"))
+            return true;
+
+        String cast = dataType == DataType.MYSQL ? "SIGNED" : "INTEGER";
+        long factor = factor(scale);
+        String select = "SELECT id, time, actor, target, CAST(ROUND(delta * " + factor + ") AS " + cast + "), reason, " +
+                "CAST(ROUND(balance * " + factor + ") AS " + cast + ") FROM SimpleGemsLedger";
+
+        if (dataType == DataType.MYSQL) {
+            // The old ledger is only swapped out once the copy is complete
+            try {
+                execute(connection, "DROP TABLE IF EXISTS " + LEDGER_SHADOW_TABLE);
+                execute(connection, "CREATE TABLE " + LEDGER_SHADOW_TABLE + " (" + MYSQL_LEDGER_TABLE + ")");
+                execute(connection, "INSERT INTO " + LEDGER_SHADOW_TABLE + " (" + LEDGER_COLUMNS + ") " + select);
+                execute(connection, "RENAME TABLE SimpleGemsLedger TO " + LEDGER_PREVIOUS_TABLE + ", " + LEDGER_SHADOW_TABLE + " TO SimpleGemsLedger");
+            } catch (SQLException exception) {
+                execute(connection, "DROP TABLE IF EXISTS " + LEDGER_SHADOW_TABLE);
+                throw exception;
+            }
+
+            execute(connection, "DROP TABLE " + LEDGER_PREVIOUS_TABLE);
+            return true;
+        }
+
+        connection.setAutoCommit(false);
+
+        try {
+            execute(connection, "DROP TABLE IF EXISTS " + LEDGER_SHADOW_TABLE);
+            execute(connection, "CREATE TABLE " + LEDGER_SHADOW_TABLE + " (" + SQLITE_LEDGER_TABLE + ")");
+            execute(connection, "INSERT INTO " + LEDGER_SHADOW_TABLE + " (" + LEDGER_COLUMNS + ") " + select);
+            execute(connection, "DROP TABLE SimpleGemsLedger");
+            execute(connection, "ALTER TABLE " + LEDGER_SHADOW_TABLE + " RENAME TO SimpleGemsLedger");
+
+            for (String index : SQLITE_LEDGER_INDEXES)
+                execute(connection, index);
+
+            connection.commit();
+        } catch (SQLException exception) {
+            connection.rollback();
+            throw exception;
+        } finally {
+            connection.setAutoCommit(true);
+        }
+
+        return true;
+    }
+
+    private long factor(int decimals) {
+        long factor = 1;
+
+        for (int i = 0; i < decimals; i++)
+            factor *= 10;
+
+        return factor;
+    }
+
+    private int getVersion(Connection connection) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement("SELECT MAX(version) FROM " + VERSION_TABLE);
+             ResultSet resultSet = statement.executeQuery()) {
+            int version = resultSet.next() ? resultSet.getInt(1) : 0;
+
+            // Tables from before the schema was versioned are the first version
+            return Math.max(1, version);
+        }
+    }
+
+    /**
+     * Apply or undo a single version.
+     */
+    private void step(Connection connection, int version, boolean up) throws SQLException {
+        switch (version) {
+            case BINARY_UUIDS:
+                if (dataType == DataType.MYSQL)
+                    rebuildMySQL(connection, version, up, up ? MYSQL_BINARY_TABLE : MYSQL_TEXT_TABLE, up ? MYSQL_TO_BINARY : MYSQL_TO_TEXT);
+                else
+                    rebuildSQLite(connection, version, up, up ? SQLITE_BINARY_TABLE : SQLITE_TEXT_TABLE, up ? SQLITE_TO_BINARY : SQLITE_TO_TEXT,
+                            up ? SQLITE_BINARY_INDEXES : new String[0]);
+                break;
+            default:
+                throw new SQLException("Unknown schema version " + version + ".");
+        }
+    }
+
+    private void rebuildSQLite(Connection connection, int version, boolean up, String columns, String uuid, String[] indexes) throws SQLException {
+        // SQLite changes the schema in a transaction, readers keep seeing the old table until the commit
+        connection.setAutoCommit(false);
+
+        try {
+            execute(connection, "DROP TABLE IF EXISTS " + SHADOW_TABLE);
+            execute(connection, "CREATE TABLE " + SHADOW_TABLE + " (" + columns + ")");
+            execute(connection, "INSERT INTO " + SHADOW_TABLE + " (uuid, name, gems) SELECT " + uuid + ", name, gems FROM SimpleGems");
+            execute(connection, "DROP TABLE SimpleGems");
+            execute(connection, "ALTER TABLE " + SHADOW_TABLE + " RENAME TO SimpleGems");
+
+            for (String index : indexes)
+                execute(connection, index);
+
+            record(connection, version, up);
+            connection.commit();
+        } catch (SQLException exception) {
+            connection.rollback();
+            throw exception;
+        } finally {
+            connection.setAutoCommit(true);
+        }
+    }
+
+    private void rebuildMySQL(Connection connection, int version, boolean up, String columns, String uuid) throws SQLException {
+        // MySQL commits every schema change, so the old table is only swapped out once the copy is complete
+        boolean swapped = false;
+
+        try {
+            execute(connection, "DROP TABLE IF EXISTS " + SHADOW_TABLE);
+            execute(connection, "CREATE TABLE " + SHADOW_TABLE + " (" + columns + ")");
+            execute(connection, "INSERT INTO " + SHADOW_TABLE + " (uuid, name, gems) SELECT " + uuid + ", name, gems FROM SimpleGems");
+            execute(connection, "RENAME TABLE SimpleGems TO " + PREVIOUS_TABLE + ", " + SHADOW_TABLE + " TO SimpleGems");
+            swapped = true;
+            record(connection, version, up);
+        } catch (SQLException exception) {
+            if (swapped)
+                execute(connection, "RENAME TABLE SimpleGems TO " + SHADOW_TABLE + ", " + PREVIOUS_TABLE + " TO SimpleGems");
+
+            execute(connection, "DROP TABLE IF EXISTS " + SHADOW_TABLE);
+            throw exception;
+        }
+
+        execute(connection, "DROP TABLE " + PREVIOUS_TABLE);
+    }
+
+    private void record(Connection connection, int version, boolean up) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(up
+                ? "INSERT INTO " + VERSION_TABLE + " (version, applied) VALUES (?, ?)"
+                : "DELETE FROM " + VERSION_TABLE + " WHERE version >= ?")) {
+            statement.setInt(1, version);
+
+            if (up)
+                statement.setLong(2, System.currentTimeMillis());
+
+            statement.executeUpdate();
+        }
+    }
+
+    private void execute(Connection connection, String query) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(query)) {
+            statement.execute();
+        }
+    }
+}
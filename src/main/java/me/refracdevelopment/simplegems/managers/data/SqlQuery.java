@@ -0,0 +1,100 @@
+package me.refracdevelopment.simplegems.managers.data;
+
+import lombok.Getter;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Types;
+
+/**
+ * A statement together with the type of every parameter, so values are bound with
+ * the matching primitive setter instead of letting the driver inspect each object.
+ */
+@Getter
+public class SqlQuery {
+
+    // The write may change any player's row
+    public static final int ANY_PLAYER = -1;
+    // The write doesn't change the players' rows
+    public static final int NO_PLAYER = -2;
+
+    public enum Param {
+        STRING(Types.VARCHAR), UUID(Types.VARCHAR), DOUBLE(Types.DOUBLE), LONG(Types.BIGINT), INT(Types.INTEGER),
+        // An amount of gems in units, rescaled along with the stored balances
+        UNITS(Types.BIGINT);
+
+        private final int sqlType;
+
+        Param(int sqlType) {
+            this.sqlType = sqlType;
+        }
+
+        public void bind(PreparedStatement statement, int index, Object value, boolean binaryUuids) throws SQLException {
+            if (value == null) {
+                statement.setNull(index, sqlType);
+                return;
+            }
+
+            switch (this) {
+                case UUID:
+                    Uuids.bind(statement, index, value, binaryUuids);
+                    break;
+                case DOUBLE:
+                    statement.setDouble(index, ((Number) value).doubleValue());
+                    break;
+                case LONG:
+                case UNITS:
+                    statement.setLong(index, ((Number) value).longValue());
+                    break;
+                case INT:
+                    statement.setInt(index, ((Number) value).intValue());
+                    break;
+                default:
+                    statement.setString(index, value.toString());
+                    break;
+            }
+        }
+    }
+
+    private final String sql;
+    private final int key;
+    private final Param[] params;
+
+    public SqlQuery(String sql, Param... params) {
+        this(sql, ANY_PLAYER, params);
+    }
+
+    /**
+     * @param sql    The statement.
+     * @param key    The index of the uuid parameter a write is limited to, or {@link #ANY_PLAYER} / {@link #NO_PLAYER}.
+     * @param params The parameter types, repeated for statements with several rows
+     *               or a variable list of values. None binds every value as an object.
+     */
+    public SqlQuery(String sql, int key, Param... params) {
+        this.sql = sql;
+        this.key = key;
+        this.params = params;
+    }
+
+    /**
+     * Bind the values to the statement's parameters.
+     *
+     * @param statement    The prepared statement.
+     * @param values       The values, in parameter order.
+     * @param binaryUuids  Whether the table stores uuids as bytes.
+     * @throws SQLException
+     */
+    public void bind(PreparedStatement statement, Object[] values, boolean binaryUuids) throws SQLException {
+        for (int i = 0; i < values.length; i++) {
+            if (params.length == 0)
+                statement.setObject((i + 1), values[i]);
+            else
+                params[i % params.length].bind(statement, (i + 1), values[i], binaryUuids);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return sql;
+    }
+}
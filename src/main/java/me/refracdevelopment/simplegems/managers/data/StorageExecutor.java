@@ -0,0 +1,225 @@
+package me.refracdevelopment.simplegems.managers.data;
+
+import me.refracdevelopment.simplegems.SimpleGems;
+import me.refracdevelopment.simplegems.utilities.chat.RyMessageUtils;
+
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Bounded worker pools used by the data managers instead of spawning a thread per query.
+ * <p>
+ * Every {@link StorageOperation} has its own pool and queue so a burst of writes can never
+ * starve profile loads. When a queue is full the submitting thread waits up to the configured
+ * timeout for space (backpressure) and, failing that, the task is rejected. Tasks never run on the
+ * submitting thread, which is often the main thread, and a connection is never shared with a worker.
+ * Writes rejected after shutdown are kept in the journal instead.
+ */
+public class StorageExecutor {
+
+    private final Map<StorageOperation, ThreadPoolExecutor> executors = new EnumMap<>(StorageOperation.class);
+    private final Map<StorageOperation, StorageMetrics> metrics = new EnumMap<>(StorageOperation.class);
+    private final long submitTimeout;
+
+    /**
+     * @param readThreads   The amount of workers serving queries.
+     * @param writeThreads  The amount of workers serving updates.
+     * @param queueSize     The maximum amount of queued tasks per operation type.
+     * @param submitTimeout The time in milliseconds a submitter waits for queue space.
+     */
+    public StorageExecutor(int readThreads, int writeThreads, int queueSize, long submitTimeout) {
+        this.submitTimeout = submitTimeout;
+
+        createExecutor(StorageOperation.READ, readThreads, queueSize);
+        createExecutor(StorageOperation.WRITE, writeThreads, queueSize);
+        createExecutor(StorageOperation.SCHEMA, 1, queueSize);
+    }
+
+    private void createExecutor(StorageOperation operation, int threads, int queueSize) {
+        int size = Math.max(1, threads);
+        AtomicInteger counter = new AtomicInteger();
+
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(size, size, 60L, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, queueSize)),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "SimpleGems-Storage-" + operation.name().toLowerCase() + "-" + counter.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                backpressure(operation));
+        executor.allowCoreThreadTimeOut(true);
+
+        executors.put(operation, executor);
+        metrics.put(operation, new StorageMetrics());
+    }
+
+    private RejectedExecutionHandler backpressure(StorageOperation operation) {
+        return (runnable, executor) -> {
+            if (!executor.isShutdown()) {
+                try {
+                    if (executor.getQueue().offer(runnable, submitTimeout, TimeUnit.MILLISECONDS))
+                        return;
+                } catch (InterruptedException exception) {
+                    Thread.currentThread().interrupt();
+                }
+
+                RyMessageUtils.sendConsole(true, "&cThe " + operation.name().toLowerCase() + " storage queue is full, rejected a task from " + Thread.currentThread().getName() + ".");
+            }
+
+            metrics.get(operation).recordRejected();
+            throw new RejectedExecutionException("The " + operation.name().toLowerCase() + " storage queue is "
+                    + (executor.isShutdown() ? "shut down" : "full"));
+        };
+    }
+
+    /**
+     * Queue a task on the pool of the given operation type.
+     *
+     * @param operation The operation type, decides which pool runs the task.
+     * @param task      The task to run.
+     * @return A future completed once the task has finished.
+     */
+    public CompletableFuture<Void> execute(StorageOperation operation, Runnable task) {
+        return execute(operation, task, null);
+    }
+
+    /**
+     * Queue a write which is kept in the journal if it never got to run before shutdown.
+     *
+     * @param operation The operation type, decides which pool runs the task.
+     * @param task      The task to run.
+     * @param entry     The statement the task runs, null if it can't be journaled.
+     * @return A future completed once the task has finished.
+     */
+    public CompletableFuture<Void> execute(StorageOperation operation, Runnable task, WriteJournal.Entry entry) {
+        return submit(operation, () -> {
+            task.run();
+            return null;
+        }, entry);
+    }
+
+    /**
+     * Queue a task returning a value on the pool of the given operation type.
+     *
+     * @param operation The operation type, decides which pool runs the task.
+     * @param task      The task to run.
+     * @return A future completed with the result of the task.
+     */
+    public <T> CompletableFuture<T> submit(StorageOperation operation, Callable<T> task) {
+        return submit(operation, task, null);
+    }
+
+    /**
+     * Queue a write returning a value, which is kept in the journal if it never got to run before shutdown.
+     *
+     * @param operation The operation type, decides which pool runs the task.
+     * @param task      The task to run.
+     * @param entry     The statement the task runs, null if it can't be journaled.
+     * @return A future completed with the result of the task.
+     */
+    public <T> CompletableFuture<T> submit(StorageOperation operation, Callable<T> task, WriteJournal.Entry entry) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        StorageMetrics storageMetrics = metrics.get(operation);
+        long queuedAt = System.nanoTime();
+
+        storageMetrics.recordSubmit();
+
+        try {
+            executors.get(operation).execute(new StorageTask(entry, () -> {
+                storageMetrics.recordStart(System.nanoTime() - queuedAt);
+
+                try {
+                    future.complete(task.call());
+                    storageMetrics.recordComplete(true);
+                } catch (Throwable throwable) {
+                    future.completeExceptionally(throwable);
+                    storageMetrics.recordComplete(false);
+                }
+            }));
+        } catch (RejectedExecutionException exception) {
+            if (entry != null && executors.get(operation).isShutdown())
+                journal(entry);
+
+            future.completeExceptionally(exception);
+        }
+
+        return future;
+    }
+
+    // Written on the next start, the connections may already be closed
+    private void journal(WriteJournal.Entry entry) {
+        WriteJournal journal = SimpleGems.getInstance().getWriteJournal();
+
+        if (journal != null && SimpleGems.getInstance().getSettings().STORAGE_SPILL_JOURNAL)
+            journal.spill(List.of(entry));
+        else
+            RyMessageUtils.sendConsole(true, "&cA write was submitted after the storage shut down, it is lost.");
+    }
+
+    public StorageMetrics getMetrics(StorageOperation operation) {
+        return metrics.get(operation);
+    }
+
+    public int getQueueDepth(StorageOperation operation) {
+        return executors.get(operation).getQueue().size();
+    }
+
+    public int getActiveCount(StorageOperation operation) {
+        return executors.get(operation).getActiveCount();
+    }
+
+    /**
+     * Stop accepting new work and wait for the queued tasks to finish. Queued writes that
+     * didn't get to run in time are handed back, so they can be kept in the journal.
+     *
+     * @param timeout   The maximum time to wait for all pools combined.
+     * @param unit      The unit of the timeout.
+     * @param abandoned Receives the journal entries of the writes that never ran.
+     * @return The amount of tasks that were still running or couldn't be journaled.
+     */
+    public int shutdown(long timeout, TimeUnit unit, List<WriteJournal.Entry> abandoned) {
+        executors.values().forEach(ThreadPoolExecutor::shutdown);
+
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        int remaining = 0;
+
+        for (ThreadPoolExecutor executor : executors.values()) {
+            try {
+                if (executor.awaitTermination(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS))
+                    continue;
+            } catch (InterruptedException exception) {
+                Thread.currentThread().interrupt();
+            }
+
+            remaining += executor.getActiveCount();
+
+            for (Runnable runnable : executor.shutdownNow()) {
+                if (runnable instanceof StorageTask task && task.entry != null)
+                    abandoned.add(task.entry);
+                else
+                    remaining++;
+            }
+        }
+
+        return remaining;
+    }
+
+    private static final class StorageTask implements Runnable {
+
+        private final WriteJournal.Entry entry;
+        private final Runnable task;
+
+        private StorageTask(WriteJournal.Entry entry, Runnable task) {
+            this.entry = entry;
+            this.task = task;
+        }
+
+        @Override
+        public void run() {
+            task.run();
+        }
+    }
+}
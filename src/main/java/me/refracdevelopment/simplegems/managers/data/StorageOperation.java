@@ -0,0 +1,5 @@
+package me.refracdevelopment.simplegems.managers.data;
+
+public enum StorageOperation {
+    READ, WRITE, SCHEMA
+}
@@ -0,0 +1,57 @@
+package me.refracdevelopment.simplegems.managers.data;
+
+import java.nio.ByteBuffer;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.UUID;
+
+/**
+ * Converts the uuid column between its text form and the 16 bytes it's stored
+ * as since {@link SchemaMigrator#BINARY_UUIDS}. Both forms sort the same way.
+ */
+public final class Uuids {
+
+    private Uuids() {
+    }
+
+    public static byte[] toBytes(UUID uuid) {
+        return ByteBuffer.allocate(16)
+                .putLong(uuid.getMostSignificantBits())
+                .putLong(uuid.getLeastSignificantBits())
+                .array();
+    }
+
+    public static UUID fromBytes(byte[] bytes) {
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        return new UUID(buffer.getLong(), buffer.getLong());
+    }
+
+    /**
+     * Bind a uuid in the form the table stores it in.
+     *
+     * @param value  The uuid or its text form, an empty string sorts before every uuid.
+     * @param binary Whether the table stores uuids as bytes.
+     */
+    public static void bind(PreparedStatement statement, int index, Object value, boolean binary) throws SQLException {
+        if (!binary) {
+            statement.setString(index, value.toString());
+            return;
+        }
+
+        String uuid = value.toString();
+        statement.setBytes(index, uuid.isEmpty() ? new byte[0] : toBytes(UUID.fromString(uuid)));
+    }
+
+    /**
+     * @return The text form of the uuid column, whichever form the table stores it in.
+     */
+    public static String read(ResultSet resultSet, String column) throws SQLException {
+        Object value = resultSet.getObject(column);
+
+        if (value instanceof byte[])
+            return fromBytes((byte[]) value).toString();
+
+        return value == null ? null : value.toString();
+    }
+}
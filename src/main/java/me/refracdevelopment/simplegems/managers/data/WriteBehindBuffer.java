@@ -0,0 +1,183 @@
+package me.refracdevelopment.simplegems.managers.data;
+
+import me.refracdevelopment.simplegems.SimpleGems;
+import me.refracdevelopment.simplegems.utilities.Tasks;
+import me.refracdevelopment.simplegems.utilities.chat.RyMessageUtils;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Coalesces balance saves so only the latest balance of every player is written,
+ * in a single batched statement per flush instead of one update per transaction.
+ * <p>
+ * Balances are absolute, so batches are written one after another on a single lane and a
+ * newer batch can never be overtaken by an older one. Every balance carries a sequence, a
+ * failed batch only puts back the balances no newer batch has taken since.
+ */
+public class WriteBehindBuffer {
+
+    private final Map<UUID, Dirty> pending = new ConcurrentHashMap<>();
+    // The sequence of the newest balance of each player that is being written
+    private final Map<UUID, Long> writing = new ConcurrentHashMap<>();
+    private final AtomicLong sequence = new AtomicLong();
+    private CompletableFuture<Void> lane = CompletableFuture.completedFuture(null);
+
+    private static final class Dirty {
+
+        private final long gems;
+        private final long sequence;
+
+        private Dirty(long gems, long sequence) {
+            this.gems = gems;
+            this.sequence = sequence;
+        }
+    }
+
+    public WriteBehindBuffer() {
+        flushTask();
+    }
+
+    /**
+     * Mark a player's balance as changed, it will be written on the next flush.
+     *
+     * @param uuid The player's uuid.
+     * @param gems The player's current balance, in units.
+     */
+    public void markDirty(UUID uuid, long gems) {
+        pending.put(uuid, new Dirty(gems, sequence.incrementAndGet()));
+
+        if (pending.size() >= SimpleGems.getInstance().getSettings().WRITE_BEHIND_MAX_PENDING)
+            flush();
+    }
+
+    /**
+     * Write every pending balance in one batch.
+     *
+     * @return A future completed once the batch has been written.
+     */
+    public synchronized CompletableFuture<Void> flush() {
+        Map<UUID, Dirty> batch = new LinkedHashMap<>();
+
+        for (Map.Entry<UUID, Dirty> entry : pending.entrySet()) {
+            // Only take the value we've seen, a newer one stays queued for the next flush
+            if (pending.remove(entry.getKey(), entry.getValue()))
+                batch.put(entry.getKey(), entry.getValue());
+        }
+
+        return write(batch);
+    }
+
+    /**
+     * Write the pending balance of a single player right away.
+     *
+     * @param uuid The player's uuid.
+     * @return A future completed once the balance has been written.
+     */
+    public CompletableFuture<Void> flush(UUID uuid) {
+        return flush(List.of(uuid));
+    }
+
+    /**
+     * Write the pending balances of the given players right away, in one batch.
+     *
+     * @param uuids The players' uuids.
+     * @return A future completed once the balances have been written.
+     */
+    public synchronized CompletableFuture<Void> flush(Collection<UUID> uuids) {
+        Map<UUID, Dirty> batch = new LinkedHashMap<>();
+
+        for (UUID uuid : uuids) {
+            Dirty dirty = pending.remove(uuid);
+
+            if (dirty != null)
+                batch.put(uuid, dirty);
+        }
+
+        return write(batch);
+    }
+
+    // Called with the lock held, so batches join the lane in the order they were taken
+    private CompletableFuture<Void> write(Map<UUID, Dirty> batch) {
+        if (batch.isEmpty())
+            return lane.handle((ignored, throwable) -> null);
+
+        batch.forEach((uuid, dirty) -> writing.put(uuid, dirty.sequence));
+
+        CompletableFuture<Void> future = lane.handle((ignored, throwable) -> null)
+                .thenCompose(ignored -> store(batch))
+                .whenComplete((ignored, throwable) -> {
+                    batch.forEach((uuid, dirty) -> {
+                        // Put the balance back unless a newer one has been taken or queued in the meantime
+                        if (writing.remove(uuid, dirty.sequence) && throwable != null)
+                            pending.merge(uuid, dirty, (current, failed) -> current.sequence > failed.sequence ? current : failed);
+                    });
+
+                    if (throwable != null)
+                        RyMessageUtils.sendConsole(true, "&cFailed to save " + batch.size() + " balances, retrying on the next flush.");
+                });
+
+        lane = future;
+        return future;
+    }
+
+    private CompletableFuture<Void> store(Map<UUID, Dirty> batch) {
+        switch (SimpleGems.getInstance().getDataType()) {
+            case MYSQL:
+                return SimpleGems.getInstance().getMySQLManager().executeBatch(Queries.UPDATE_GEMS, rows(batch));
+            case MAPPED:
+                Map<UUID, Long> balances = new HashMap<>();
+
+                batch.forEach((uuid, dirty) -> balances.put(uuid, dirty.gems));
+                return SimpleGems.getInstance().getMappedManager().updatePlayersGems(balances);
+            default:
+                return SimpleGems.getInstance().getSqLiteManager().executeBatch(Queries.UPDATE_GEMS, rows(batch));
+        }
+    }
+
+    private List<Object[]> rows(Map<UUID, Dirty> batch) {
+        List<Object[]> rows = new ArrayList<>();
+
+        batch.forEach((uuid, dirty) -> rows.add(new Object[]{dirty.gems, uuid.toString()}));
+        return rows;
+    }
+
+    /**
+     * Take every pending balance without writing it, used to journal the balances
+     * that are still unsaved once the storage workers have stopped.
+     *
+     * @return The statement to write the balances with, null if there are none.
+     */
+    public WriteJournal.Entry drain() {
+        List<Object[]> batch = new ArrayList<>();
+
+        for (UUID uuid : new ArrayList<>(pending.keySet())) {
+            Dirty dirty = pending.remove(uuid);
+
+            if (dirty != null)
+                batch.add(new Object[]{dirty.gems, uuid.toString()});
+        }
+
+        return batch.isEmpty() ? null : new WriteJournal.Entry(Queries.UPDATE_GEMS.getSql(), batch);
+    }
+
+    public int getPendingCount() {
+        return pending.size();
+    }
+
+    /**
+     * @return true - If the player's balance is queued or still being written
+     */
+    public boolean isPending(UUID uuid) {
+        return pending.containsKey(uuid) || writing.containsKey(uuid);
+    }
+
+    public void flushTask() {
+        long interval = SimpleGems.getInstance().getSettings().WRITE_BEHIND_FLUSH_INTERVAL;
+
+        Tasks.runAsyncTimer(this::flush, interval, interval, TimeUnit.SECONDS);
+    }
+}
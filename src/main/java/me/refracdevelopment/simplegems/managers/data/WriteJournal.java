@@ -0,0 +1,290 @@
+package me.refracdevelopment.simplegems.managers.data;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonNull;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import lombok.Getter;
+import me.refracdevelopment.simplegems.SimpleGems;
+import me.refracdevelopment.simplegems.player.stats.GemAmount;
+import me.refracdevelopment.simplegems.utilities.chat.RyMessageUtils;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Keeps the writes that couldn't be stored before the plugin shut down in a file,
+ * so they can be written on the next start instead of being lost.
+ * <p>
+ * Only writes that never ran are kept, so replaying them can't apply a change twice. They are
+ * replayed one at a time in the order they were kept, and every append starts with a header
+ * holding the data type and the balance scale, so balances are rescaled if the decimals changed.
+ */
+public class WriteJournal {
+
+    private static final String JOURNAL_FILE = "pending-writes.journal";
+
+    private final File file;
+    private final DataType dataType;
+
+    /**
+     * A single statement and the values it has to be run with, once per row.
+     */
+    @Getter
+    public static final class Entry {
+
+        private final String query;
+        private final List<Object[]> rows;
+
+        public Entry(String query, List<Object[]> rows) {
+            this.query = query;
+            this.rows = rows;
+        }
+
+        public Entry(String query, Object... values) {
+            this(query, Collections.singletonList(values));
+        }
+    }
+
+    public WriteJournal(File dataFolder, DataType dataType) {
+        this.file = new File(dataFolder, JOURNAL_FILE);
+        this.dataType = dataType;
+    }
+
+    /**
+     * Append the writes to the journal.
+     *
+     * @param entries The writes that couldn't be stored.
+     * @return The amount of writes kept.
+     */
+    public int spill(List<Entry> entries) {
+        if (entries.isEmpty())
+            return 0;
+
+        try (BufferedWriter writer = Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+            writer.write(header(GemAmount.getScale()));
+            writer.newLine();
+
+            for (Entry entry : entries) {
+                writer.write(toJson(entry).toString());
+                writer.newLine();
+            }
+        } catch (IOException exception) {
+            RyMessageUtils.sendConsole(true, "&cCouldn't write " + entries.size() + " pending writes to " + JOURNAL_FILE + ", they are lost.");
+            exception.printStackTrace();
+            return 0;
+        }
+
+        return entries.size();
+    }
+
+    /**
+     * Write every journaled write in order and remove the journal. Once a write fails or takes too long
+     * the rest isn't attempted and is kept, a write that timed out may still run so it isn't kept.
+     * Blocks until done so no player is loaded before their balance has been restored.
+     *
+     * @param timeout The maximum time to wait, in seconds.
+     */
+    public void replay(long timeout) {
+        if (!file.exists())
+            return;
+
+        List<Entry> entries = new ArrayList<>();
+
+        try (BufferedReader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+            String line = reader.readLine();
+
+            if (line == null || !line.startsWith(header())) {
+                RyMessageUtils.sendConsole(true, "&c" + JOURNAL_FILE + " was written for another data type, switch back to replay it.");
+                return;
+            }
+
+            int scale = scale(line);
+
+            while ((line = reader.readLine()) != null) {
+                if (line.startsWith("# "))
+                    scale = scale(line);
+                else if (!line.isBlank())
+                    entries.add(rescale(fromJson(JsonParser.parseString(line).getAsJsonObject()), scale));
+            }
+        } catch (IOException | RuntimeException exception) {
+            RyMessageUtils.sendConsole(true, "&cCouldn't read " + JOURNAL_FILE + ", it was left in place.");
+            exception.printStackTrace();
+            return;
+        }
+
+        List<Entry> failed = new ArrayList<>();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(timeout);
+        int replayed = 0;
+        int inFlight = 0;
+
+        for (int i = 0; i < entries.size(); i++) {
+            try {
+                write(entries.get(i)).get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+                replayed++;
+                continue;
+            } catch (ExecutionException exception) {
+                // Rolled back or never started, it can be tried again
+                failed.add(entries.get(i));
+            } catch (TimeoutException exception) {
+                inFlight++;
+            } catch (InterruptedException exception) {
+                Thread.currentThread().interrupt();
+                inFlight++;
+            }
+
+            // The later writes wait for the next start, so they still apply in order
+            failed.addAll(entries.subList(i + 1, entries.size()));
+            break;
+        }
+
+        // Only the failed writes are kept for the next start
+        if (!file.delete()) {
+            RyMessageUtils.sendConsole(true, "&cCouldn't remove " + JOURNAL_FILE + ", delete it before the next start.");
+            return;
+        }
+
+        spill(failed);
+
+        RyMessageUtils.sendConsole(true, "&aReplayed &e" + replayed + "&a/&e" + entries.size() + " &awrites left over from the last shutdown"
+                + (inFlight > 0 ? ", &e" + inFlight + " &ais still running" : "") + ".");
+    }
+
+    private String header() {
+        return "# " + dataType.name();
+    }
+
+    private String header(int scale) {
+        return header() + " " + scale;
+    }
+
+    // Journals written before the scale was recorded hold balances of the current scale
+    private int scale(String header) {
+        String[] parts = header.split(" ");
+
+        if (parts.length < 3 || !parts[1].equals(dataType.name()))
+            return GemAmount.getScale();
+
+        try {
+            return Integer.parseInt(parts[2]);
+        } catch (NumberFormatException exception) {
+            return GemAmount.getScale();
+        }
+    }
+
+    /**
+     * Convert the amounts of a write kept at another scale, the stored balances and ledger were rescaled since.
+     */
+    private Entry rescale(Entry entry, int scale) {
+        SqlQuery query = Queries.of(entry.getQuery());
+
+        if (scale == GemAmount.getScale() || query.getParams().length == 0)
+            return entry;
+
+        List<Object[]> rows = new ArrayList<>();
+
+        for (Object[] row : entry.getRows()) {
+            Object[] converted = row.clone();
+
+            for (int i = 0; i < converted.length; i++) {
+                if (query.getParams()[i % query.getParams().length] == SqlQuery.Param.UNITS && converted[i] instanceof Long units)
+                    converted[i] = BigDecimal.valueOf(units).movePointRight(GemAmount.getScale() - scale)
+                            .setScale(0, RoundingMode.HALF_UP).longValueExact();
+            }
+
+            rows.add(converted);
+        }
+
+        return new Entry(entry.getQuery(), rows);
+    }
+
+    private CompletableFuture<Void> write(Entry entry) {
+        switch (dataType) {
+            case MYSQL:
+                return SimpleGems.getInstance().getMySQLManager().executeBatch(entry.getQuery(), entry.getRows());
+            default:
+                return SimpleGems.getInstance().getSqLiteManager().executeBatch(entry.getQuery(), entry.getRows());
+        }
+    }
+
+    private JsonObject toJson(Entry entry) {
+        JsonObject object = new JsonObject();
+        JsonArray rows = new JsonArray();
+
+        for (Object[] row : entry.getRows()) {
+            JsonArray values = new JsonArray();
+
+            // Values are tagged with their type, numbers would otherwise all come back as doubles
+            for (Object value : row) {
+                JsonArray tagged = new JsonArray();
+
+                if (value == null) {
+                    values.add(JsonNull.INSTANCE);
+                    continue;
+                }
+
+                tagged.add(value instanceof Integer ? "i" : value instanceof Long ? "l" : value instanceof Double ? "d" : "s");
+                tagged.add(value.toString());
+                values.add(tagged);
+            }
+
+            rows.add(values);
+        }
+
+        object.addProperty("query", entry.getQuery());
+        object.add("rows", rows);
+        return object;
+    }
+
+    private Entry fromJson(JsonObject object) {
+        List<Object[]> rows = new ArrayList<>();
+
+        for (JsonElement row : object.getAsJsonArray("rows")) {
+            JsonArray values = row.getAsJsonArray();
+            Object[] parsed = new Object[values.size()];
+
+            for (int i = 0; i < values.size(); i++) {
+                if (values.get(i).isJsonNull())
+                    continue;
+
+                JsonArray tagged = values.get(i).getAsJsonArray();
+                String value = tagged.get(1).getAsString();
+
+                switch (tagged.get(0).getAsString()) {
+                    case "i":
+                        parsed[i] = Integer.parseInt(value);
+                        break;
+                    case "l":
+                        parsed[i] = Long.parseLong(value);
+                        break;
+                    case "d":
+                        parsed[i] = Double.parseDouble(value);
+                        break;
+                    default:
+                        parsed[i] = value;
+                        break;
+                }
+            }
+
+            rows.add(parsed);
+        }
+
+        return new Entry(object.get("query").getAsString(), rows);
+    }
+}
@@ -0,0 +1,38 @@
+package me.refracdevelopment.simplegems.managers.leaderboards;
+
+import lombok.Getter;
+import me.refracdevelopment.simplegems.player.stats.GemAmount;
+
+import java.util.UUID;
+
+@Getter
+public class LeaderboardEntry implements Comparable<LeaderboardEntry> {
+
+    private final UUID uuid;
+    private final String name;
+    private final long units;
+
+    /**
+     * @param units The player's balance, in units.
+     */
+    public LeaderboardEntry(UUID uuid, String name, long units) {
+        this.uuid = uuid;
+        this.name = name == null ? uuid.toString() : name;
+        this.units = units;
+    }
+
+    public double getGems() {
+        return GemAmount.toGems(units);
+    }
+
+    // Highest balance first, ties are broken by uuid so every player has a unique position
+    @Override
+    public int compareTo(LeaderboardEntry other) {
+        int result = Long.compare(other.units, units);
+
+        if (result != 0)
+            return result;
+
+        return uuid.compareTo(other.uuid);
+    }
+}
@@ -2,6 +2,10 @@ package me.refracdevelopment.simplegems.managers.leaderboards;
 
 import lombok.Data;
 import me.refracdevelopment.simplegems.SimpleGems;
+import me.refracdevelopment.simplegems.managers.data.Queries;
+import me.refracdevelopment.simplegems.managers.data.Uuids;
+import me.refracdevelopment.simplegems.player.Profile;
+import me.refracdevelopment.simplegems.player.stats.GemAmount;
 import me.refracdevelopment.simplegems.utilities.Methods;
 import me.refracdevelopment.simplegems.utilities.Tasks;
 import me.refracdevelopment.simplegems.utilities.chat.RyMessageUtils;
@@ -9,56 +13,270 @@ import org.bukkit.Bukkit;
 import org.bukkit.entity.Player;
 
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
+/**
+ * Keeps the top players in memory. The top is read from the database once and then kept
+ * up to date by every balance change, the update interval only reconciles offline changes.
+ * Every player's position is tracked separately by the {@link RankIndex}.
+ */
 @Data
 public class LeaderboardManager {
 
-    private Map<String, Double> cachedMap;
+    private final ConcurrentSkipListSet<LeaderboardEntry> entries = new ConcurrentSkipListSet<>();
+    private final Map<UUID, LeaderboardEntry> index = new ConcurrentHashMap<>();
+    private final RankIndex rankIndex = new RankIndex();
+    private final AtomicBoolean loading = new AtomicBoolean();
+    private final AtomicBoolean loadingRanks = new AtomicBoolean();
+    // Balance changes made while the rank index is being read, applied on top of it afterwards
+    private Map<UUID, LeaderboardEntry> rankChanges;
+    // Every balance changed while the rank index was being read, so it is read again
+    private boolean ranksStale;
+    // True when the whole table fits in the cache, so any player may be added
+    private volatile boolean complete;
 
     public LeaderboardManager() {
-        cachedMap = new LinkedHashMap<>();
-
+        reloadRanks();
+        update();
         updateTask();
 
         RyMessageUtils.sendConsole(true, "&aLoaded leaderboards.");
     }
 
-    private void load() {
-        cachedMap.clear();
+    private int getCapacity() {
+        return Math.max(SimpleGems.getInstance().getSettings().LEADERBOARD_CACHE_SIZE,
+                SimpleGems.getInstance().getSettings().GEMS_TOP_ENTRIES);
+    }
+
+    private CompletableFuture<Void> load() {
+        if (!loading.compareAndSet(false, true))
+            return CompletableFuture.completedFuture(null);
+
+        int capacity = getCapacity();
+        List<LeaderboardEntry> loaded = new ArrayList<>();
+        CompletableFuture<Void> future;
 
         switch (SimpleGems.getInstance().getDataType()) {
             case MYSQL:
-                SimpleGems.getInstance().getMySQLManager().select("SELECT * FROM SimpleGems ORDER BY gems DESC", resultSet -> {
-                    while (resultSet.next()) {
-                        String name = resultSet.getString("name");
-                        double gems = resultSet.getDouble("gems");
+                future = SimpleGems.getInstance().getMySQLManager().selectReplica(Queries.SELECT_TOP, resultSet -> {
+                    while (resultSet.next())
+                        loaded.add(new LeaderboardEntry(UUID.fromString(Uuids.read(resultSet, "uuid")), resultSet.getString("name"), resultSet.getLong("gems")));
+                }, capacity);
+                break;
+            case MAPPED:
+                future = SimpleGems.getInstance().getMappedManager().getTopEntries(capacity).thenAccept(loaded::addAll);
+                break;
+            default:
+                future = SimpleGems.getInstance().getSqLiteManager().select(Queries.SELECT_TOP, resultSet -> {
+                    while (resultSet.next())
+                        loaded.add(new LeaderboardEntry(UUID.fromString(Uuids.read(resultSet, "uuid")), resultSet.getString("name"), resultSet.getLong("gems")));
+                }, capacity);
+                break;
+        }
 
-                        cachedMap.put(name, gems);
-                    }
+        return future.whenComplete((ignored, throwable) -> {
+            loading.set(false);
+
+            if (throwable != null)
+                return;
+
+            replace(loaded, loaded.size() < capacity);
+
+            if (SimpleGems.getInstance().getSettings().BROADCAST_MESSAGE)
+                Bukkit.getOnlinePlayers().forEach(onlinePlayer ->
+                        RyMessageUtils.sendPluginMessage(onlinePlayer, "leaderboard-update"));
+        });
+    }
+
+    /**
+     * Read every player once to build the rank index, afterwards it is only kept
+     * up to date by balance changes. Rows go straight into a new index instead of
+     * being collected first, and changes made during the read are applied on top of it.
+     */
+    private CompletableFuture<Void> loadRanks() {
+        if (!loadingRanks.compareAndSet(false, true))
+            return CompletableFuture.completedFuture(null);
+
+        synchronized (this) {
+            rankChanges = new HashMap<>();
+        }
+
+        RankIndex loaded = new RankIndex();
+        CompletableFuture<Void> future;
+
+        switch (SimpleGems.getInstance().getDataType()) {
+            case MYSQL:
+                future = SimpleGems.getInstance().getMySQLManager().selectReplica(Queries.SELECT_PLAYERS, resultSet -> {
+                    while (resultSet.next())
+                        loaded.update(UUID.fromString(Uuids.read(resultSet, "uuid")), resultSet.getString("name"), resultSet.getLong("gems"));
                 });
                 break;
+            case MAPPED:
+                future = SimpleGems.getInstance().getMappedManager().forEachEntry(entry ->
+                        loaded.update(entry.getUuid(), entry.getName(), entry.getUnits()));
+                break;
             default:
-                SimpleGems.getInstance().getSqLiteManager().select("SELECT * FROM SimpleGems ORDER BY gems DESC", resultSet -> {
-                    while (resultSet.next()) {
-                        String name = resultSet.getString("name");
-                        double gems = resultSet.getDouble("gems");
+                future = SimpleGems.getInstance().getSqLiteManager().select(Queries.SELECT_PLAYERS, resultSet -> {
+                    while (resultSet.next())
+                        loaded.update(UUID.fromString(Uuids.read(resultSet, "uuid")), resultSet.getString("name"), resultSet.getLong("gems"));
+                });
+                break;
+        }
 
-                        cachedMap.put(name, gems);
+        return future.whenComplete((ignored, throwable) -> {
+            synchronized (this) {
+                if (throwable == null) {
+                    rankIndex.replace(loaded);
+                    rankChanges.values().forEach(entry -> rankIndex.update(entry.getUuid(), entry.getName(), entry.getUnits()));
+
+                    for (Profile profile : SimpleGems.getInstance().getProfileManager().getProfiles().values()) {
+                        if (Bukkit.getPlayer(profile.getUUID()) != null)
+                            rankIndex.update(profile.getUUID(), profile.getPlayerName(), profile.getData().getGems().getUnits());
                     }
-                });
+                }
+
+                rankChanges = null;
+            }
+
+            loadingRanks.set(false);
+
+            synchronized (this) {
+                if (!ranksStale)
+                    return;
+
+                ranksStale = false;
+            }
+
+            reloadRanks();
+        });
+    }
+
+    private synchronized void replace(List<LeaderboardEntry> loaded, boolean complete) {
+        entries.clear();
+        index.clear();
+        this.complete = complete;
+
+        loaded.forEach(entry -> {
+            entries.add(entry);
+            index.put(entry.getUuid(), entry);
+        });
+
+        // The database may lag behind the unsaved balances of online players
+        for (Profile profile : SimpleGems.getInstance().getProfileManager().getProfiles().values()) {
+            if (Bukkit.getPlayer(profile.getUUID()) != null)
+                update(profile.getUUID(), profile.getPlayerName(), profile.getData().getGems().getUnits());
+        }
+    }
+
+    /**
+     * Apply a balance change to the cached top.
+     *
+     * @param uuid The player's uuid.
+     * @param name The player's name.
+     * @param gems The player's new balance, in units.
+     */
+    public synchronized void update(UUID uuid, String name, long gems) {
+        rankIndex.update(uuid, name, gems);
+
+        if (rankChanges != null)
+            rankChanges.put(uuid, new LeaderboardEntry(uuid, name, gems));
+
+        LeaderboardEntry previous = index.remove(uuid);
+
+        if (previous != null)
+            entries.remove(previous);
+
+        LeaderboardEntry entry = new LeaderboardEntry(uuid, name, gems);
+
+        // Unless the whole table is cached, players ranking below the last entry may be
+        // outranked by players we don't know about, so they wait for the next reload
+        if (!complete && (entries.isEmpty() || entry.compareTo(entries.last()) > 0)) {
+            if (index.size() < SimpleGems.getInstance().getSettings().GEMS_TOP_ENTRIES)
+                update();
+            return;
+        }
+
+        entries.add(entry);
+        index.put(uuid, entry);
+
+        while (index.size() > getCapacity()) {
+            LeaderboardEntry last = entries.pollLast();
+
+            if (last == null)
                 break;
+
+            index.remove(last.getUuid());
+            complete = false;
         }
+    }
 
-        if (SimpleGems.getInstance().getSettings().BROADCAST_MESSAGE)
-            Bukkit.getOnlinePlayers().forEach(onlinePlayer ->
-                    RyMessageUtils.sendPluginMessage(onlinePlayer, "leaderboard-update"));
+    /**
+     * Apply a stored balance change of a player whose new balance isn't known,
+     * only players already ranked are changed.
+     *
+     * @param uuid  The player's uuid.
+     * @param units The change, in units.
+     */
+    public synchronized void add(UUID uuid, long units) {
+        LeaderboardEntry entry = rankIndex.get(uuid);
 
-        cachedMap = sortByValue(cachedMap);
+        if (entry != null)
+            update(uuid, entry.getName(), entry.getUnits() + units);
+    }
+
+    /**
+     * Apply the same change to every stored balance, the order doesn't change.
+     *
+     * @param units The change, in units.
+     */
+    public synchronized void addAll(long units) {
+        rankIndex.shift(units);
+
+        // Can't tell whether the rows being read already have it
+        if (rankChanges != null)
+            ranksStale = true;
+
+        List<LeaderboardEntry> shifted = new ArrayList<>(entries.size());
+
+        entries.forEach(entry -> shifted.add(new LeaderboardEntry(entry.getUuid(), entry.getName(), entry.getUnits() + units)));
+        entries.clear();
+        index.clear();
+
+        shifted.forEach(entry -> {
+            entries.add(entry);
+            index.put(entry.getUuid(), entry);
+        });
+    }
+
+    /**
+     * @param position The position on the leaderboard, starting at 0.
+     * @return The entry at that position, or null if there is none.
+     */
+    public LeaderboardEntry getEntry(int position) {
+        int current = 0;
+
+        for (LeaderboardEntry entry : entries) {
+            if (current++ == position)
+                return entry;
+        }
+
+        return null;
+    }
+
+    /**
+     * @param uuid The player's uuid.
+     * @return The player's position starting at 1, or 0 if the player isn't ranked yet.
+     */
+    public int getRank(UUID uuid) {
+        return rankIndex.getRank(uuid);
     }
 
     public void sendLeaderboard(Player player) {
-        if (cachedMap.isEmpty()) {
+        if (entries.isEmpty()) {
             RyMessageUtils.sendPluginMessage(player, "no-leaderboard-data");
             return;
         }
@@ -69,17 +287,18 @@ public class LeaderboardManager {
 
         int placement = 1;
 
-        for (Map.Entry<String, Double> entry : cachedMap.entrySet()) {
-            String key = entry.getKey();
-            double gems = entry.getValue();
+        for (LeaderboardEntry entry : entries) {
+            String key = entry.getName();
+            double gems = entry.getGems();
+            String exact = GemAmount.toString(entry.getUnits());
 
             if (placement == SimpleGems.getInstance().getSettings().GEMS_TOP_ENTRIES + 1)
                 break;
 
             RyMessageUtils.sendPlayer(player, SimpleGems.getInstance().getSettings().GEMS_TOP_FORMAT
                     .replace("%number%", String.valueOf(placement))
-                    .replace("%value%", String.valueOf(gems))
-                    .replace("%gems%", String.valueOf(gems))
+                    .replace("%value%", exact)
+                    .replace("%gems%", exact)
                     .replace("%gems_formatted%", Methods.format(gems))
                     .replace("%gems_decimal%", Methods.formatDecimal(gems))
                     .replace("%player%", key)
@@ -89,22 +308,14 @@ public class LeaderboardManager {
         }
     }
 
-    private Map<String, Double> sortByValue(Map<String, Double> unsortMap) {
-        List<Map.Entry<String, Double>> list = new LinkedList<>(unsortMap.entrySet());
-        list.sort(Map.Entry.comparingByValue(Collections.reverseOrder()));
-
-        Map<String, Double> sortedMap = new LinkedHashMap<>();
-
-        for (Map.Entry<String, Double> entry : list)
-            sortedMap.put(entry.getKey(), entry.getValue());
-
-        return sortedMap;
-    }
-
     public void update() {
         Tasks.runAsync(this::load);
     }
 
+    public void reloadRanks() {
+        Tasks.runAsync(this::loadRanks);
+    }
+
     public void updateTask() {
         try {
             Tasks.runAsyncTimer(this::load, SimpleGems.getInstance().getSettings().LEADERBOARD_UPDATE_INTERVAL,
@@ -114,4 +325,4 @@ public class LeaderboardManager {
             throwable.printStackTrace();
         }
     }
-}
\ No newline at end of file
+}
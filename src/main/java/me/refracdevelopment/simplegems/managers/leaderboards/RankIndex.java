@@ -0,0 +1,230 @@
+package me.refracdevelopment.simplegems.managers.leaderboards;
+
+import java.util.*;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * An order-statistic treap over every player's balance, answering
+ * "what is the rank of X" and "who is between rank A and B" in O(log n).
+ * <p>
+ * Balances are kept relative to an offset, so giving every player the same amount
+ * doesn't change the order and is a single addition.
+ */
+public class RankIndex {
+
+    private final Map<UUID, LeaderboardEntry> entries = new HashMap<>();
+    private Node root;
+    private long offset;
+
+    private static final class Node {
+
+        private final LeaderboardEntry entry;
+        private final int priority = ThreadLocalRandom.current().nextInt();
+        private int size = 1;
+        private Node left, right;
+
+        private Node(LeaderboardEntry entry) {
+            this.entry = entry;
+        }
+    }
+
+    /**
+     * Insert or move a player.
+     *
+     * @param uuid The player's uuid.
+     * @param name The player's name.
+     * @param gems The player's balance, in units.
+     */
+    public synchronized void update(UUID uuid, String name, long gems) {
+        LeaderboardEntry previous = entries.get(uuid);
+
+        if (previous != null) {
+            if (previous.getUnits() == gems - offset && Objects.equals(previous.getName(), name))
+                return;
+
+            root = delete(root, previous);
+        }
+
+        LeaderboardEntry entry = new LeaderboardEntry(uuid, name, gems - offset);
+        entries.put(uuid, entry);
+
+        Node[] parts = split(root, entry);
+        root = merge(merge(parts[0], new Node(entry)), parts[1]);
+    }
+
+    /**
+     * Give every player the same amount, their order stays the same.
+     *
+     * @param units The amount, in units.
+     */
+    public synchronized void shift(long units) {
+        offset += units;
+    }
+
+    /**
+     * @return The player's entry, or null if the player isn't known.
+     */
+    public synchronized LeaderboardEntry get(UUID uuid) {
+        return withOffset(entries.get(uuid));
+    }
+
+    public synchronized void remove(UUID uuid) {
+        LeaderboardEntry previous = entries.remove(uuid);
+
+        if (previous != null)
+            root = delete(root, previous);
+    }
+
+    /**
+     * Take over every player of another index, used once an index has been built from the database.
+     * The other index is left empty.
+     */
+    public synchronized void replace(RankIndex loaded) {
+        synchronized (loaded) {
+            entries.clear();
+            entries.putAll(loaded.entries);
+            root = loaded.root;
+            offset = loaded.offset;
+
+            loaded.entries.clear();
+            loaded.root = null;
+            loaded.offset = 0;
+        }
+    }
+
+    /**
+     * @return The player's rank starting at 1, or 0 if the player isn't known.
+     */
+    public synchronized int getRank(UUID uuid) {
+        LeaderboardEntry entry = entries.get(uuid);
+
+        if (entry == null)
+            return 0;
+
+        int rank = 0;
+        Node node = root;
+
+        while (node != null) {
+            int result = entry.compareTo(node.entry);
+
+            if (result < 0)
+                node = node.left;
+            else {
+                rank += size(node.left) + 1;
+
+                if (result == 0)
+                    return rank;
+
+                node = node.right;
+            }
+        }
+
+        return 0;
+    }
+
+    /**
+     * @param from The first rank, starting at 1.
+     * @param to   The last rank, inclusive.
+     * @return The players ranked between both positions.
+     */
+    public synchronized List<LeaderboardEntry> getRange(int from, int to) {
+        List<LeaderboardEntry> range = new ArrayList<>();
+
+        for (int rank = Math.max(1, from); rank <= Math.min(to, size(root)); rank++)
+            range.add(withOffset(select(rank - 1)));
+
+        return range;
+    }
+
+    public synchronized int size() {
+        return size(root);
+    }
+
+    private LeaderboardEntry select(int position) {
+        Node node = root;
+
+        while (node != null) {
+            int leftSize = size(node.left);
+
+            if (position < leftSize)
+                node = node.left;
+            else if (position == leftSize)
+                return node.entry;
+            else {
+                position -= leftSize + 1;
+                node = node.right;
+            }
+        }
+
+        return null;
+    }
+
+    private LeaderboardEntry withOffset(LeaderboardEntry entry) {
+        if (entry == null || offset == 0)
+            return entry;
+
+        return new LeaderboardEntry(entry.getUuid(), entry.getName(), entry.getUnits() + offset);
+    }
+
+    // Splits into the nodes ranked before the entry and the rest
+    private Node[] split(Node node, LeaderboardEntry entry) {
+        if (node == null)
+            return new Node[2];
+
+        if (node.entry.compareTo(entry) < 0) {
+            Node[] parts = split(node.right, entry);
+            node.right = parts[0];
+            resize(node);
+            return new Node[]{node, parts[1]};
+        }
+
+        Node[] parts = split(node.left, entry);
+        node.left = parts[1];
+        resize(node);
+        return new Node[]{parts[0], node};
+    }
+
+    private Node merge(Node left, Node right) {
+        if (left == null)
+            return right;
+
+        if (right == null)
+            return left;
+
+        if (left.priority > right.priority) {
+            left.right = merge(left.right, right);
+            resize(left);
+            return left;
+        }
+
+        right.left = merge(left, right.left);
+        resize(right);
+        return right;
+    }
+
+    private Node delete(Node node, LeaderboardEntry entry) {
+        if (node == null)
+            return null;
+
+        int result = entry.compareTo(node.entry);
+
+        if (result == 0)
+            return merge(node.left, node.right);
+
+        if (result < 0)
+            node.left = delete(node.left, entry);
+        else
+            node.right = delete(node.right, entry);
+
+        resize(node);
+        return node;
+    }
+
+    private void resize(Node node) {
+        node.size = size(node.left) + size(node.right) + 1;
+    }
+
+    private int size(Node node) {
+        return node == null ? 0 : node.size;
+    }
+}
@@ -0,0 +1,41 @@
+package me.refracdevelopment.simplegems.managers.ledger;
+
+import lombok.Getter;
+import me.refracdevelopment.simplegems.player.stats.GemAmount;
+
+import java.util.UUID;
+
+@Getter
+public class LedgerEntry {
+
+    private final long timestamp;
+    private final UUID actor;
+    private final UUID target;
+    // In units, null when the change wasn't relative, like setting an offline balance
+    private final Long delta;
+    private final LedgerReason reason;
+    // In units, null when the balance after the change isn't known
+    private final Long balance;
+
+    public LedgerEntry(UUID actor, UUID target, Long delta, LedgerReason reason, Long balance) {
+        this.timestamp = System.currentTimeMillis();
+        this.actor = actor;
+        this.target = target;
+        this.delta = delta;
+        this.reason = reason;
+        this.balance = balance;
+    }
+
+    public Object[] toValues() {
+        return new Object[]{timestamp, actor == null ? null : actor.toString(), target.toString(), delta, reason.name(), balance};
+    }
+
+    /**
+     * @return The entry as a csv line, amounts written as exact gems.
+     */
+    public String toLine() {
+        return timestamp + "," + (actor == null ? "" : actor.toString()) + "," + target + ","
+                + (delta == null ? "" : GemAmount.toString(delta)) + "," + reason.name() + ","
+                + (balance == null ? "" : GemAmount.toString(balance));
+    }
+}
@@ -0,0 +1,219 @@
+package me.refracdevelopment.simplegems.managers.ledger;
+
+import me.refracdevelopment.simplegems.SimpleGems;
+import me.refracdevelopment.simplegems.managers.data.DataType;
+import me.refracdevelopment.simplegems.managers.data.Queries;
+import me.refracdevelopment.simplegems.managers.data.SqlQuery;
+import me.refracdevelopment.simplegems.managers.data.StorageOperation;
+import me.refracdevelopment.simplegems.managers.data.WriteJournal;
+import me.refracdevelopment.simplegems.utilities.Tasks;
+import me.refracdevelopment.simplegems.utilities.chat.RyMessageUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Append-only audit trail of every gem movement. Entries are queued without locking
+ * and written in multi-row inserts by a timer, so recording never waits on the database.
+ * <p>
+ * The queue is capped, while the database can't be written to entries past the cap are
+ * dropped and counted instead of growing the queue until the server runs out of memory.
+ */
+public class LedgerManager {
+
+    private static final String LEDGER_FILE = "ledger.csv";
+    private static final int COLUMNS = 6;
+    // Older SQLite versions only allow 999 parameters per statement
+    private static final int SQLITE_MAX_ROWS = 999 / COLUMNS;
+
+    private final Queue<LedgerEntry> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pending = new AtomicInteger();
+    private final AtomicLong dropped = new AtomicLong();
+    private long reported;
+
+    public LedgerManager() {
+        flushTask();
+    }
+
+    /**
+     * Queue a gem movement to be written on the next flush.
+     *
+     * @param actor   The player who caused the change, null for the console or plugins.
+     * @param target  The player whose balance changed.
+     * @param delta   The amount added in units, negative if taken, null if the balance was set.
+     * @param reason  Why the balance changed.
+     * @param balance The target's balance after the change in units, null if unknown.
+     */
+    public void record(UUID actor, UUID target, Long delta, LedgerReason reason, Long balance) {
+        if (!SimpleGems.getInstance().getSettings().LEDGER_ENABLED)
+            return;
+
+        if (pending.get() >= SimpleGems.getInstance().getSettings().LEDGER_MAX_PENDING) {
+            dropped.incrementAndGet();
+            return;
+        }
+
+        queue.offer(new LedgerEntry(actor, target, delta, reason, balance));
+        pending.incrementAndGet();
+    }
+
+    /**
+     * Write every queued entry.
+     *
+     * @return A future completed once all inserts have been written.
+     */
+    public synchronized CompletableFuture<Void> flush() {
+        report();
+
+        int batchSize = Math.max(1, SimpleGems.getInstance().getSettings().LEDGER_BATCH_SIZE);
+
+        switch (SimpleGems.getInstance().getDataType()) {
+            case MYSQL:
+            case MAPPED:
+                break;
+            default:
+                batchSize = Math.min(batchSize, SQLITE_MAX_ROWS);
+                break;
+        }
+
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        List<LedgerEntry> batch = new ArrayList<>();
+        LedgerEntry entry;
+        // Only the entries queued so far, the ones a failed write puts back wait for the next flush
+        int remaining = pending.get();
+
+        while (remaining-- > 0 && (entry = queue.poll()) != null) {
+            pending.decrementAndGet();
+            batch.add(entry);
+
+            if (batch.size() >= batchSize) {
+                CompletableFuture<Void> future = write(batch);
+
+                futures.add(future);
+                batch = new ArrayList<>();
+
+                // Refused straight away, the rest isn't going to be accepted either
+                if (future.isCompletedExceptionally())
+                    break;
+            }
+        }
+
+        if (!batch.isEmpty())
+            futures.add(write(batch));
+
+        return CompletableFuture.allOf(futures.toArray(new CompletableFuture[0]));
+    }
+
+    private CompletableFuture<Void> write(List<LedgerEntry> batch) {
+        if (SimpleGems.getInstance().getDataType() == DataType.MAPPED)
+            return retryOnFailure(batch, append(batch));
+
+        SqlQuery query = Queries.insertLedger(batch.size());
+        Object[] values = new Object[batch.size() * COLUMNS];
+
+        for (int i = 0; i < batch.size(); i++)
+            System.arraycopy(batch.get(i).toValues(), 0, values, i * COLUMNS, COLUMNS);
+
+        CompletableFuture<Void> future;
+
+        switch (SimpleGems.getInstance().getDataType()) {
+            case MYSQL:
+                future = SimpleGems.getInstance().getMySQLManager().execute(query, values);
+                break;
+            default:
+                future = SimpleGems.getInstance().getSqLiteManager().execute(query, values);
+                break;
+        }
+
+        return retryOnFailure(batch, future);
+    }
+
+    // The mapped data type has no tables, so its entries are appended to a csv file instead
+    private CompletableFuture<Void> append(List<LedgerEntry> batch) {
+        return SimpleGems.getInstance().getStorageExecutor().execute(StorageOperation.WRITE, () -> {
+            StringBuilder lines = new StringBuilder();
+
+            for (LedgerEntry entry : batch)
+                lines.append(entry.toLine()).append(System.lineSeparator());
+
+            try {
+                Files.writeString(new File(SimpleGems.getInstance().getDataFolder(), LEDGER_FILE).toPath(), lines,
+                        StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+            } catch (IOException exception) {
+                RyMessageUtils.sendConsole(true, "An error occurred while appending to " + LEDGER_FILE + ".");
+                exception.printStackTrace();
+                throw new CompletionException(exception);
+            }
+        });
+    }
+
+    private CompletableFuture<Void> retryOnFailure(List<LedgerEntry> batch, CompletableFuture<Void> future) {
+        return future.whenComplete((ignored, throwable) -> {
+            if (throwable == null)
+                return;
+
+            // The timestamps keep the order, so the entries can simply be queued again as far as they fit
+            int kept = Math.max(0, Math.min(batch.size(), SimpleGems.getInstance().getSettings().LEDGER_MAX_PENDING - pending.get()));
+
+            for (int i = 0; i < kept; i++)
+                queue.offer(batch.get(i));
+
+            pending.addAndGet(kept);
+            dropped.addAndGet(batch.size() - kept);
+
+            RyMessageUtils.sendConsole(true, "&cFailed to write " + batch.size() + " ledger entries, retrying on the next flush.");
+        });
+    }
+
+    // Reports the entries dropped since the last flush once, rather than every single one
+    private void report() {
+        long count = dropped.get();
+
+        if (count == reported)
+            return;
+
+        RyMessageUtils.sendConsole(true, "&cDropped &e" + (count - reported) + " &cledger entries as too many couldn't be written yet.");
+        reported = count;
+    }
+
+    /**
+     * Take every queued entry without writing it, used to journal the entries
+     * that are still unwritten once the storage workers have stopped.
+     *
+     * @return The statement to insert the entries with, null if there are none.
+     */
+    public WriteJournal.Entry drain() {
+        List<Object[]> rows = new ArrayList<>();
+        LedgerEntry entry;
+
+        while ((entry = queue.poll()) != null) {
+            pending.decrementAndGet();
+            rows.add(entry.toValues());
+        }
+
+        return rows.isEmpty() ? null : new WriteJournal.Entry(Queries.insertLedger(1).getSql(), rows);
+    }
+
+    public int getPendingCount() {
+        return pending.get();
+    }
+
+    public long getDroppedCount() {
+        return dropped.get();
+    }
+
+    public void flushTask() {
+        long interval = SimpleGems.getInstance().getSettings().LEDGER_FLUSH_INTERVAL;
+
+        Tasks.runAsyncTimer(this::flush, interval, interval, TimeUnit.SECONDS);
+    }
+}
@@ -0,0 +1,10 @@
+package me.refracdevelopment.simplegems.managers.ledger;
+
+public enum LedgerReason {
+    GIVE,
+    TAKE,
+    SET,
+    PAY,
+    WITHDRAW,
+    DEPOSIT
+}
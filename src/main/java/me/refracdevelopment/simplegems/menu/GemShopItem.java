@@ -195,12 +195,11 @@ public class GemShopItem {
         }
 
         if (isBuyable()) {
-            if (!SimpleGems.getInstance().getGemsAPI().hasGems(player, getCost())) {
+            if (!SimpleGems.getInstance().getGemsAPI().hasGems(player, getCost())
+                    || !SimpleGems.getInstance().getGemsAPI().tryTakeGems(player, getCost())) {
                 RyMessageUtils.sendPluginMessage(player, "not-enough-gems", placeholders);
                 return;
             }
-
-            SimpleGems.getInstance().getGemsAPI().takeGems(player, getCost());
         }
 
         if (isAction()) {
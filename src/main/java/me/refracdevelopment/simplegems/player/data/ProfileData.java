@@ -6,60 +6,67 @@ import me.refracdevelopment.simplegems.player.stats.Stat;
 import org.bukkit.entity.Player;
 
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 
 @Data
 public class ProfileData {
 
     private final SimpleGems plugin = SimpleGems.getInstance();
-    private final String name;
+    private volatile String name;
     private final UUID uuid;
 
     private Stat gems = new Stat();
     private int prestigeLevel = 0;
     private double gemMultiplier = 1.0;
+    // Set once the stored balance has been read, the player isn't let in before that
+    private volatile boolean loaded;
 
     public ProfileData(UUID uuid, String name) {
         this.uuid = uuid;
         this.name = name;
     }
 
-    // Check if the player exists already if not add them to the database then load and cache their data
-    public void load() {
+    // Create the player's row if needed, refresh their name and cache their balance in one go
+    public CompletableFuture<Void> load() {
+        CompletableFuture<Long> future;
+
+        // The profile is the source of truth while the player is online
+        getPlugin().getProfileManager().getOfflineCache().invalidate(uuid);
+
         switch (getPlugin().getDataType()) {
             case MYSQL:
-                getPlugin().getMySQLManager().select("SELECT * FROM SimpleGems WHERE uuid=?", resultSet -> {
-                    if (resultSet.next()) {
-                        getGems().setAmount(resultSet.getDouble("gems"));
-                        getPlugin().getMySQLManager().updatePlayerName(uuid.toString(), name);
-                    } else {
-                        getPlugin().getMySQLManager().execute("INSERT INTO SimpleGems (uuid, name, gems) VALUES (?,?,?)",
-                                uuid.toString(), name, 0L);
-                    }
-                }, uuid.toString());
+                future = getPlugin().getMySQLManager().loadPlayer(uuid.toString(), name);
+                break;
+            case MAPPED:
+                future = getPlugin().getMappedManager().loadPlayer(uuid.toString(), name);
                 break;
             default:
-                getPlugin().getSqLiteManager().select("SELECT * FROM SimpleGems WHERE uuid=?", resultSet -> {
-                    if (resultSet.next()) {
-                        getGems().setAmount(resultSet.getDouble("gems"));
-                        getPlugin().getSqLiteManager().updatePlayerName(uuid.toString(), name);
-                    } else {
-                        getPlugin().getSqLiteManager().execute("INSERT INTO SimpleGems (uuid, name, gems) VALUES (?,?,?)",
-                                uuid.toString(), name, 0L);
-                    }
-                }, uuid.toString());
+                future = getPlugin().getSqLiteManager().loadPlayer(uuid.toString(), name);
                 break;
         }
+
+        return future.thenAccept(gems -> {
+            getGems().setUnits(gems);
+            loaded = true;
+
+            // Ranked right away instead of on their first save
+            if (getPlugin().getLeaderboardManager() != null)
+                getPlugin().getLeaderboardManager().update(uuid, name, gems);
+        });
     }
 
-    // Save the player to the database
+    // Queue the player's balance, it is written with the next batch
     public void save() {
-        switch (getPlugin().getDataType()) {
-            case MYSQL:
-                getPlugin().getMySQLManager().updatePlayerGems(uuid.toString(), getGems().getAmount());
-                break;
-            default:
-                getPlugin().getSqLiteManager().updatePlayerGems(uuid.toString(), getGems().getAmount());
-                break;
-        }
+        getPlugin().getWriteBehindBuffer().markDirty(uuid, getGems().getUnits());
+        getPlugin().getAutosaveManager().markDirty(this);
+
+        if (getPlugin().getLeaderboardManager() != null)
+            getPlugin().getLeaderboardManager().update(uuid, name, getGems().getUnits());
+    }
+
+    // Write the player's balance to the database right away
+    public CompletableFuture<Void> saveNow() {
+        save();
+        return getPlugin().getWriteBehindBuffer().flush(uuid);
     }
 }
\ No newline at end of file
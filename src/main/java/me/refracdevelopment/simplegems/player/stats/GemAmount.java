@@ -0,0 +1,103 @@
+package me.refracdevelopment.simplegems.player.stats;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Balances are whole numbers of units, a unit being 10^-scale gems. Arithmetic on units is
+ * exact and needs no boxing, doubles are only used to talk to the API and the menus.
+ * <p>
+ * The scale is fixed when the plugin enables, stored balances are rescaled when it changes.
+ */
+public final class GemAmount {
+
+    public static final int MAX_SCALE = 6;
+
+    private static volatile int scale = 0;
+    private static volatile long factor = 1;
+
+    private GemAmount() {
+    }
+
+    /**
+     * @param scale The amount of decimals a balance keeps, between 0 and {@link #MAX_SCALE}.
+     */
+    public static void setScale(int scale) {
+        int clamped = Math.max(0, Math.min(MAX_SCALE, scale));
+        long factor = 1;
+
+        for (int i = 0; i < clamped; i++)
+            factor *= 10;
+
+        GemAmount.factor = factor;
+        GemAmount.scale = clamped;
+    }
+
+    public static int getScale() {
+        return scale;
+    }
+
+    public static long getFactor() {
+        return factor;
+    }
+
+    /**
+     * @return The amount in units, rounded to the nearest unit.
+     */
+    public static long toUnits(double gems) {
+        return Math.round(gems * factor);
+    }
+
+    public static double toGems(long units) {
+        return (double) units / factor;
+    }
+
+    /**
+     * @param units The amount in units of another scale.
+     * @param scale The scale the units were kept at.
+     * @return The amount in units of the current scale, rounded half up to the nearest unit.
+     */
+    public static long rescale(long units, int scale) {
+        if (scale == GemAmount.scale)
+            return units;
+
+        return BigDecimal.valueOf(units).movePointRight(GemAmount.scale - scale)
+                .setScale(0, RoundingMode.HALF_UP).longValueExact();
+    }
+
+    /**
+     * @return The exact amount of gems, with trailing zero decimals left out.
+     */
+    public static String toString(long units) {
+        if (scale == 0)
+            return Long.toString(units);
+
+        StringBuilder builder = new StringBuilder(24);
+
+        if (units < 0)
+            builder.append('-');
+
+        long whole = Math.abs(units / factor);
+        long fraction = Math.abs(units % factor);
+
+        builder.append(whole);
+
+        if (fraction == 0)
+            return builder.toString();
+
+        int digits = scale;
+
+        while (fraction % 10 == 0) {
+            fraction /= 10;
+            digits--;
+        }
+
+        String decimals = Long.toString(fraction);
+        builder.append('.');
+
+        for (int i = decimals.length(); i < digits; i++)
+            builder.append('0');
+
+        return builder.append(decimals).toString();
+    }
+}
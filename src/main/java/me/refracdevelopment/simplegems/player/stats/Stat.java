@@ -1,21 +1,109 @@
 package me.refracdevelopment.simplegems.player.stats;
 
-import lombok.Data;
+import java.util.concurrent.atomic.AtomicLong;
 
-@Data
+/**
+ * A balance changed from commands, region threads, async loads and API callers at once.
+ * The balance is kept in {@link GemAmount} units and every change is a compare-and-set,
+ * so no update is lost and {@link #tryDebitUnits(long)} checks and takes in one step without a lock.
+ * The double methods convert to units first.
+ */
 public class Stat {
 
-    private double amount;
+    private final AtomicLong units = new AtomicLong();
 
-    public void incrementAmount(double amount) {
-        this.amount += amount;
+    public long getUnits() {
+        return units.get();
     }
 
-    public void decrementAmount(double amount) {
-        this.amount -= amount;
+    public void setUnits(long units) {
+        this.units.set(units);
+    }
+
+    /**
+     * @return The balance afterwards, in units.
+     */
+    public long addUnits(long units) {
+        return this.units.addAndGet(units);
+    }
+
+    /**
+     * Take the units only if the balance covers them.
+     *
+     * @return true - If the units were taken
+     */
+    public boolean tryDebitUnits(long units) {
+        while (true) {
+            long current = this.units.get();
+
+            if (current < units)
+                return false;
+
+            if (this.units.compareAndSet(current, current - units))
+                return true;
+        }
+    }
+
+    /**
+     * Move units between two balances if the first covers them. They are taken before they are
+     * given, so gems are never created even though both sides aren't changed at the same instant.
+     *
+     * @return true - If the units were moved
+     */
+    public static boolean transferUnits(Stat from, Stat to, long units) {
+        if (!from.tryDebitUnits(units))
+            return false;
+
+        to.addUnits(units);
+        return true;
+    }
+
+    public double getAmount() {
+        return GemAmount.toGems(getUnits());
+    }
+
+    public void setAmount(double amount) {
+        setUnits(GemAmount.toUnits(amount));
+    }
+
+    /**
+     * @return The balance afterwards.
+     */
+    public double incrementAmount(double amount) {
+        return GemAmount.toGems(addUnits(GemAmount.toUnits(amount)));
+    }
+
+    /**
+     * Take the amount even if the balance goes below zero, use {@link #tryDebit(double)} for payments.
+     *
+     * @return The balance afterwards.
+     */
+    public double decrementAmount(double amount) {
+        return GemAmount.toGems(addUnits(-GemAmount.toUnits(amount)));
+    }
+
+    /**
+     * Take the amount only if the balance covers it.
+     *
+     * @return true - If the amount was taken
+     */
+    public boolean tryDebit(double amount) {
+        return tryDebitUnits(GemAmount.toUnits(amount));
+    }
+
+    /**
+     * @see #transferUnits(Stat, Stat, long)
+     */
+    public static boolean transfer(Stat from, Stat to, double amount) {
+        return transferUnits(from, to, GemAmount.toUnits(amount));
     }
 
     public boolean hasAmount(double amount) {
-        return this.amount >= amount;
+        return getUnits() >= GemAmount.toUnits(amount);
+    }
+
+    @Override
+    public String toString() {
+        return "Stat(amount=" + GemAmount.toString(getUnits()) + ")";
     }
-}
\ No newline at end of file
+}
@@ -3,85 +3,346 @@ package me.refracdevelopment.simplegems.utilities;
 import com.cryptomorin.xseries.XEnchantment;
 import com.cryptomorin.xseries.XItemFlag;
 import com.cryptomorin.xseries.XMaterial;
-import com.google.common.util.concurrent.AtomicDouble;
 import de.tr7zw.nbtapi.NBT;
 import dev.lone.itemsadder.api.CustomStack;
 import lombok.experimental.UtilityClass;
 import me.refracdevelopment.simplegems.SimpleGems;
+import me.refracdevelopment.simplegems.managers.OfflineCache;
+import me.refracdevelopment.simplegems.managers.data.Queries;
+import me.refracdevelopment.simplegems.managers.ledger.LedgerReason;
+import me.refracdevelopment.simplegems.player.Profile;
 import me.refracdevelopment.simplegems.player.data.ProfileData;
+import me.refracdevelopment.simplegems.player.stats.GemAmount;
 import me.refracdevelopment.simplegems.utilities.chat.Placeholders;
 import me.refracdevelopment.simplegems.utilities.chat.RyMessageUtils;
 import me.refracdevelopment.simplegems.utilities.chat.StringPlaceholders;
+import org.bukkit.Bukkit;
 import org.bukkit.OfflinePlayer;
 import org.bukkit.entity.Player;
 import org.bukkit.inventory.ItemStack;
 
-import java.sql.SQLException;
 import java.text.DecimalFormat;
 import java.text.DecimalFormatSymbols;
 import java.text.NumberFormat;
-import java.util.List;
-import java.util.Locale;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
 
 @UtilityClass
 public class Methods {
 
+
     /**
      * The #saveOffline method allows you to
      * save a specified player's data
      */
-    public void saveOffline(OfflinePlayer player, double amount) {
-        Tasks.runAsync(() -> {
+    public CompletableFuture<Void> saveOffline(OfflinePlayer player, double amount) {
+        long units = GemAmount.toUnits(amount);
+
+        return settle(player.getUniqueId()).thenCompose(ignored -> {
             switch (SimpleGems.getInstance().getDataType()) {
                 case MYSQL:
-                    SimpleGems.getInstance().getMySQLManager().updatePlayerGems(player.getUniqueId().toString(), amount);
-                    break;
+                    return SimpleGems.getInstance().getMySQLManager().updatePlayerGems(player.getUniqueId().toString(), units);
+                case MAPPED:
+                    return SimpleGems.getInstance().getMappedManager().updatePlayerGems(player.getUniqueId().toString(), units);
                 default:
-                    SimpleGems.getInstance().getSqLiteManager().updatePlayerGems(player.getUniqueId().toString(), amount);
-                    break;
+                    return SimpleGems.getInstance().getSqLiteManager().updatePlayerGems(player.getUniqueId().toString(), units);
             }
         });
     }
 
-    public void setOfflineGems(OfflinePlayer player, double amount) {
-        saveOffline(player, amount);
+    /**
+     * Write the player's queued and in-flight balance saves before their stored balance is
+     * changed directly, a save landing afterwards would overwrite the change. Their idle
+     * profile is evicted as well, so a reconnect reads the new balance.
+     *
+     * @return A future completed once nothing of the player is left to write.
+     */
+    private CompletableFuture<Void> settle(UUID uuid) {
+        return SimpleGems.getInstance().getWriteBehindBuffer().flush(uuid)
+                .thenRun(() -> SimpleGems.getInstance().getProfileManager().evict(uuid));
+    }
+
+    public CompletableFuture<Void> setOfflineGems(OfflinePlayer player, double amount) {
+        long units = GemAmount.toUnits(amount);
+
+        return saveOffline(player, amount).thenRun(() -> {
+            SimpleGems.getInstance().getProfileManager().getOfflineCache().put(player.getUniqueId(), units);
+            SimpleGems.getInstance().getLeaderboardManager().update(player.getUniqueId(), player.getName(), units);
+            SimpleGems.getInstance().getLedgerManager().record(null, player.getUniqueId(), null, LedgerReason.SET, units);
+        });
+    }
+
+    // Offline deltas don't know the new balance, read it back for the leaderboard and ledger, the delta is in units
+    private CompletableFuture<Boolean> refreshLeaderboard(OfflinePlayer player, long delta, UUID actor, LedgerReason reason,
+                                                          CompletableFuture<Boolean> future) {
+        return future.thenCompose(changed -> {
+            if (!changed)
+                return CompletableFuture.completedFuture(false);
+
+            SimpleGems.getInstance().getProfileManager().getOfflineCache().invalidate(player.getUniqueId());
+
+            return getOfflineUnitsAsync(player).thenApply(gems -> {
+                SimpleGems.getInstance().getLeaderboardManager().update(player.getUniqueId(), player.getName(), gems);
+                SimpleGems.getInstance().getLedgerManager().record(actor, player.getUniqueId(), delta, reason, gems);
+                return true;
+            });
+        });
+    }
+
+    /**
+     * Adds to the stored balance in a single statement once the player's pending saves are written,
+     * the future completes with false if the player has no data.
+     */
+    public CompletableFuture<Boolean> giveOfflineGems(OfflinePlayer player, double amount) {
+        return giveOfflineGems(player, amount, null, LedgerReason.GIVE);
+    }
+
+    public CompletableFuture<Boolean> giveOfflineGems(OfflinePlayer player, double amount, UUID actor, LedgerReason reason) {
+        long units = GemAmount.toUnits(amount);
+
+        return refreshLeaderboard(player, units, actor, reason, settle(player.getUniqueId()).thenCompose(ignored -> {
+            switch (SimpleGems.getInstance().getDataType()) {
+                case MYSQL:
+                    return SimpleGems.getInstance().getMySQLManager().addPlayerGems(player.getUniqueId().toString(), units);
+                case MAPPED:
+                    return SimpleGems.getInstance().getMappedManager().addPlayerGems(player.getUniqueId().toString(), units);
+                default:
+                    return SimpleGems.getInstance().getSqLiteManager().addPlayerGems(player.getUniqueId().toString(), units);
+            }
+        }));
+    }
+
+    /**
+     * Takes from the stored balance in a single statement once the player's pending saves are written,
+     * the future completes with false if the player doesn't have enough gems.
+     */
+    public CompletableFuture<Boolean> takeOfflineGems(OfflinePlayer player, double amount) {
+        long units = GemAmount.toUnits(amount);
+
+        return refreshLeaderboard(player, -units, null, LedgerReason.TAKE, settle(player.getUniqueId()).thenCompose(ignored -> {
+            switch (SimpleGems.getInstance().getDataType()) {
+                case MYSQL:
+                    return SimpleGems.getInstance().getMySQLManager().takePlayerGems(player.getUniqueId().toString(), units);
+                case MAPPED:
+                    return SimpleGems.getInstance().getMappedManager().takePlayerGems(player.getUniqueId().toString(), units);
+                default:
+                    return SimpleGems.getInstance().getSqLiteManager().takePlayerGems(player.getUniqueId().toString(), units);
+            }
+        }));
     }
 
-    public void giveOfflineGems(OfflinePlayer player, double amount) {
-        setOfflineGems(player, getOfflineGems(player) + amount);
+    /**
+     * Gives every player the same amount in one pass. Online players are changed in memory
+     * and saved with a single batch, offline players with a single batched update.
+     *
+     * @return A future completed once every balance has been stored.
+     */
+    public CompletableFuture<Void> giveGemsBulk(Collection<UUID> uuids, double amount) {
+        long units = GemAmount.toUnits(amount);
+        List<Object[]> offline = new ArrayList<>();
+        List<UUID> offlineUuids = new ArrayList<>();
+
+        for (UUID uuid : uuids) {
+            Profile profile = SimpleGems.getInstance().getProfileManager().getProfile(uuid);
+
+            if (profile == null || profile.getData() == null || Bukkit.getPlayer(uuid) == null) {
+                offline.add(new Object[]{units, uuid.toString()});
+                offlineUuids.add(uuid);
+                SimpleGems.getInstance().getProfileManager().getOfflineCache().invalidate(uuid);
+                continue;
+            }
+
+            profile.getData().getGems().incrementAmount(amount);
+            profile.getData().save();
+            SimpleGems.getInstance().getLedgerManager().record(null, uuid, units, LedgerReason.GIVE, profile.getData().getGems().getUnits());
+        }
+
+        // Pending balances, the online ones just queued included, are written first so they can't overwrite the added gems afterwards
+        CompletableFuture<Void> flushed = SimpleGems.getInstance().getWriteBehindBuffer().flush();
+
+        if (offline.isEmpty())
+            return flushed;
+
+        return flushed.thenCompose(ignored -> {
+            offlineUuids.forEach(SimpleGems.getInstance().getProfileManager()::evict);
+
+            switch (SimpleGems.getInstance().getDataType()) {
+                case MYSQL:
+                    return SimpleGems.getInstance().getMySQLManager().executeBatch(Queries.ADD_GEMS, offline)
+                            .thenRun(() -> offlineUuids.forEach(uuid -> bulkGiven(uuid, units)));
+                case MAPPED:
+                    List<CompletableFuture<Boolean>> writes = new ArrayList<>();
+
+                    // Every player is reported on their own, a failed write fails the whole future
+                    for (UUID uuid : offlineUuids)
+                        writes.add(SimpleGems.getInstance().getMappedManager().addPlayerGems(uuid.toString(), units).thenApply(changed -> {
+                            if (changed)
+                                bulkGiven(uuid, units);
+
+                            return changed;
+                        }));
+
+                    return CompletableFuture.allOf(writes.toArray(new CompletableFuture[0]));
+                default:
+                    return SimpleGems.getInstance().getSqLiteManager().executeBatch(Queries.ADD_GEMS, offline)
+                            .thenRun(() -> offlineUuids.forEach(uuid -> bulkGiven(uuid, units)));
+            }
+        });
     }
 
-    public void takeOfflineGems(OfflinePlayer player, double amount) {
-        setOfflineGems(player, getOfflineGems(player) - amount);
+    // Recorded once the stored balance has been changed, the new balance isn't known here
+    private void bulkGiven(UUID uuid, long units) {
+        SimpleGems.getInstance().getLeaderboardManager().add(uuid, units);
+        SimpleGems.getInstance().getLedgerManager().record(null, uuid, units, LedgerReason.GIVE, null);
     }
 
+    /**
+     * Gives every stored player the same amount with a single set-based update,
+     * online players are changed in memory as well since their balance is saved from there.
+     *
+     * @return A future completed with the amount of players changed.
+     */
+    public CompletableFuture<Integer> giveAllGems(double amount) {
+        long units = GemAmount.toUnits(amount);
+
+        // Pending balances are written first so they can't overwrite the added gems afterwards
+        CompletableFuture<Integer> future = SimpleGems.getInstance().getWriteBehindBuffer().flush().thenCompose(ignored -> {
+            switch (SimpleGems.getInstance().getDataType()) {
+                case MYSQL:
+                    return SimpleGems.getInstance().getMySQLManager().addAllGems(units);
+                case MAPPED:
+                    return SimpleGems.getInstance().getMappedManager().addAllGems(units);
+                default:
+                    return SimpleGems.getInstance().getSqLiteManager().addAllGems(units);
+            }
+        });
+
+        return future.thenApply(changed -> {
+            SimpleGems.getInstance().getProfileManager().evictAll();
+            SimpleGems.getInstance().getProfileManager().getOfflineCache().clear();
+            // Everyone moves up by the same amount, so nobody changes places
+            SimpleGems.getInstance().getLeaderboardManager().addAll(units);
+
+            for (Player player : Bukkit.getOnlinePlayers()) {
+                Profile profile = SimpleGems.getInstance().getProfileManager().getProfile(player.getUniqueId());
+
+                if (profile == null || profile.getData() == null)
+                    continue;
+
+                Tasks.runAtEntity(player, () -> {
+                    profile.getData().getGems().incrementAmount(amount);
+                    profile.getData().save();
+                    SimpleGems.getInstance().getLedgerManager().record(null, player.getUniqueId(), units, LedgerReason.GIVE, profile.getData().getGems().getUnits());
+                });
+            }
+
+            return changed;
+        });
+    }
+
+    /**
+     * Resolve a player by name, checking the loaded profiles first so
+     * the server doesn't have to look the name up.
+     */
+    public OfflinePlayer getOfflinePlayer(String name) {
+        Profile profile = SimpleGems.getInstance().getProfileManager().getProfile(name);
+
+        if (profile != null)
+            return Bukkit.getOfflinePlayer(profile.getUUID());
+
+        return Bukkit.getOfflinePlayer(name);
+    }
+
+    /**
+     * Only answers from the offline cache and returns 0 on a miss.
+     *
+     * @deprecated Use #getOfflineGemsAsync, which waits for the database.
+     */
+    @Deprecated
     public double getOfflineGems(OfflinePlayer player) {
-        AtomicDouble gems = new AtomicDouble(0);
+        return getOfflineGemsAsync(player).getNow(0D);
+    }
+
+    public CompletableFuture<Double> getOfflineGemsAsync(OfflinePlayer player) {
+        return getOfflineUnitsAsync(player).thenApply(GemAmount::toGems);
+    }
+
+    public CompletableFuture<Long> getOfflineUnitsAsync(OfflinePlayer player) {
+        OfflineCache cache = SimpleGems.getInstance().getProfileManager().getOfflineCache();
+        Long cached = cache.get(player.getUniqueId());
+
+        if (cached != null)
+            return CompletableFuture.completedFuture(cached);
+
+        long stamp = cache.getStamp();
+        CompletableFuture<Long> future;
 
         switch (SimpleGems.getInstance().getDataType()) {
             case MYSQL:
-                SimpleGems.getInstance().getMySQLManager().select("SELECT gems FROM SimpleGems WHERE uuid=?", resultSet -> {
-                    try {
-                        if (resultSet.next())
-                            gems.set(resultSet.getDouble("gems"));
-                    } catch (SQLException exception) {
-                        RyMessageUtils.sendConsole(true, exception.getMessage());
-                    }
-                }, player.getUniqueId().toString());
-                return gems.get();
+                future = SimpleGems.getInstance().getMySQLManager().getPlayerGems(player.getUniqueId().toString());
+                break;
+            case MAPPED:
+                future = SimpleGems.getInstance().getMappedManager().getPlayerGems(player.getUniqueId().toString());
+                break;
             default:
-                SimpleGems.getInstance().getSqLiteManager().select("SELECT gems FROM SimpleGems WHERE uuid=?", resultSet -> {
-                    try {
-                        if (resultSet.next())
-                            gems.set(resultSet.getDouble("gems"));
-                    } catch (SQLException exception) {
-                        RyMessageUtils.sendConsole(true, exception.getMessage());
-                    }
-                }, player.getUniqueId().toString());
-                return gems.get();
+                future = SimpleGems.getInstance().getSqLiteManager().getPlayerGems(player.getUniqueId().toString());
+                break;
         }
+
+        return future.thenApply(gems -> {
+            cache.put(player.getUniqueId(), gems, stamp);
+            return gems;
+        });
     }
 
+    public CompletableFuture<Map<UUID, Double>> getOfflineGemsAsync(Collection<UUID> uuids) {
+        OfflineCache cache = SimpleGems.getInstance().getProfileManager().getOfflineCache();
+        Map<UUID, Double> cached = new HashMap<>();
+        List<String> keys = new ArrayList<>();
+
+        for (UUID uuid : uuids) {
+            Long gems = cache.get(uuid);
+
+            if (gems != null)
+                cached.put(uuid, GemAmount.toGems(gems));
+            else
+                keys.add(uuid.toString());
+        }
+
+        if (keys.isEmpty())
+            return CompletableFuture.completedFuture(cached);
+
+        long stamp = cache.getStamp();
+        CompletableFuture<Map<String, Long>> future;
+
+        switch (SimpleGems.getInstance().getDataType()) {
+            case MYSQL:
+                future = SimpleGems.getInstance().getMySQLManager().getPlayersGems(keys);
+                break;
+            case MAPPED:
+                future = SimpleGems.getInstance().getMappedManager().getPlayersGems(keys);
+                break;
+            default:
+                future = SimpleGems.getInstance().getSqLiteManager().getPlayersGems(keys);
+                break;
+        }
+
+        return future.thenApply(balances -> {
+            Map<UUID, Double> result = new HashMap<>(cached);
+
+            balances.forEach((uuid, gems) -> {
+                result.put(UUID.fromString(uuid), GemAmount.toGems(gems));
+                cache.put(UUID.fromString(uuid), gems, stamp);
+            });
+
+            return result;
+        });
+    }
+
+    /**
+     * @deprecated Only answers from the offline cache, use #getOfflineGemsAsync and compare.
+     */
+    @Deprecated
     public boolean hasOfflineGems(OfflinePlayer player, double amount) {
         return getOfflineGems(player) >= amount;
     }
@@ -101,14 +362,13 @@ public class Methods {
                 .add("gems_decimal", Methods.formatDecimal(amount))
                 .build();
 
-        if (!profile.getGems().hasAmount(amount)) {
+        // Checked up front so no events are called for a payment that can't go through
+        if (!profile.getGems().hasAmount(amount)
+                || !SimpleGems.getInstance().getGemsAPI().transferGems(player, target, amount, LedgerReason.PAY)) {
             RyMessageUtils.sendPluginMessage(player, "not-enough-pay", placeholders);
             return;
         }
 
-        SimpleGems.getInstance().getGemsAPI().takeGems(player, amount);
-        SimpleGems.getInstance().getGemsAPI().giveGems(target, amount);
-
         RyMessageUtils.sendPluginMessage(player, "gems-paid", placeholders);
 
         if (silent)
@@ -128,15 +388,36 @@ public class Methods {
                 .add("gems_decimal", Methods.formatDecimal(amount))
                 .build();
 
-        if (!profile.getGems().hasAmount(amount)) {
+        if (!profile.getGems().hasAmount(amount)
+                || !SimpleGems.getInstance().getGemsAPI().tryTakeGems(player, player, amount, LedgerReason.PAY)) {
             RyMessageUtils.sendPluginMessage(player, "not-enough-pay", placeholders);
             return;
         }
 
-        SimpleGems.getInstance().getGemsAPI().takeGems(player, amount);
-        SimpleGems.getInstance().getGemsAPI().giveOfflineGems(target, amount);
+        // Only confirmed once the target's balance has been stored
+        giveOfflinePayment(player, target, amount).thenAcceptAsync(paid ->
+                RyMessageUtils.sendPluginMessage(player, paid ? "gems-paid" : "pay-failed", placeholders), Tasks.entityThread(player));
+    }
 
-        RyMessageUtils.sendPluginMessage(player, "gems-paid", placeholders);
+    /**
+     * Gives the gems already taken from the player to the offline target, the gems are
+     * refunded if the target has no data or the write failed.
+     *
+     * @return A future completed with true if the target received the gems.
+     */
+    public CompletableFuture<Boolean> giveOfflinePayment(Player player, OfflinePlayer target, double amount) {
+        return giveOfflineGems(target, amount, player.getUniqueId(), LedgerReason.PAY).handle((paid, throwable) -> {
+            if (throwable == null && paid)
+                return true;
+
+            if (player.isOnline())
+                Tasks.runAtEntity(player, () -> SimpleGems.getInstance().getGemsAPI().giveGems(null, player, amount, LedgerReason.PAY));
+            else
+                // Left meanwhile, the refund is added after their quit save
+                giveOfflineGems(player, amount, null, LedgerReason.PAY);
+
+            return false;
+        });
     }
 
     public void withdrawGems(Player player, double amount) {
@@ -147,12 +428,12 @@ public class Methods {
                 .add("gems_decimal", Methods.formatDecimal(amount))
                 .build();
 
-        if (!SimpleGems.getInstance().getGemsAPI().hasGems(player, amount)) {
+        if (!SimpleGems.getInstance().getGemsAPI().hasGems(player, amount)
+                || !SimpleGems.getInstance().getGemsAPI().tryTakeGems(player, player, amount, LedgerReason.WITHDRAW)) {
             RyMessageUtils.sendPluginMessage(player, "not-enough-withdraw", placeholders);
             return;
         }
 
-        SimpleGems.getInstance().getGemsAPI().takeGems(player, amount);
         SimpleGems.getInstance().getGemsAPI().giveGemsItem(player, amount);
 
         RyMessageUtils.sendPluginMessage(player, "gems-withdrawn", placeholders);
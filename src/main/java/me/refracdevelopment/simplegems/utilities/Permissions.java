@@ -7,10 +7,17 @@ public class Permissions {
     public static final String GEMS_PAY_COMMAND = "simplegems.command.pay";
     public static final String GEMS_BALANCE_COMMAND = "simplegems.command.balance";
     public static final String GEMS_GIVE_COMMAND = "simplegems.command.give";
+    public static final String GEMS_GIVE_ALL_COMMAND = "simplegems.command.giveall";
     public static final String GEMS_TAKE_COMMAND = "simplegems.command.take";
     public static final String GEMS_SET_COMMAND = "simplegems.command.set";
     public static final String GEMS_RELOAD_COMMAND = "simplegems.command.reload";
     public static final String GEMS_VERSION_COMMAND = "simplegems.command.version";
     public static final String GEMS_TOP_COMMAND = "simplegems.command.top";
+    public static final String GEMS_RANK_COMMAND = "simplegems.command.rank";
+    public static final String GEMS_STATS_COMMAND = "simplegems.command.stats";
+    public static final String GEMS_CONVERT_COMMAND = "simplegems.command.convert";
+    public static final String GEMS_EXPORT_COMMAND = "simplegems.command.export";
+    public static final String GEMS_IMPORT_COMMAND = "simplegems.command.import";
+    public static final String GEMS_MIGRATE_COMMAND = "simplegems.command.migrate";
 
 }
\ No newline at end of file
@@ -3,6 +3,7 @@ package me.refracdevelopment.simplegems.utilities;
 import me.refracdevelopment.simplegems.SimpleGems;
 import org.bukkit.entity.Entity;
 
+import java.util.concurrent.Executor;
 import java.util.concurrent.TimeUnit;
 
 public class Tasks {
@@ -34,4 +35,22 @@ public class Tasks {
     public static void runAsyncTimer(Runnable runnable, long delay, long period, TimeUnit unit) {
         SimpleGems.getInstance().getFoliaLib().getScheduler().runTimerAsync(t -> runnable.run(), delay, period, unit);
     }
-}
\ No newline at end of file
+
+    /**
+     * Used to hop back from a storage future, e.g. {@code future.thenAcceptAsync(consumer, Tasks.mainThread())}.
+     *
+     * @return An executor running tasks on the next tick.
+     */
+    public static Executor mainThread() {
+        return Tasks::run;
+    }
+
+    /**
+     * Used to hop back from a storage future onto the thread owning an entity (Folia).
+     *
+     * @return An executor running tasks at the given entity.
+     */
+    public static Executor entityThread(Entity entity) {
+        return runnable -> runAtEntity(entity, runnable);
+    }
+}
@@ -2,11 +2,11 @@ package me.refracdevelopment.simplegems.utilities.chat;
 
 import me.clip.placeholderapi.expansion.PlaceholderExpansion;
 import me.refracdevelopment.simplegems.SimpleGems;
+import me.refracdevelopment.simplegems.managers.leaderboards.LeaderboardEntry;
+import me.refracdevelopment.simplegems.player.stats.GemAmount;
 import me.refracdevelopment.simplegems.utilities.Methods;
 import org.bukkit.entity.Player;
 
-import java.util.Map;
-
 public class PAPIExpansion extends PlaceholderExpansion {
 
     @Override
@@ -31,15 +31,18 @@ public class PAPIExpansion extends PlaceholderExpansion {
 
     @Override
     public String onPlaceholderRequest(Player player, String params) {
-        double gems = SimpleGems.getInstance().getGemsAPI().getGems(player);
+        long gems = SimpleGems.getInstance().getGemsAPI().getGemUnits(player);
 
         switch (params) {
             case "balance":
-                return String.valueOf(gems);
+                return GemAmount.toString(gems);
             case "balance_formatted":
-                return Methods.format(gems);
+                return Methods.format(GemAmount.toGems(gems));
             case "balance_decimal":
-                return Methods.formatDecimal(gems);
+                return Methods.formatDecimal(GemAmount.toGems(gems));
+            case "rank":
+                int rank = SimpleGems.getInstance().getGemsAPI().getRank(player);
+                return rank == 0 ? "-" : String.valueOf(rank);
             case "prestige_level":
                 return String.valueOf(SimpleGems.getInstance().getGemsAPI().getProfileData(player).getPrestigeLevel());
             case "prestige_multiplier":
@@ -48,23 +51,27 @@ public class PAPIExpansion extends PlaceholderExpansion {
                 if (params.startsWith("player_")) {
                     try {
                         int value = Integer.parseInt(params.replace("player_", "")) - 1;
-                        Map.Entry<String, Double> leaderboardMap = SimpleGems.getInstance().getLeaderboardManager().getCachedMap().entrySet().stream().toList().get(value);
-                        String name = leaderboardMap.getKey();
-                        gems = leaderboardMap.getValue();
+                        LeaderboardEntry entry = SimpleGems.getInstance().getLeaderboardManager().getEntry(value);
+
+                        if (entry == null)
+                            return "";
+
+                        String name = entry.getName();
+                        gems = entry.getUnits();
 
                         return SimpleGems.getInstance().getSettings().GEMS_TOP_FORMAT
                                 .replace("%number%", String.valueOf(value + 1))
                                 .replace("%player%", name)
-                                .replace("%gems%", String.valueOf(gems))
-                                .replace("%gems_formatted%", Methods.format(gems))
-                                .replace("%gems_decimal%", Methods.formatDecimal(gems));
+                                .replace("%gems%", GemAmount.toString(gems))
+                                .replace("%gems_formatted%", Methods.format(entry.getGems()))
+                                .replace("%gems_decimal%", Methods.formatDecimal(entry.getGems()));
                     } catch (Throwable throwable) {
                         throwable.printStackTrace();
                         return "Error...";
                     }
                 }
 
-                return String.valueOf(gems);
+                return GemAmount.toString(gems);
         }
     }
 }
\ No newline at end of file
@@ -1,6 +1,7 @@
 package me.refracdevelopment.simplegems.utilities.chat;
 
 import me.refracdevelopment.simplegems.SimpleGems;
+import me.refracdevelopment.simplegems.player.stats.GemAmount;
 import me.refracdevelopment.simplegems.utilities.Methods;
 import org.bukkit.OfflinePlayer;
 import org.bukkit.command.CommandSender;
@@ -15,12 +16,12 @@ public class Placeholders {
         placeholder = placeholder.replace("%prefix%", SimpleGems.getInstance().getLocaleFile().getString("prefix"));
 
         if (sender instanceof Player player) {
-            double gems = SimpleGems.getInstance().getGemsAPI().getGems(player);
+            long gems = SimpleGems.getInstance().getGemsAPI().getGemUnits(player);
 
             placeholder = placeholder.replace("%player%", player.getName());
-            placeholder = placeholder.replace("%gems%", String.valueOf(gems));
-            placeholder = placeholder.replace("%gems_formatted%", Methods.format(gems));
-            placeholder = placeholder.replace("%gems_decimal%", Methods.formatDecimal(gems));
+            placeholder = placeholder.replace("%gems%", GemAmount.toString(gems));
+            placeholder = placeholder.replace("%gems_formatted%", Methods.format(GemAmount.toGems(gems)));
+            placeholder = placeholder.replace("%gems_decimal%", Methods.formatDecimal(GemAmount.toGems(gems)));
             placeholder = placeholder.replace("%displayname%", player.getDisplayName());
         }
 
@@ -40,12 +41,12 @@ public class Placeholders {
         placeholders.add("prefix", SimpleGems.getInstance().getLocaleFile().getString("prefix"));
 
         if (sender instanceof Player player) {
-            double gems = SimpleGems.getInstance().getGemsAPI().getGems(player);
+            long gems = SimpleGems.getInstance().getGemsAPI().getGemUnits(player);
 
             placeholders.add("player", player.getName());
-            placeholders.add("gems", String.valueOf(gems));
-            placeholders.add("gems_formatted", Methods.format(gems));
-            placeholders.add("gems_decimal", Methods.formatDecimal(gems));
+            placeholders.add("gems", GemAmount.toString(gems));
+            placeholders.add("gems_formatted", Methods.format(GemAmount.toGems(gems)));
+            placeholders.add("gems_decimal", Methods.formatDecimal(GemAmount.toGems(gems)));
             placeholders.add("displayname", player.getDisplayName());
         }
 
@@ -59,35 +60,45 @@ public class Placeholders {
         return placeholders.build();
     }
 
+    /**
+     * The balance of a player who isn't online isn't known without a lookup, so only their name
+     * is filled in. Use {@link #setOfflinePlaceholders(OfflinePlayer, long)} once it has been read.
+     */
     public static StringPlaceholders setOfflinePlaceholders(OfflinePlayer sender) {
+        if (sender instanceof Player player)
+            return setPlaceholders(player);
+
         StringPlaceholders.Builder placeholders = StringPlaceholders.builder();
 
         placeholders.add("prefix", SimpleGems.getInstance().getLocaleFile().getString("prefix"));
+        placeholders.add("player", sender.getName());
+        addSymbols(placeholders);
 
-        if (sender instanceof Player player) {
-            double gems = SimpleGems.getInstance().getGemsAPI().getGems(player);
+        return placeholders.build();
+    }
 
-            placeholders.add("player", player.getName());
-            placeholders.add("gems", String.valueOf(gems));
-            placeholders.add("gems_formatted", Methods.format(gems));
-            placeholders.add("gems_decimal", Methods.formatDecimal(gems));
-            placeholders.add("displayname", player.getDisplayName());
-        } else {
-            double gems = SimpleGems.getInstance().getGemsAPI().getOfflineGems(sender);
+    /**
+     * @param gems The player's balance in units, read with {@link Methods#getOfflineUnitsAsync(OfflinePlayer)}.
+     */
+    public static StringPlaceholders setOfflinePlaceholders(OfflinePlayer sender, long gems) {
+        StringPlaceholders.Builder placeholders = StringPlaceholders.builder();
 
-            placeholders.add("player", sender.getName());
-            placeholders.add("gems", String.valueOf(gems));
-            placeholders.add("gems_formatted", Methods.format(gems));
-            placeholders.add("gems_decimal", Methods.formatDecimal(gems));
-        }
+        placeholders.add("prefix", SimpleGems.getInstance().getLocaleFile().getString("prefix"));
+        placeholders.add("player", sender.getName());
+        placeholders.add("gems", GemAmount.toString(gems));
+        placeholders.add("gems_formatted", Methods.format(GemAmount.toGems(gems)));
+        placeholders.add("gems_decimal", Methods.formatDecimal(GemAmount.toGems(gems)));
+        addSymbols(placeholders);
 
+        return placeholders.build();
+    }
+
+    private static void addSymbols(StringPlaceholders.Builder placeholders) {
         placeholders.add("arrow", "»");
         placeholders.add("arrowright", "»");
         placeholders.add("arrowleft", "«");
         placeholders.add("star", "✦");
         placeholders.add("circle", "∙");
         placeholders.add("|", "⎟");
-
-        return placeholders.build();
     }
 }
\ No newline at end of file
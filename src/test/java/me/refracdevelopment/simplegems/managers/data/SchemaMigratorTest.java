@@ -0,0 +1,136 @@
+package me.refracdevelopment.simplegems.managers.data;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.*;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class SchemaMigratorTest {
+
+    private final SchemaMigrator migrator = new SchemaMigrator(DataType.SQLITE);
+    private Connection connection;
+
+    @BeforeEach
+    void open() throws SQLException {
+        connection = DriverManager.getConnection("jdbc:sqlite::memory:");
+
+        try (Statement statement = connection.createStatement()) {
+            statement.executeUpdate("CREATE TABLE SimpleGems (uuid VARCHAR(36) NOT NULL PRIMARY KEY, name VARCHAR(16), gems BIGINT(50))");
+        }
+    }
+
+    @AfterEach
+    void close() throws SQLException {
+        connection.close();
+    }
+
+    @Test
+    void scalingUpMultiplies() throws SQLException {
+        insert("a", 12);
+        insert("b", -3);
+
+        scale(0, 2);
+
+        assertEquals("integer:1200", gems("a"));
+        assertEquals("integer:-300", gems("b"));
+    }
+
+    @Test
+    void scalingDownRoundsToWholeUnits() throws SQLException {
+        insert("a", 1_249);
+        insert("b", 1_250);
+        insert("c", -1_250);
+
+        scale(3, 1);
+
+        assertEquals("integer:12", gems("a"));
+        assertEquals("integer:13", gems("b"));
+        assertEquals("integer:-13", gems("c"));
+    }
+
+    @Test
+    void mySQLKeepsIntegerArithmetic() {
+        SchemaMigrator mysql = new SchemaMigrator(DataType.MYSQL);
+
+        assertEquals("gems * 100", mysql.scaleExpression("gems", 0, 2));
+        assertEquals("CAST(ROUND(gems / 10) AS SIGNED)", mysql.scaleExpression("gems", 3, 2));
+    }
+
+    @Test
+    void unrecordedBalancesAreRoundedOnceAndTheScaleRecorded() throws SQLException {
+        insert("a", 2.6);
+        insert("b", 2.4);
+
+        assertEquals(0, migrator.rescale(connection, 0));
+        assertEquals("integer:3", gems("a"));
+        assertEquals("integer:2", gems("b"));
+
+        try (Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery("SELECT scale FROM gem_scale")) {
+            resultSet.next();
+            assertEquals(0, resultSet.getInt(1));
+        }
+
+        // Once recorded, the same scale leaves the table alone
+        insert("c", 7.5);
+
+        assertEquals(0, migrator.rescale(connection, 0));
+        assertEquals("real:7.5", gems("c"));
+    }
+
+    @Test
+    void ledgerOfDoublesMovesToUnits() throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.executeUpdate("CREATE TABLE SimpleGemsLedger (id INTEGER PRIMARY KEY AUTOINCREMENT, time BIGINT NOT NULL, actor VARCHAR(36), " +
+                    "target VARCHAR(36) NOT NULL, delta DOUBLE, reason VARCHAR(16) NOT NULL, balance DOUBLE)");
+            statement.executeUpdate("INSERT INTO SimpleGemsLedger (time, target, delta, reason, balance) VALUES (1, 'a', 2.4, 'GIVE', 12.0), (2, 'a', NULL, 'SET', 7.6)");
+        }
+
+        assertEquals(0, migrator.rescale(connection, 0));
+
+        try (Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery("SELECT typeof(delta) || ':' || ifnull(delta, ''), typeof(balance) || ':' || balance FROM SimpleGemsLedger ORDER BY id")) {
+            resultSet.next();
+            assertEquals("integer:2", resultSet.getString(1));
+            assertEquals("integer:12", resultSet.getString(2));
+            resultSet.next();
+            assertEquals("null:", resultSet.getString(1));
+            assertEquals("integer:8", resultSet.getString(2));
+        }
+
+        try (ResultSet resultSet = connection.getMetaData().getColumns(null, null, "SimpleGemsLedger", "balance")) {
+            resultSet.next();
+            assertEquals("BIGINT", resultSet.getString("TYPE_NAME"));
+        }
+    }
+
+    private void scale(int from, int to) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.executeUpdate("UPDATE SimpleGems SET gems = " + migrator.scaleExpression("gems", from, to));
+        }
+    }
+
+    private void insert(String uuid, Object gems) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement("INSERT INTO SimpleGems (uuid, name, gems) VALUES (?, ?, ?)")) {
+            statement.setString(1, uuid);
+            statement.setString(2, uuid);
+            statement.setObject(3, gems);
+            statement.executeUpdate();
+        }
+    }
+
+    // The stored type next to the value, so whole units can't pass as reals
+    private String gems(String uuid) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement("SELECT typeof(gems) || ':' || gems FROM SimpleGems WHERE uuid = ?")) {
+            statement.setString(1, uuid);
+
+            try (ResultSet resultSet = statement.executeQuery()) {
+                resultSet.next();
+                return resultSet.getString(1);
+            }
+        }
+    }
+}
@@ -0,0 +1,165 @@
+package me.refracdevelopment.simplegems.managers.leaderboards;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RankIndexTest {
+
+    private static final UUID FIRST = new UUID(0, 1);
+    private static final UUID SECOND = new UUID(0, 2);
+    private static final UUID THIRD = new UUID(0, 3);
+    private static final UUID UNKNOWN = new UUID(0, 4);
+
+    @Test
+    void ranksHighestBalanceFirst() {
+        RankIndex index = new RankIndex();
+        index.update(FIRST, "first", 10);
+        index.update(SECOND, "second", 30);
+        index.update(THIRD, "third", 20);
+
+        assertEquals(1, index.getRank(SECOND));
+        assertEquals(2, index.getRank(THIRD));
+        assertEquals(3, index.getRank(FIRST));
+        assertEquals(0, index.getRank(UNKNOWN));
+        assertEquals(3, index.size());
+    }
+
+    @Test
+    void tiesAreOrderedByUuid() {
+        RankIndex index = new RankIndex();
+        index.update(THIRD, "third", 5);
+        index.update(FIRST, "first", 5);
+        index.update(SECOND, "second", 5);
+
+        assertEquals(List.of(FIRST, SECOND, THIRD), uuids(index.getRange(1, 3)));
+    }
+
+    @Test
+    void updateMovesAPlayer() {
+        RankIndex index = new RankIndex();
+        index.update(FIRST, "first", 10);
+        index.update(SECOND, "second", 20);
+
+        index.update(FIRST, "renamed", 30);
+
+        assertEquals(1, index.getRank(FIRST));
+        assertEquals(2, index.getRank(SECOND));
+        assertEquals(2, index.size());
+        assertEquals("renamed", index.get(FIRST).getName());
+        assertEquals(30, index.get(FIRST).getUnits());
+    }
+
+    @Test
+    void removeDropsAPlayer() {
+        RankIndex index = new RankIndex();
+        index.update(FIRST, "first", 10);
+        index.update(SECOND, "second", 20);
+
+        index.remove(SECOND);
+        index.remove(UNKNOWN);
+
+        assertEquals(0, index.getRank(SECOND));
+        assertNull(index.get(SECOND));
+        assertEquals(1, index.getRank(FIRST));
+        assertEquals(1, index.size());
+    }
+
+    @Test
+    void rangeIsClampedToTheIndex() {
+        RankIndex index = new RankIndex();
+        index.update(FIRST, "first", 10);
+        index.update(SECOND, "second", 20);
+        index.update(THIRD, "third", 30);
+
+        assertEquals(List.of(SECOND, FIRST), uuids(index.getRange(2, 10)));
+        assertEquals(List.of(THIRD), uuids(index.getRange(0, 1)));
+        assertTrue(index.getRange(4, 5).isEmpty());
+    }
+
+    @Test
+    void shiftKeepsTheOrderAndMovesEveryBalance() {
+        RankIndex index = new RankIndex();
+        index.update(FIRST, "first", 10);
+        index.update(SECOND, "second", 20);
+
+        index.shift(5);
+
+        assertEquals(15, index.get(FIRST).getUnits());
+        assertEquals(List.of(25L, 15L), units(index.getRange(1, 2)));
+
+        // Balances given after a shift are absolute
+        index.update(THIRD, "third", 20);
+
+        assertEquals(20, index.get(THIRD).getUnits());
+        assertEquals(List.of(SECOND, THIRD, FIRST), uuids(index.getRange(1, 3)));
+
+        // An unchanged absolute balance doesn't move the player
+        index.update(FIRST, "first", 15);
+
+        assertEquals(3, index.getRank(FIRST));
+        assertEquals(15, index.get(FIRST).getUnits());
+    }
+
+    @Test
+    void replaceTakesOverAnotherIndex() {
+        RankIndex index = new RankIndex();
+        index.update(FIRST, "first", 10);
+
+        RankIndex loaded = new RankIndex();
+        loaded.update(SECOND, "second", 20);
+        loaded.update(THIRD, "third", 30);
+        loaded.shift(1);
+
+        index.replace(loaded);
+
+        assertEquals(0, index.getRank(FIRST));
+        assertEquals(List.of(31L, 21L), units(index.getRange(1, 2)));
+        assertEquals(0, loaded.size());
+        assertNull(loaded.get(SECOND));
+    }
+
+    @Test
+    void ranksMatchASortedList() {
+        RankIndex index = new RankIndex();
+        Map<UUID, Long> balances = new HashMap<>();
+        Random random = new Random(42);
+
+        for (int i = 0; i < 2_000; i++) {
+            UUID uuid = new UUID(0, random.nextInt(500));
+            long units = random.nextInt(1_000);
+
+            if (random.nextInt(10) == 0) {
+                index.remove(uuid);
+                balances.remove(uuid);
+            } else {
+                index.update(uuid, null, units);
+                balances.put(uuid, units);
+            }
+        }
+
+        List<LeaderboardEntry> sorted = new ArrayList<>();
+        balances.forEach((uuid, units) -> sorted.add(new LeaderboardEntry(uuid, null, units)));
+        Collections.sort(sorted);
+
+        assertEquals(sorted.size(), index.size());
+        assertEquals(uuids(sorted), uuids(index.getRange(1, sorted.size())));
+
+        for (int position = 0; position < sorted.size(); position++)
+            assertEquals(position + 1, index.getRank(sorted.get(position).getUuid()));
+    }
+
+    private List<UUID> uuids(List<LeaderboardEntry> entries) {
+        List<UUID> uuids = new ArrayList<>();
+        entries.forEach(entry -> uuids.add(entry.getUuid()));
+        return uuids;
+    }
+
+    private List<Long> units(List<LeaderboardEntry> entries) {
+        List<Long> units = new ArrayList<>();
+        entries.forEach(entry -> units.add(entry.getUnits()));
+        return units;
+    }
+}
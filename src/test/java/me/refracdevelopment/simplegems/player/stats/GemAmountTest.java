@@ -0,0 +1,88 @@
+package me.refracdevelopment.simplegems.player.stats;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class GemAmountTest {
+
+    @AfterEach
+    void resetScale() {
+        GemAmount.setScale(0);
+    }
+
+    @Test
+    void scaleIsClamped() {
+        GemAmount.setScale(-1);
+        assertEquals(0, GemAmount.getScale());
+        assertEquals(1, GemAmount.getFactor());
+
+        GemAmount.setScale(GemAmount.MAX_SCALE + 3);
+        assertEquals(GemAmount.MAX_SCALE, GemAmount.getScale());
+        assertEquals(1_000_000, GemAmount.getFactor());
+    }
+
+    @Test
+    void gemsRoundToTheNearestUnit() {
+        GemAmount.setScale(2);
+
+        assertEquals(1234, GemAmount.toUnits(12.34));
+        assertEquals(1235, GemAmount.toUnits(12.345001));
+        assertEquals(-150, GemAmount.toUnits(-1.5));
+        assertEquals(12.34, GemAmount.toGems(1234));
+    }
+
+    @Test
+    void wholeScaleDropsFractions() {
+        assertEquals(3, GemAmount.toUnits(2.6));
+        assertEquals("3", GemAmount.toString(3));
+        assertEquals("-3", GemAmount.toString(-3));
+    }
+
+    @Test
+    void formatLeavesOutTrailingZeros() {
+        GemAmount.setScale(3);
+
+        assertEquals("12", GemAmount.toString(12_000));
+        assertEquals("12.5", GemAmount.toString(12_500));
+        assertEquals("12.05", GemAmount.toString(12_050));
+        assertEquals("0.001", GemAmount.toString(1));
+        assertEquals("-0.25", GemAmount.toString(-250));
+        assertEquals("-1.005", GemAmount.toString(-1_005));
+    }
+
+    @Test
+    void formatIsExactForLargeBalances() {
+        GemAmount.setScale(2);
+
+        assertEquals("92233720368547758.07", GemAmount.toString(Long.MAX_VALUE));
+    }
+
+    @Test
+    void rescaleUp() {
+        GemAmount.setScale(4);
+
+        assertEquals(1_230_000, GemAmount.rescale(123, 0));
+        assertEquals(12_300, GemAmount.rescale(123, 2));
+        assertEquals(-12_300, GemAmount.rescale(-123, 2));
+    }
+
+    @Test
+    void rescaleDownRoundsHalfUp() {
+        GemAmount.setScale(1);
+
+        assertEquals(12, GemAmount.rescale(124, 2));
+        assertEquals(13, GemAmount.rescale(125, 2));
+        assertEquals(13, GemAmount.rescale(1_250, 3));
+        assertEquals(-13, GemAmount.rescale(-1_250, 3));
+        assertEquals(12, GemAmount.rescale(1_249, 3));
+    }
+
+    @Test
+    void rescaleToTheSameScaleKeepsUnits() {
+        GemAmount.setScale(2);
+
+        assertEquals(Long.MAX_VALUE, GemAmount.rescale(Long.MAX_VALUE, 2));
+    }
+}
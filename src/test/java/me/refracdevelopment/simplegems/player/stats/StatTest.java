@@ -0,0 +1,139 @@
+package me.refracdevelopment.simplegems.player.stats;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StatTest {
+
+    private static final int THREADS = 8;
+
+    @AfterEach
+    void resetScale() {
+        GemAmount.setScale(0);
+    }
+
+    @Test
+    void debitTakesOnlyWhatIsCovered() {
+        Stat stat = new Stat();
+        stat.setUnits(100);
+
+        assertTrue(stat.tryDebitUnits(60));
+        assertEquals(40, stat.getUnits());
+
+        assertFalse(stat.tryDebitUnits(41));
+        assertEquals(40, stat.getUnits());
+
+        assertTrue(stat.tryDebitUnits(40));
+        assertEquals(0, stat.getUnits());
+    }
+
+    @Test
+    void transferMovesUnits() {
+        Stat from = new Stat();
+        Stat to = new Stat();
+        from.setUnits(50);
+        to.setUnits(5);
+
+        assertTrue(Stat.transferUnits(from, to, 20));
+        assertEquals(30, from.getUnits());
+        assertEquals(25, to.getUnits());
+    }
+
+    @Test
+    void transferWithoutCoverChangesNothing() {
+        Stat from = new Stat();
+        Stat to = new Stat();
+        from.setUnits(10);
+
+        assertFalse(Stat.transferUnits(from, to, 11));
+        assertEquals(10, from.getUnits());
+        assertEquals(0, to.getUnits());
+    }
+
+    @Test
+    void doublesConvertAtTheScale() {
+        GemAmount.setScale(2);
+        Stat stat = new Stat();
+
+        stat.setAmount(10.25);
+        assertEquals(1025, stat.getUnits());
+        assertEquals(10.5, stat.incrementAmount(0.25));
+        assertTrue(stat.hasAmount(10.5));
+        assertFalse(stat.hasAmount(10.51));
+        assertTrue(stat.tryDebit(0.5));
+        assertEquals(10.0, stat.getAmount());
+    }
+
+    @Test
+    void concurrentDebitsNeverOverdraw() throws Exception {
+        Stat stat = new Stat();
+        stat.setUnits(1_000);
+
+        AtomicInteger debited = new AtomicInteger();
+
+        runConcurrently(() -> {
+            for (int i = 0; i < 500; i++) {
+                if (stat.tryDebitUnits(1))
+                    debited.incrementAndGet();
+            }
+        });
+
+        assertEquals(1_000, debited.get());
+        assertEquals(0, stat.getUnits());
+    }
+
+    @Test
+    void concurrentTransfersKeepTheTotal() throws Exception {
+        Stat first = new Stat();
+        Stat second = new Stat();
+        first.setUnits(10_000);
+        second.setUnits(10_000);
+
+        AtomicInteger turn = new AtomicInteger();
+
+        runConcurrently(() -> {
+            boolean forward = turn.getAndIncrement() % 2 == 0;
+
+            for (int i = 0; i < 10_000; i++) {
+                if (forward)
+                    Stat.transferUnits(first, second, 3);
+                else
+                    Stat.transferUnits(second, first, 3);
+            }
+        });
+
+        assertEquals(20_000, first.getUnits() + second.getUnits());
+        assertTrue(first.getUnits() >= 0);
+        assertTrue(second.getUnits() >= 0);
+    }
+
+    private void runConcurrently(Runnable task) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+
+        try {
+            for (int i = 0; i < THREADS; i++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    task.run();
+                    return null;
+                }));
+            }
+
+            start.countDown();
+
+            for (Future<?> future : futures)
+                future.get(30, TimeUnit.SECONDS);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}